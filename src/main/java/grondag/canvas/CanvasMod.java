@@ -22,6 +22,7 @@ import org.lwjgl.system.Configuration;
 
 import net.minecraft.client.options.KeyBinding;
 import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.util.InputUtil;
 import net.minecraft.util.Identifier;
 
 import net.fabricmc.api.ClientModInitializer;
@@ -41,7 +42,6 @@ import grondag.frex.api.fluid.FluidQuadSupplier;
 //FEAT: weather rendering
 //FEAT: sky rendering
 //FEAT: pbr textures
-//PERF: disable animated textures when not in view
 //PERF: improve light smoothing performance
 //FEAT: colored lights
 //FEAT: per chunk occlusion mesh - for sky shadow mask
@@ -57,6 +57,7 @@ public class CanvasMod implements ClientModInitializer {
 	public static KeyBinding INCREMENT_A = new KeyBinding("key.canvas.increment_a", Character.valueOf('='), "key.canvas.category");
 	public static KeyBinding DECREMENT_B = new KeyBinding("key.canvas.decrement_b", Character.valueOf('['), "key.canvas.category");
 	public static KeyBinding INCREMENT_B = new KeyBinding("key.canvas.increment_b", Character.valueOf(']'), "key.canvas.category");
+	public static KeyBinding CAPTURE_REGIONS = new KeyBinding("key.canvas.capture_regions", InputUtil.UNKNOWN_KEY.getCode(), "key.canvas.category");
 
 	@Override
 	public void onInitializeClient() {
@@ -81,6 +82,7 @@ public class CanvasMod implements ClientModInitializer {
 		KeyBindingHelper.registerKeyBinding(INCREMENT_A);
 		KeyBindingHelper.registerKeyBinding(DECREMENT_B);
 		KeyBindingHelper.registerKeyBinding(INCREMENT_B);
+		KeyBindingHelper.registerKeyBinding(CAPTURE_REGIONS);
 
 		Compat.init();
 
@@ -70,13 +70,18 @@ public class Configurator {
 	public static boolean fixLuminousBlockShading = DEFAULTS.fixLuminousBlockShading;
 	public static boolean terrainSetupOffThread = DEFAULTS.terrainSetupOffThread;
 	public static boolean cullEntityRender = DEFAULTS.cullEntityRender;
+	public static boolean entityOcclusionCulling = DEFAULTS.entityOcclusionCulling;
+	public static boolean skipHiddenAnimation = DEFAULTS.skipHiddenAnimation;
 	public static boolean greedyRenderThread = DEFAULTS.greedyRenderThread;
 	public static boolean forceJmxModelLoading = DEFAULTS.forceJmxModelLoading;
 	public static boolean reduceResolutionOnMac = DEFAULTS.reduceResolutionOnMac;
 	public static boolean vertexControlMode = DEFAULTS.vertexControlMode;
 	public static int staticFrustumPadding = DEFAULTS.staticFrustumPadding;
 	public static int dynamicFrustumPadding = DEFAULTS.dynamicFrustumPadding;
+	public static int foliageLodDistance = DEFAULTS.foliageLodDistance;
+	public static int uploadBudgetMegabytes = DEFAULTS.uploadBudgetMegabytes;
 	public static boolean cullParticles = DEFAULTS.cullParticles;
+	public static boolean parallelParticles = DEFAULTS.parallelParticles;
 	public static boolean shaderDebug = DEFAULTS.shaderDebug;
 	public static boolean lightmapDebug = DEFAULTS.lightmapDebug;
 	public static boolean conciseErrors = DEFAULTS.conciseErrors;
@@ -174,13 +179,18 @@ public class Configurator {
 		safeNativeMemoryAllocation = config.safeNativeMemoryAllocation;
 		enableVao = config.enableVao;
 		cullEntityRender = config.cullEntityRender;
+		entityOcclusionCulling = config.entityOcclusionCulling;
+		skipHiddenAnimation = config.skipHiddenAnimation;
 		greedyRenderThread = config.greedyRenderThread;
 		forceJmxModelLoading = config.forceJmxModelLoading;
 		reduceResolutionOnMac = config.reduceResolutionOnMac;
 		vertexControlMode = config.vertexControlMode;
 		dynamicFrustumPadding = MathHelper.clamp(config.dynamicFrustumPadding, 0, 20);
 		staticFrustumPadding = MathHelper.clamp(config.staticFrustumPadding, 0, 30);
+		foliageLodDistance = MathHelper.clamp(config.foliageLodDistance, 0, 32);
+		uploadBudgetMegabytes = MathHelper.clamp(config.uploadBudgetMegabytes, 1, 64);
 		cullParticles = config.cullParticles;
+		parallelParticles = config.parallelParticles;
 
 		lightmapDebug = config.lightmapDebug;
 		conciseErrors = config.conciseErrors;
@@ -230,13 +240,18 @@ public class Configurator {
 		config.safeNativeMemoryAllocation = safeNativeMemoryAllocation;
 		config.enableVao = enableVao;
 		config.cullEntityRender = cullEntityRender;
+		config.entityOcclusionCulling = entityOcclusionCulling;
+		config.skipHiddenAnimation = skipHiddenAnimation;
 		config.greedyRenderThread = greedyRenderThread;
 		config.forceJmxModelLoading = forceJmxModelLoading;
 		config.reduceResolutionOnMac = reduceResolutionOnMac;
 		config.vertexControlMode = vertexControlMode;
 		config.staticFrustumPadding = staticFrustumPadding;
 		config.dynamicFrustumPadding = dynamicFrustumPadding;
+		config.foliageLodDistance = foliageLodDistance;
+		config.uploadBudgetMegabytes = uploadBudgetMegabytes;
 		config.cullParticles = cullParticles;
+		config.parallelParticles = parallelParticles;
 
 		config.lightmapDebug = lightmapDebug;
 		config.conciseErrors = conciseErrors;
@@ -525,6 +540,24 @@ public class Configurator {
 				})
 				.build());
 
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.entity_occlusion_culling"), entityOcclusionCulling)
+				.setDefaultValue(DEFAULTS.entityOcclusionCulling)
+				.setTooltip(parse("config.canvas.help.entity_occlusion_culling"))
+				.setSaveConsumer(b -> {
+					entityOcclusionCulling = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.skip_hidden_animation"), skipHiddenAnimation)
+				.setDefaultValue(DEFAULTS.skipHiddenAnimation)
+				.setTooltip(parse("config.canvas.help.skip_hidden_animation"))
+				.setSaveConsumer(b -> {
+					skipHiddenAnimation = b;
+				})
+				.build());
+
 		tweaks.addEntry(ENTRY_BUILDER
 				.startBooleanToggle(new TranslatableText("config.canvas.value.greedy_render_thread"), greedyRenderThread)
 				.setDefaultValue(DEFAULTS.greedyRenderThread)
@@ -580,6 +613,25 @@ public class Configurator {
 				})
 				.build());
 
+		tweaks.addEntry(ENTRY_BUILDER
+				.startIntSlider(new TranslatableText("config.canvas.value.foliage_lod_distance"), foliageLodDistance, 0, 32)
+				.setDefaultValue(DEFAULTS.foliageLodDistance)
+				.setTooltip(parse("config.canvas.help.foliage_lod_distance"))
+				.setSaveConsumer(b -> {
+					reload |= foliageLodDistance != b;
+					foliageLodDistance = b;
+				})
+				.build());
+
+		tweaks.addEntry(ENTRY_BUILDER
+				.startIntSlider(new TranslatableText("config.canvas.value.upload_budget_megabytes"), uploadBudgetMegabytes, 1, 64)
+				.setDefaultValue(DEFAULTS.uploadBudgetMegabytes)
+				.setTooltip(parse("config.canvas.help.upload_budget_megabytes"))
+				.setSaveConsumer(b -> {
+					uploadBudgetMegabytes = b;
+				})
+				.build());
+
 		tweaks.addEntry(ENTRY_BUILDER
 				.startBooleanToggle(new TranslatableText("config.canvas.value.cull_particles"), cullParticles)
 				.setDefaultValue(DEFAULTS.cullParticles)
@@ -589,6 +641,15 @@ public class Configurator {
 				})
 				.build());
 
+		tweaks.addEntry(ENTRY_BUILDER
+				.startBooleanToggle(new TranslatableText("config.canvas.value.parallel_particles"), parallelParticles)
+				.setDefaultValue(DEFAULTS.parallelParticles)
+				.setTooltip(parse("config.canvas.help.parallel_particles"))
+				.setSaveConsumer(b -> {
+					parallelParticles = b;
+				})
+				.build());
+
 		// DEBUG
 		final ConfigCategory debug = builder.getOrCreateCategory(new TranslatableText("config.canvas.category.debug"));
 
@@ -813,6 +874,10 @@ public class Configurator {
 		boolean enableVao = true;
 		@Comment("Use more efficient entity culling. Improves framerate in most scenes.")
 		boolean cullEntityRender = true;
+		@Comment("Skip entities and block entities hidden behind terrain. Requires cullEntityRender.")
+		boolean entityOcclusionCulling = true;
+		@Comment("Don't animate block textures that aren't on visible terrain or drawn since the last tick. Saves texture uploads.")
+		boolean skipHiddenAnimation = true;
 		@Comment("When true, render thread does not yield to other threads every frame. Vanilla behavior is false (yields).")
 		boolean greedyRenderThread = true;
 		@Comment("Use more efficient model loading. Improves chunk rebuild speed and reduces memory use.")
@@ -825,8 +890,14 @@ public class Configurator {
 		int staticFrustumPadding = 10;
 		@Comment("Extra padding at edges of screen to reduce missing chunks when view roates and terrainSetupOffThread is on. In degrees. Values 0 to 30. Zero disables.")
 		int dynamicFrustumPadding = 20;
+		@Comment("Chunk distance beyond which grass and flowers are omitted and leaves render like fast graphics. Values 0 to 32. Zero disables.")
+		int foliageLodDistance = 0;
+		@Comment("Maximum megabytes of terrain vertex data uploaded per frame, not counting nearby regions. Values 1 to 64.")
+		int uploadBudgetMegabytes = 8;
 		@Comment("Culls particles that are not in view. Should always be faster.")
 		boolean cullParticles = true;
+		@Comment("Builds particle geometry on multiple threads when there are many particles. Faster with large particle counts but may not work with some modded particles.")
+		boolean parallelParticles = false;
 
 		// DEBUG
 		@Comment("Output runtime per-material shader source. For shader development debugging.")
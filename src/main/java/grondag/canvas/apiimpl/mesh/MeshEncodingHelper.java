@@ -56,6 +56,17 @@ public abstract class MeshEncodingHelper {
 	public static final int TEXTURE_OFFSET_MINUS;
 	public static final int MAX_QUAD_STRIDE;
 
+	/**
+	 * Render-time lighting results follow the largest quad in buffers used for
+	 * lighting, so they share cache lines with the vertex data they describe.
+	 * Never part of mesh data. Ao is 0 to 255, lightmap coordinates are float bits.
+	 */
+	public static final int WORK_AO;
+	public static final int WORK_LIGHTMAP_U;
+	public static final int WORK_LIGHTMAP_V;
+	public static final int WORK_STRIDE;
+	public static final int RENDER_QUAD_STRIDE;
+
 	/**
 	 * Used for quick clearing of quad buffers.
 	 */
@@ -107,6 +118,12 @@ public abstract class MeshEncodingHelper {
 		TEXTURE_OFFSET_MINUS = MIN_QUAD_STRIDE - TEXTURE_QUAD_STRIDE;
 		MAX_QUAD_STRIDE = MIN_QUAD_STRIDE + TEXTURE_QUAD_STRIDE;
 		EMPTY = new int[MAX_QUAD_STRIDE];
+
+		WORK_AO = MAX_QUAD_STRIDE;
+		WORK_LIGHTMAP_U = WORK_AO + 4;
+		WORK_LIGHTMAP_V = WORK_LIGHTMAP_U + 4;
+		WORK_STRIDE = 12;
+		RENDER_QUAD_STRIDE = MAX_QUAD_STRIDE + WORK_STRIDE;
 	}
 
 	static {
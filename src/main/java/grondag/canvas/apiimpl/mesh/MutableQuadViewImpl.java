@@ -29,6 +29,9 @@ import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.UV_PRECISE_UNIT_VAL
 import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.VERTEX_LIGHTMAP;
 import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.VERTEX_NORMAL;
 import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.VERTEX_X;
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.WORK_AO;
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.WORK_LIGHTMAP_U;
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.WORK_LIGHTMAP_V;
 
 import net.minecraft.client.render.model.BakedQuad;
 import net.minecraft.client.texture.Sprite;
@@ -51,11 +54,6 @@ import grondag.frex.api.mesh.QuadEmitter;
  * because that depends on where/how it is used. (Mesh encoding vs. render-time transformation).
  */
 public abstract class MutableQuadViewImpl extends QuadViewImpl implements QuadEmitter {
-	// PERF: pack into one array for LOR?
-	public final float[] u = new float[4];
-	public final float[] v = new float[4];
-	// vanilla light outputs
-	public final float[] ao = new float[4];
 	// UGLY - need a lighting result class?
 	public LightmapHd hdLight = null;
 
@@ -73,6 +71,41 @@ public abstract class MutableQuadViewImpl extends QuadViewImpl implements QuadEm
 		unmapSpritesIfNeeded();
 	}
 
+	/**
+	 * Lighting results are kept in the workspace after the quad data and are only
+	 * valid after lighting the quad. Requires a buffer sized with
+	 * {@link MeshEncodingHelper#RENDER_QUAD_STRIDE}.
+	 *
+	 * @return vanilla ao, 0 to 255
+	 */
+	public final int ao(int vertexIndex) {
+		return data[baseIndex + WORK_AO + vertexIndex];
+	}
+
+	public final void ao(int vertexIndex, int ao) {
+		assert data.length >= baseIndex + MeshEncodingHelper.RENDER_QUAD_STRIDE;
+		data[baseIndex + WORK_AO + vertexIndex] = ao;
+	}
+
+	/** Position of the vertex within the hd lightmap, 0 to 1. */
+	public final float hdLightU(int vertexIndex) {
+		return Float.intBitsToFloat(data[baseIndex + WORK_LIGHTMAP_U + vertexIndex]);
+	}
+
+	public final void hdLightU(int vertexIndex, float u) {
+		assert data.length >= baseIndex + MeshEncodingHelper.RENDER_QUAD_STRIDE;
+		data[baseIndex + WORK_LIGHTMAP_U + vertexIndex] = Float.floatToRawIntBits(u);
+	}
+
+	public final float hdLightV(int vertexIndex) {
+		return Float.intBitsToFloat(data[baseIndex + WORK_LIGHTMAP_V + vertexIndex]);
+	}
+
+	public final void hdLightV(int vertexIndex, float v) {
+		assert data.length >= baseIndex + MeshEncodingHelper.RENDER_QUAD_STRIDE;
+		data[baseIndex + WORK_LIGHTMAP_V + vertexIndex] = Float.floatToRawIntBits(v);
+	}
+
 	public void clear() {
 		System.arraycopy(EMPTY, 0, data, baseIndex, MeshEncodingHelper.MAX_QUAD_STRIDE);
 		isGeometryInvalid = true;
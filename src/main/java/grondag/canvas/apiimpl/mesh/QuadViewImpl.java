@@ -405,6 +405,19 @@ public class QuadViewImpl implements QuadView {
 		return data[baseIndex + HEADER_SPRITE];
 	}
 
+	/**
+	 * Equivalent to {@link #transformAndAppend(int, Matrix4fExt, int[], int)} with a matrix
+	 * that only translates.
+	 */
+	public void translateAndAppend(final int vertexIndex, final float dx, final float dy, final float dz, final int[] appendData, final int targetIndex) {
+		final int[] data = this.data;
+		final int index = baseIndex + vertexIndex * BASE_VERTEX_STRIDE + VERTEX_X;
+
+		appendData[targetIndex] = Float.floatToRawIntBits(Float.intBitsToFloat(data[index]) + dx);
+		appendData[targetIndex + 1] = Float.floatToRawIntBits(Float.intBitsToFloat(data[index + 1]) + dy);
+		appendData[targetIndex + 2] = Float.floatToRawIntBits(Float.intBitsToFloat(data[index + 2]) + dz);
+	}
+
 	public void transformAndAppend(final int vertexIndex, final Matrix4fExt matrix, final int[] appendData, final int targetIndex) {
 		final int[] data = this.data;
 		final int index = baseIndex + vertexIndex * BASE_VERTEX_STRIDE + VERTEX_X;
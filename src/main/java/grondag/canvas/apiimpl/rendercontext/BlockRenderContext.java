@@ -18,6 +18,8 @@ package grondag.canvas.apiimpl.rendercontext;
 
 import java.util.function.Supplier;
 
+import com.mojang.blaze3d.systems.RenderSystem;
+
 import net.minecraft.block.BlockState;
 import net.minecraft.client.render.VertexConsumer;
 import net.minecraft.client.render.WorldRenderer;
@@ -47,6 +49,9 @@ public class BlockRenderContext extends AbstractBlockRenderContext<BlockRenderVi
 
 	private static ThreadLocal<BlockRenderContext> POOL = POOL_FACTORY.get();
 
+	/** Avoids the thread local lookup for the common case. Only accessed from the render thread. */
+	private static BlockRenderContext renderThreadContext;
+
 	public BlockRenderContext() {
 		super("BlockRenderContext");
 	}
@@ -55,9 +60,21 @@ public class BlockRenderContext extends AbstractBlockRenderContext<BlockRenderVi
 		LOADED.forEach(c -> c.close());
 		LOADED.clear();
 		POOL = POOL_FACTORY.get();
+		renderThreadContext = null;
 	}
 
 	public static BlockRenderContext get() {
+		if (RenderSystem.isOnRenderThread()) {
+			BlockRenderContext result = renderThreadContext;
+
+			if (result == null) {
+				result = POOL.get();
+				renderThreadContext = result;
+			}
+
+			return result;
+		}
+
 		return POOL.get();
 	}
 
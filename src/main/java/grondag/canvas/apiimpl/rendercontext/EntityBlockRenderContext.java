@@ -18,6 +18,8 @@ package grondag.canvas.apiimpl.rendercontext;
 
 import java.util.function.Supplier;
 
+import com.mojang.blaze3d.systems.RenderSystem;
+
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.client.render.RenderLayers;
@@ -60,6 +62,9 @@ public class EntityBlockRenderContext extends AbstractBlockRenderContext<BlockRe
 
 	private static ThreadLocal<EntityBlockRenderContext> POOL = POOL_FACTORY.get();
 
+	/** Avoids the thread local lookup for the common case. Only accessed from the render thread. */
+	private static EntityBlockRenderContext renderThreadContext;
+
 	private int light;
 	private final BlockPos.Mutable pos = new BlockPos.Mutable();
 	private float tickDelta;
@@ -72,9 +77,21 @@ public class EntityBlockRenderContext extends AbstractBlockRenderContext<BlockRe
 		LOADED.forEach(c -> c.close());
 		LOADED.clear();
 		POOL = POOL_FACTORY.get();
+		renderThreadContext = null;
 	}
 
 	public static EntityBlockRenderContext get() {
+		if (RenderSystem.isOnRenderThread()) {
+			EntityBlockRenderContext result = renderThreadContext;
+
+			if (result == null) {
+				result = POOL.get();
+				renderThreadContext = result;
+			}
+
+			return result;
+		}
+
 		return POOL.get();
 	}
 
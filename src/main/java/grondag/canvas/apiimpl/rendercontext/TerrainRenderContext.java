@@ -17,7 +17,7 @@
 package grondag.canvas.apiimpl.rendercontext;
 
 import static grondag.canvas.buffer.encoding.EncoderUtils.applyBlockLighting;
-import static grondag.canvas.buffer.encoding.EncoderUtils.bufferQuadDirect;
+import static grondag.canvas.buffer.encoding.EncoderUtils.bufferQuadDirectTranslated;
 import static grondag.canvas.buffer.encoding.EncoderUtils.colorizeQuad;
 
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
@@ -25,12 +25,15 @@ import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.crash.CrashException;
 import net.minecraft.util.crash.CrashReport;
 import net.minecraft.util.crash.CrashReportSection;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Matrix3f;
+import net.minecraft.util.math.Matrix4f;
 
+import net.fabricmc.fabric.api.renderer.v1.material.BlendMode;
 import net.fabricmc.fabric.api.renderer.v1.model.FabricBakedModel;
 import net.fabricmc.fabric.api.renderer.v1.model.ModelHelper;
 import net.fabricmc.fabric.api.renderer.v1.render.RenderContext;
@@ -41,8 +44,11 @@ import grondag.canvas.buffer.encoding.VertexCollectorList;
 import grondag.canvas.light.AoCalculator;
 import grondag.canvas.light.LightSmoother;
 import grondag.canvas.mixinterface.Matrix3fExt;
+import grondag.canvas.mixinterface.Matrix4fExt;
 import grondag.canvas.terrain.region.FastRenderRegion;
 import grondag.canvas.terrain.region.ProtoRenderRegion;
+import grondag.canvas.terrain.region.RegionSnapshot;
+import grondag.canvas.terrain.util.FoliageLod;
 import grondag.canvas.terrain.util.RenderRegionAddressHelper;
 
 /**
@@ -73,11 +79,29 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<FastRenderR
 	};
 	private int cullCompletionFlags;
 	private int cullResultFlags;
+	private final BlockPos.Mutable cullSearchPos = new BlockPos.Mutable();
+
+	/** True when building a region at {@link FoliageLod#FAR}. */
+	public boolean farFoliage = false;
+	private boolean isFarLeaves;
+
+	/** Region-relative block position plus model offsets. The model matrix is always this translation. */
+	private float offsetX;
+	private float offsetY;
+	private float offsetZ;
+
+	private LightSmoother.Helper lightSmoother;
 
 	public TerrainRenderContext() {
 		super("TerrainRenderContext");
 		region = new FastRenderRegion(this);
 		collectors = new VertexCollectorList();
+
+		matrix = new Matrix4f();
+		matrix.loadIdentity();
+		final Matrix3f normal = new Matrix3f();
+		normal.loadIdentity();
+		normalMatrix = (Matrix3fExt) (Object) normal;
 	}
 
 	public TerrainRenderContext prepareRegion(ProtoRenderRegion protoRegion) {
@@ -88,32 +112,74 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<FastRenderR
 
 		if (Configurator.lightSmoothing) {
 			//            final long start = counter.startRun();
-			LightSmoother.computeSmoothedBrightness(region);
+			smoothLight();
+		}
+
+		return this;
+	}
+
+	/**
+	 * Prepares from captured world data for replay. No world access occurs during the build.
+	 */
+	public TerrainRenderContext prepareRegion(RegionSnapshot snapshot) {
+		nonCullBlockEntities.clear();
+		addedBlockEntities.clear();
+		removedBlockEntities.clear();
+		region.prepare(snapshot);
+
+		if (Configurator.lightSmoothing) {
+			smoothLight();
 		}
 
 		return this;
 	}
 
-	public void renderFluid(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, MatrixStack matrixStack) {
+	private void smoothLight() {
+		LightSmoother.Helper help = lightSmoother;
+
+		if (help == null) {
+			help = new LightSmoother.Helper();
+			lightSmoother = help;
+		}
+
+		LightSmoother.computeSmoothedBrightness(region, help);
+	}
+
+	/**
+	 * @param x region-relative position of the block, plus any region model offset
+	 */
+	public void renderFluid(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, float x, float y, float z) {
 		isFluidModel = true;
-		rebnderInner(blockState, blockPos, defaultAo, model, matrixStack);
+		rebnderInner(blockState, blockPos, defaultAo, model, x, y, z);
 	}
 
-	public void renderBlock(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, MatrixStack matrixStack) {
+	/**
+	 * @param x region-relative position of the block, plus any region and block model offset
+	 */
+	public void renderBlock(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, float x, float y, float z) {
 		isFluidModel = false;
-		rebnderInner(blockState, blockPos, defaultAo, model, matrixStack);
+		rebnderInner(blockState, blockPos, defaultAo, model, x, y, z);
 	}
 
-	// PERF: don't pass in matrixStack each time, just change model matrix directly
-	private void rebnderInner(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, MatrixStack matrixStack) {
-		matrix = matrixStack.peek().getModel();
-
-		// PERF: can probably grab this at prepare
-		normalMatrix = (Matrix3fExt) (Object) matrixStack.peek().getNormal();
+	private void rebnderInner(BlockState blockState, BlockPos blockPos, boolean defaultAo, final FabricBakedModel model, float x, float y, float z) {
+		// models can't change the matrix, but keep it accurate for anything that reads it
+		offsetX = x;
+		offsetY = y;
+		offsetZ = z;
+		final Matrix4fExt m = (Matrix4fExt) (Object) matrix;
+		m.a03(x);
+		m.a13(y);
+		m.a23(z);
 
 		try {
 			aoCalc.prepare(RenderRegionAddressHelper.interiorIndex(blockPos));
 			prepareForBlock(blockState, blockPos, defaultAo, -1);
+			isFarLeaves = farFoliage && !isFluidModel && FoliageLod.isLeaves(blockState);
+
+			if (isFarLeaves) {
+				defaultBlendMode = BlendMode.SOLID;
+			}
+
 			cullCompletionFlags = 0;
 			cullResultFlags = 0;
 			model.emitBlockQuads(region, blockState, blockPos, randomSupplier, this);
@@ -164,7 +230,10 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<FastRenderR
 		if ((cullCompletionFlags & mask) == 0) {
 			cullCompletionFlags |= mask;
 
-			if (Block.shouldDrawSide(blockState, region, blockPos, ModelHelper.faceFromIndex(faceIndex))) {
+			final Direction face = ModelHelper.faceFromIndex(faceIndex);
+
+			if (Block.shouldDrawSide(blockState, region, blockPos, face)
+					&& !(isFarLeaves && FoliageLod.isLeaves(region.getBlockState(cullSearchPos.set(blockPos, face))))) {
 				cullResultFlags |= mask;
 				return true;
 			} else {
@@ -180,6 +249,6 @@ public class TerrainRenderContext extends AbstractBlockRenderContext<FastRenderR
 		// needs to happen before offsets are applied
 		applyBlockLighting(quad, this);
 		colorizeQuad(quad, this);
-		bufferQuadDirect(quad, this, collectors.get(quad.material()));
+		bufferQuadDirectTranslated(quad, this, collectors.get(quad.material()), offsetX, offsetY, offsetZ);
 	}
 }
@@ -71,6 +71,57 @@ public abstract class ColorHelper {
 		return (alpha << 24) | (red << 16) | (green << 8) | blue;
 	}
 
+	/** All vertices are opaque white. */
+	public static final int COLORS_WHITE = 0;
+	/** All vertices have the same color. */
+	public static final int COLORS_UNIFORM = 1;
+	public static final int COLORS_VARYING = 2;
+
+	public static int colorClass(int c0, int c1, int c2, int c3) {
+		if (c0 == c1 && c0 == c2 && c0 == c3) {
+			return c0 == -1 ? COLORS_WHITE : COLORS_UNIFORM;
+		} else {
+			return COLORS_VARYING;
+		}
+	}
+
+	/**
+	 * Applies the color index tint and red-blue swap to the four vertex colors of a quad, in place.
+	 * Most quads are untinted white and need no change. Uniform quads are converted once.
+	 *
+	 * @param index array index of the first vertex color
+	 * @param stride distance between vertex colors
+	 * @param tint ARGB tint, or -1 if none
+	 */
+	public static void colorizeQuad(int[] data, int index, int stride, int tint) {
+		final int i1 = index + stride;
+		final int i2 = i1 + stride;
+		final int i3 = i2 + stride;
+
+		switch (colorClass(data[index], data[i1], data[i2], data[i3])) {
+			case COLORS_WHITE:
+				if (tint == -1) {
+					return;
+				}
+
+				// fall through - same as uniform
+			case COLORS_UNIFORM: {
+				final int c = swapRedBlueIfNeeded(multiplyColor(tint, data[index]));
+				data[index] = c;
+				data[i1] = c;
+				data[i2] = c;
+				data[i3] = c;
+				return;
+			}
+
+			default:
+				data[index] = swapRedBlueIfNeeded(multiplyColor(tint, data[index]));
+				data[i1] = swapRedBlueIfNeeded(multiplyColor(tint, data[i1]));
+				data[i2] = swapRedBlueIfNeeded(multiplyColor(tint, data[i2]));
+				data[i3] = swapRedBlueIfNeeded(multiplyColor(tint, data[i3]));
+		}
+	}
+
 	/**
 	 * Component-wise max.
 	 */
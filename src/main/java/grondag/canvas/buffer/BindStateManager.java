@@ -18,6 +18,8 @@ package grondag.canvas.buffer;
 
 import org.lwjgl.opengl.GL21;
 
+import grondag.canvas.varia.GlBackend;
+
 public class BindStateManager {
 	private static int boundBufferId = -1;
 
@@ -26,7 +28,7 @@ public class BindStateManager {
 			return false;
 		} else {
 			boundBufferId = glBufferId;
-			GL21.glBindBuffer(GL21.GL_ARRAY_BUFFER, glBufferId);
+			GlBackend.get().bindBuffer(GL21.GL_ARRAY_BUFFER, glBufferId);
 			return true;
 		}
 	}
@@ -34,7 +36,7 @@ public class BindStateManager {
 	public static void unbind() {
 		if (boundBufferId != -1) {
 			boundBufferId = -1;
-			GL21.glBindBuffer(GL21.GL_ARRAY_BUFFER, 0);
+			GlBackend.get().bindBuffer(GL21.GL_ARRAY_BUFFER, 0);
 		}
 	}
 
@@ -16,31 +16,26 @@
 
 package grondag.canvas.buffer;
 
-import java.nio.IntBuffer;
-
 import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
-import org.lwjgl.opengl.GL21;
 
-import net.minecraft.client.util.GlAllocationUtils;
+import grondag.canvas.varia.GlBackend;
 
 /**
  * Buffer gen is incredibly slow on some Windows/NVidia systems and default MC behavior.
  */
 public class GlBufferAllocator {
 	private static final IntArrayFIFOQueue queue = new IntArrayFIFOQueue(256);
-	private static final IntBuffer buff = GlAllocationUtils.allocateByteBuffer(256 * 4).asIntBuffer();
+	private static final int[] names = new int[256];
 	private static int allocatedCount = 0;
 	private static int allocatedBytes = 0;
 
 	public static int claimBuffer(int expectedBytes) {
 		if (queue.isEmpty()) {
-			GL21.glGenBuffers(buff);
+			GlBackend.get().genBuffers(names);
 
 			for (int i = 0; i < 256; i++) {
-				queue.enqueue(buff.get(i));
+				queue.enqueue(names[i]);
 			}
-
-			buff.clear();
 		}
 
 		++allocatedCount;
@@ -49,7 +44,7 @@ public class GlBufferAllocator {
 	}
 
 	public static void releaseBuffer(int buff, int expectedBytes) {
-		GL21.glDeleteBuffers(buff);
+		GlBackend.get().deleteBuffer(buff);
 		--allocatedCount;
 		allocatedBytes -= expectedBytes;
 	}
@@ -16,30 +16,24 @@
 
 package grondag.canvas.buffer;
 
-import java.nio.IntBuffer;
-
 import com.mojang.blaze3d.systems.RenderSystem;
 import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
 
-import net.minecraft.client.util.GlAllocationUtils;
-
-import grondag.canvas.varia.CanvasGlHelper;
+import grondag.canvas.varia.GlBackend;
 
 public class VaoAllocator {
 	private static final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
-	private static final IntBuffer buff = GlAllocationUtils.allocateByteBuffer(128 * 4).asIntBuffer();
+	private static final int[] names = new int[128];
 
 	public static int claimVertexArray() {
 		assert RenderSystem.isOnRenderThread();
 
 		if (queue.isEmpty()) {
-			CanvasGlHelper.glGenVertexArrays(buff);
+			GlBackend.get().genVertexArrays(names);
 
 			for (int i = 0; i < 128; i++) {
-				queue.enqueue(buff.get(i));
+				queue.enqueue(names[i]);
 			}
-
-			buff.clear();
 		}
 
 		return queue.dequeueInt();
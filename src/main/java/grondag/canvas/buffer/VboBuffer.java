@@ -24,12 +24,11 @@ import com.mojang.blaze3d.systems.RenderSystem;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL21;
 
-import net.minecraft.client.render.VertexFormatElement;
-
 import grondag.canvas.CanvasMod;
 import grondag.canvas.Configurator;
 import grondag.canvas.buffer.format.CanvasVertexFormat;
 import grondag.canvas.varia.CanvasGlHelper;
+import grondag.canvas.varia.GlBackend;
 
 public class VboBuffer {
 	private static final int VAO_NONE = -1;
@@ -63,7 +62,7 @@ public class VboBuffer {
 		if (uploadBuffer != null) {
 			uploadBuffer.rewind();
 			BindStateManager.bind(glBufferId());
-			GL21.glBufferData(GL21.GL_ARRAY_BUFFER, uploadBuffer, GL21.GL_STATIC_DRAW);
+			GlBackend.get().bufferData(GL21.GL_ARRAY_BUFFER, uploadBuffer, GL21.GL_STATIC_DRAW);
 			BindStateManager.unbind();
 			TransferBufferAllocator.release(uploadBuffer);
 			this.uploadBuffer = null;
@@ -95,12 +94,12 @@ public class VboBuffer {
 
 		if (vaoBufferId == VAO_NONE) {
 			// Important this happens BEFORE anything that could affect vertex state
-			CanvasGlHelper.glBindVertexArray(0);
+			GlBackend.get().bindVertexArray(0);
 
 			BindStateManager.bind(glBufferId());
 
 			vaoBufferId = VaoAllocator.claimVertexArray();
-			CanvasGlHelper.glBindVertexArray(vaoBufferId);
+			GlBackend.get().bindVertexArray(vaoBufferId);
 
 			if (Configurator.logGlStateChanges) {
 				CanvasMod.LOG.info(String.format("GlState: GlStateManager.enableClientState(%d)", GL11.GL_VERTEX_ARRAY));
@@ -109,15 +108,15 @@ public class VboBuffer {
 			GlStateManager.enableClientState(GL11.GL_VERTEX_ARRAY);
 
 			if (Configurator.logGlStateChanges) {
-				CanvasMod.LOG.info(String.format("GlState: GlStateManager.vertexPointer(%d, %d, %d, %d)", 3, VertexFormatElement.Format.FLOAT.getGlId(), format.vertexStrideBytes, 0));
+				CanvasMod.LOG.info(String.format("GlState: GlStateManager.vertexPointer(%d, %d, %d, %d)", 3, GL21.GL_FLOAT, format.vertexStrideBytes, 0));
 			}
 
-			GlStateManager.vertexPointer(3, VertexFormatElement.Format.FLOAT.getGlId(), format.vertexStrideBytes, 0);
+			GlStateManager.vertexPointer(3, GL21.GL_FLOAT, format.vertexStrideBytes, 0);
 
 			CanvasGlHelper.enableAttributesVao(format.attributeCount);
 			format.bindAttributeLocations(0);
 		} else {
-			CanvasGlHelper.glBindVertexArray(vaoBufferId);
+			GlBackend.get().bindVertexArray(vaoBufferId);
 		}
 	}
 
@@ -126,11 +125,11 @@ public class VboBuffer {
 		BindStateManager.bind(glBufferId());
 
 		if (Configurator.logGlStateChanges) {
-			CanvasMod.LOG.info(String.format("GlState: GlStateManager.vertexPointer(%d, %d, %d, %d)", 3, VertexFormatElement.Format.FLOAT.getGlId(), format.vertexStrideBytes, 0));
+			CanvasMod.LOG.info(String.format("GlState: GlStateManager.vertexPointer(%d, %d, %d, %d)", 3, GL21.GL_FLOAT, format.vertexStrideBytes, 0));
 		}
 
 		GlStateManager.enableClientState(GL11.GL_VERTEX_ARRAY);
-		GlStateManager.vertexPointer(3, VertexFormatElement.Format.FLOAT.getGlId(), format.vertexStrideBytes, 0);
+		GlStateManager.vertexPointer(3, GL21.GL_FLOAT, format.vertexStrideBytes, 0);
 		format.enableAndBindAttributes(0);
 	}
 
@@ -34,11 +34,14 @@ import grondag.canvas.apiimpl.util.NormalHelper;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.material.state.RenderStateData;
 import grondag.canvas.mixinterface.SpriteExt;
+import grondag.canvas.texture.AnimatedSpriteTracker;
 
 public abstract class AbstractVertexCollector implements VertexCollector {
 	private static final int LAST_VERTEX_BASE_INDEX = MATERIAL_QUAD_STRIDE - MATERIAL_VERTEX_STRIDE;
 
 	protected RenderMaterialImpl materialState;
+	/** Receives block atlas sprites of quads written through the vertex consumer methods. */
+	protected final AnimatedSpriteTracker.Collector animatedSprites;
 
 	protected int capacity = 256;
 	protected int[] vertexData = new int[capacity];
@@ -51,7 +54,8 @@ public abstract class AbstractVertexCollector implements VertexCollector {
 	protected boolean conditionActive = true;
 	protected boolean didPopulateNormal = false;
 
-	public AbstractVertexCollector() {
+	public AbstractVertexCollector(AnimatedSpriteTracker.Collector animatedSprites) {
+		this.animatedSprites = animatedSprites;
 		collectorCount.incrementAndGet();
 		collectorBytes.addAndGet(capacity);
 	}
@@ -225,6 +229,10 @@ public abstract class AbstractVertexCollector implements VertexCollector {
 		final float vSpanInv = 1f / (sprite.getMaxV() - vMin);
 		final int stateVec = spriteId | (materialState.index << 16);
 
+		if (materialState.texture.isBlockAtlas) {
+			animatedSprites.add(spriteId);
+		}
+
 		vertexData[integerSize + MATERIAL_TEXTURE_INDEX] = Math.round((u0 - uMin) * uSpanInv * MeshEncodingHelper.UV_UNIT_VALUE) | (Math.round((v0 - vMin) * vSpanInv * MeshEncodingHelper.UV_UNIT_VALUE) << 16);
 		vertexData[integerSize + MATERIAL_TEXTURE_INDEX + MATERIAL_VERTEX_STRIDE] = Math.round((u1 - uMin) * uSpanInv * MeshEncodingHelper.UV_UNIT_VALUE) | (Math.round((v1 - vMin) * vSpanInv * MeshEncodingHelper.UV_UNIT_VALUE) << 16);
 		vertexData[integerSize + MATERIAL_TEXTURE_INDEX + MATERIAL_VERTEX_STRIDE * 2] = Math.round((u2 - uMin) * uSpanInv * MeshEncodingHelper.UV_UNIT_VALUE) | (Math.round((v2 - vMin) * vSpanInv * MeshEncodingHelper.UV_UNIT_VALUE) << 16);
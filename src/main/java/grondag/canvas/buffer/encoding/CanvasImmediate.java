@@ -35,11 +35,13 @@ import grondag.canvas.material.state.RenderContextState;
 import grondag.canvas.material.state.RenderLayerHelper;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.mixinterface.MultiPhaseExt;
+import grondag.canvas.texture.AnimatedSpriteTracker;
 import grondag.frex.api.material.FrexVertexConsumerProvider;
 import grondag.frex.api.material.RenderMaterial;
 
 public class CanvasImmediate extends Immediate implements FrexVertexConsumerProvider {
-	public final VertexCollectorList collectors = new VertexCollectorList();
+	/** Sprites are drawn as soon as they are encoded, so they count as visible right away. */
+	public final VertexCollectorList collectors = new VertexCollectorList(AnimatedSpriteTracker.BLOCKS.immediateCollector());
 	public final RenderContextState contextState;
 
 	public CanvasImmediate(BufferBuilder fallbackBuffer, Map<RenderLayer, BufferBuilder> layerBuffers, RenderContextState contextState) {
@@ -83,15 +85,6 @@ public class CanvasImmediate extends Immediate implements FrexVertexConsumerProv
 	@Override
 	public void draw() {
 		final ObjectArrayList<VertexCollectorImpl> drawList = collectors.sortedDrawList(Predicates.alwaysTrue());
-		final int limit = collectors.size();
-
-		for (int i = 0; i < limit; ++i) {
-			final VertexCollectorImpl collector = collectors.get(i);
-
-			if (!collector.isEmpty()) {
-				drawList.add(collector);
-			}
-		}
 
 		if (!drawList.isEmpty()) {
 			VertexCollectorImpl.drawAndClear(drawList);
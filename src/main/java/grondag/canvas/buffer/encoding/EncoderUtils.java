@@ -16,6 +16,10 @@
 
 package grondag.canvas.buffer.encoding;
 
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.BASE_VERTEX_STRIDE;
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.HEADER_STRIDE;
+import static grondag.canvas.apiimpl.mesh.MeshEncodingHelper.VERTEX_COLOR;
+
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.VertexConsumer;
 
@@ -28,6 +32,7 @@ import grondag.canvas.apiimpl.util.NormalHelper;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.mixinterface.Matrix3fExt;
 import grondag.canvas.mixinterface.Matrix4fExt;
+import grondag.canvas.texture.AnimatedSpriteTracker;
 import grondag.canvas.texture.SpriteInfoTexture;
 
 public abstract class EncoderUtils {
@@ -54,6 +59,9 @@ public abstract class EncoderUtils {
 
 		final boolean emissive = quad.material().emissive();
 
+		// not retained - drawn this frame
+		AnimatedSpriteTracker.BLOCKS.addVisible(quad.spriteId());
+
 		for (int i = 0; i < 4; i++) {
 			quad.transformAndAppend(i, matrix, buff);
 
@@ -86,32 +94,35 @@ public abstract class EncoderUtils {
 	 */
 	public static void colorizeQuad(MutableQuadViewImpl quad, AbstractRenderContext context) {
 		final int colorIndex = quad.colorIndex();
-
-		// PERF: don't swap red blue on white quad (most of em)
-		if (colorIndex == -1 || quad.material().disableColorIndex) {
-			quad.vertexColor(0, ColorHelper.swapRedBlueIfNeeded(quad.vertexColor(0)));
-			quad.vertexColor(1, ColorHelper.swapRedBlueIfNeeded(quad.vertexColor(1)));
-			quad.vertexColor(2, ColorHelper.swapRedBlueIfNeeded(quad.vertexColor(2)));
-			quad.vertexColor(3, ColorHelper.swapRedBlueIfNeeded(quad.vertexColor(3)));
-		} else {
-			final int indexedColor = context.indexedColor(colorIndex);
-			quad.vertexColor(0, ColorHelper.swapRedBlueIfNeeded(ColorHelper.multiplyColor(indexedColor, quad.vertexColor(0))));
-			quad.vertexColor(1, ColorHelper.swapRedBlueIfNeeded(ColorHelper.multiplyColor(indexedColor, quad.vertexColor(1))));
-			quad.vertexColor(2, ColorHelper.swapRedBlueIfNeeded(ColorHelper.multiplyColor(indexedColor, quad.vertexColor(2))));
-			quad.vertexColor(3, ColorHelper.swapRedBlueIfNeeded(ColorHelper.multiplyColor(indexedColor, quad.vertexColor(3))));
-		}
+		final int tint = colorIndex == -1 || quad.material().disableColorIndex ? -1 : context.indexedColor(colorIndex);
+		ColorHelper.colorizeQuad(quad.data(), quad.vertexStart() + VERTEX_COLOR - HEADER_STRIDE, BASE_VERTEX_STRIDE, tint);
 	}
 
 	public static void bufferQuadDirect(MutableQuadViewImpl quad, AbstractRenderContext context, VertexCollectorImpl buff) {
-		final Matrix4fExt matrix = (Matrix4fExt) (Object) context.matrix();
+		bufferQuadDirect(quad, context, buff, (Matrix4fExt) (Object) context.matrix(), 0, 0, 0);
+	}
+
+	/**
+	 * For contexts where the model matrix is known to be a translation and the normal
+	 * matrix is identity, like terrain. Positions are offset without a matrix multiply
+	 * and normals are not transformed.
+	 */
+	public static void bufferQuadDirectTranslated(MutableQuadViewImpl quad, AbstractRenderContext context, VertexCollectorImpl buff, float dx, float dy, float dz) {
+		bufferQuadDirect(quad, context, buff, null, dx, dy, dz);
+	}
+
+	/**
+	 * @param matrix null if only translated by dx, dy, dz
+	 */
+	private static void bufferQuadDirect(MutableQuadViewImpl quad, AbstractRenderContext context, VertexCollectorImpl buff, Matrix4fExt matrix, float dx, float dy, float dz) {
 		final Matrix3fExt normalMatrix = context.normalMatrix();
-		final float[] aoData = quad.ao;
 		final RenderMaterialImpl mat = quad.material();
 		final int[] appendData = context.appendData;
 
 		assert mat.blendMode != BlendMode.DEFAULT;
 
 		final int shaderFlags = mat.shaderFlags << 24;
+		final boolean translateOnly = matrix == null;
 
 		int packedNormal = 0;
 		int transformedNormal = 0;
@@ -121,9 +132,10 @@ public abstract class EncoderUtils {
 			quad.populateMissingNormals();
 		} else {
 			packedNormal = quad.packedFaceNormal();
-			transformedNormal = normalMatrix.canvas_transform(packedNormal);
+			transformedNormal = translateOnly ? identityNormal(packedNormal) : normalMatrix.canvas_transform(packedNormal);
 		}
 
+		context.collectors.animatedSprites.add(quad.spriteId());
 		int spriteIdCoord = SpriteInfoTexture.BLOCKS.coordinate(quad.spriteId());
 
 		assert spriteIdCoord <= 0xFFFF;
@@ -133,7 +145,13 @@ public abstract class EncoderUtils {
 		int k = 0;
 
 		for (int i = 0; i < 4; i++) {
-			quad.transformAndAppend(i, matrix, appendData, k);
+			if (translateOnly) {
+				quad.translateAndAppend(i, dx, dy, dz, appendData, k);
+				assert matchesMatrix(quad, i, context, appendData, k);
+			} else {
+				quad.transformAndAppend(i, matrix, appendData, k);
+			}
+
 			k += 3;
 
 			appendData[k++] = quad.vertexColor(i);
@@ -143,7 +161,7 @@ public abstract class EncoderUtils {
 			final int packedLight = quad.lightmap(i);
 			final int blockLight = (packedLight & 0xFF);
 			final int skyLight = ((packedLight >> 16) & 0xFF);
-			final int ao = aoData == null ? 255 : (Math.round(aoData[i] * 255));
+			final int ao = quad.ao(i);
 			appendData[k++] = blockLight | (skyLight << 8) | (ao << 16);
 
 			if (useNormals) {
@@ -151,7 +169,7 @@ public abstract class EncoderUtils {
 
 				if (p != packedNormal) {
 					packedNormal = p;
-					transformedNormal = normalMatrix.canvas_transform(packedNormal);
+					transformedNormal = translateOnly ? identityNormal(packedNormal) : normalMatrix.canvas_transform(packedNormal);
 				}
 			}
 
@@ -161,6 +179,22 @@ public abstract class EncoderUtils {
 		buff.add(appendData, k);
 	}
 
+	/**
+	 * Same result as transforming by an identity matrix. Packed components never exceed 254,
+	 * the only value the unpack and repack would change.
+	 */
+	private static int identityNormal(int packedNormal) {
+		assert (packedNormal & 0xFF) != 0xFF && (packedNormal & 0xFF00) != 0xFF00 && (packedNormal & 0xFF0000) != 0xFF0000;
+		return packedNormal & 0xFFFFFF;
+	}
+
+	/** Checks the translated position against the context matrix. */
+	private static boolean matchesMatrix(MutableQuadViewImpl quad, int vertexIndex, AbstractRenderContext context, int[] appendData, int k) {
+		final float[] vec = context.vecData;
+		quad.transformAndAppend(vertexIndex, (Matrix4fExt) (Object) context.matrix(), vec);
+		return vec[0] == Float.intBitsToFloat(appendData[k]) && vec[1] == Float.intBitsToFloat(appendData[k + 1]) && vec[2] == Float.intBitsToFloat(appendData[k + 2]);
+	}
+
 	public static void applyBlockLighting(MutableQuadViewImpl quad, AbstractRenderContext context) {
 		if (!quad.material().disableAo() && MinecraftClient.isAmbientOcclusionEnabled()) {
 			context.computeAo(quad);
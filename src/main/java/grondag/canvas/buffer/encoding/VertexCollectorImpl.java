@@ -21,7 +21,6 @@ import static grondag.canvas.buffer.format.CanvasVertexFormats.MATERIAL_QUAD_STR
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
-import com.mojang.blaze3d.platform.GlStateManager;
 import it.unimi.dsi.fastutil.Swapper;
 import it.unimi.dsi.fastutil.ints.IntComparator;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
@@ -33,9 +32,22 @@ import grondag.canvas.buffer.TransferBufferAllocator;
 import grondag.canvas.buffer.format.CanvasVertexFormats;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.material.state.RenderState;
+import grondag.canvas.terrain.render.FaceBuckets;
+import grondag.canvas.texture.AnimatedSpriteTracker;
+import grondag.canvas.varia.GlBackend;
 
 public class VertexCollectorImpl extends AbstractVertexCollector {
 	float[] perQuadDistance = new float[512];
+	private byte[] perQuadFace = new byte[512];
+
+	/** For geometry drawn this frame. */
+	public VertexCollectorImpl() {
+		this(AnimatedSpriteTracker.BLOCKS.immediateCollector());
+	}
+
+	public VertexCollectorImpl(AnimatedSpriteTracker.Collector animatedSprites) {
+		super(animatedSprites);
+	}
 
 	public VertexCollectorImpl prepare(RenderMaterialImpl materialState) {
 		clear();
@@ -190,10 +202,36 @@ public class VertexCollectorImpl extends AbstractVertexCollector {
 		return this;
 	}
 
+	/**
+	 * Appends all complete quads of another collector with the same material.
+	 * Used to merge output of collectors populated on different threads.
+	 */
+	public void append(VertexCollectorImpl source) {
+		assert source.materialState == materialState;
+
+		if (!source.isEmpty()) {
+			add(source.vertexData, source.integerSize);
+		}
+	}
+
 	public void toBuffer(IntBuffer intBuffer) {
 		intBuffer.put(vertexData, 0, integerSize);
 	}
 
+	/**
+	 * Writes quads grouped by facing for draw-time back-face culling.
+	 * See {@link FaceBuckets#pack(int[], int, int, IntBuffer, byte[], int, int[], float[])}.
+	 */
+	public void toBufferByFace(IntBuffer intBuffer, int vertexOffset, int[] slotStarts, float[] planes) {
+		final int quadCount = quadCount();
+
+		if (perQuadFace.length < quadCount) {
+			perQuadFace = new byte[MathHelper.smallestEncompassingPowerOfTwo(quadCount)];
+		}
+
+		FaceBuckets.pack(vertexData, integerSize, CanvasVertexFormats.MATERIAL_VERTEX_STRIDE, intBuffer, perQuadFace, vertexOffset, slotStarts, planes);
+	}
+
 	public void drawAndClear() {
 		if (!isEmpty()) {
 			drawSingle();
@@ -221,7 +259,7 @@ public class VertexCollectorImpl extends AbstractVertexCollector {
 
 		CanvasVertexFormats.POSITION_COLOR_TEXTURE_MATERIAL_LIGHT_NORMAL.enableDirect(MemoryUtil.memAddress(buffer));
 
-		GlStateManager.drawArrays(materialState.primitive, 0, vertexCount());
+		GlBackend.get().drawArrays(materialState.primitive, 0, vertexCount());
 
 		TransferBufferAllocator.release(buffer);
 
@@ -260,7 +298,7 @@ public class VertexCollectorImpl extends AbstractVertexCollector {
 			final VertexCollectorImpl collector = drawList.get(i);
 			final int vertexCount = collector.vertexCount();
 			collector.materialState.renderState.enable();
-			GlStateManager.drawArrays(collector.materialState.primitive, startIndex, vertexCount);
+			GlBackend.get().drawArrays(collector.materialState.primitive, startIndex, vertexCount);
 			startIndex += vertexCount;
 			collector.clear();
 		}
@@ -21,9 +21,11 @@ import java.util.function.Predicate;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
+import grondag.canvas.material.state.DrawPlanner;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.terrain.render.UploadableChunk;
+import grondag.canvas.texture.AnimatedSpriteTracker;
 
 /**
  * MUST ALWAYS BE USED WITHIN SAME MATERIAL CONTEXT.
@@ -32,6 +34,26 @@ public class VertexCollectorList {
 	private final ObjectArrayList<VertexCollectorImpl> pool = new ObjectArrayList<>();
 	private final VertexCollectorImpl[] collectors = new VertexCollectorImpl[RenderState.MAX_COUNT];
 	private final ObjectArrayList<VertexCollectorImpl> drawList = new ObjectArrayList<>();
+	// draw planner inputs and outputs, sized on demand
+	private long[] planGroups = new long[0];
+	private int[] planStates = new int[0];
+	private int[] planOrder = new int[0];
+	private VertexCollectorImpl[] planCopy = new VertexCollectorImpl[0];
+
+	/** Tracked animated sprites referenced by quads encoded to this list. */
+	public final AnimatedSpriteTracker.Collector animatedSprites;
+
+	/**
+	 * For lists that are built and then retained, like terrain regions.
+	 * Referenced sprites are kept in {@link #animatedSprites} until cleared.
+	 */
+	public VertexCollectorList() {
+		this(AnimatedSpriteTracker.BLOCKS.collector());
+	}
+
+	public VertexCollectorList(AnimatedSpriteTracker.Collector animatedSprites) {
+		this.animatedSprites = animatedSprites;
+	}
 
 	/**
 	 * Clears all vertex collectors.
@@ -42,6 +64,8 @@ public class VertexCollectorList {
 		for (int i = 0; i < limit; i++) {
 			pool.get(i).clear();
 		}
+
+		animatedSprites.clear();
 	}
 
 	public final VertexCollectorImpl getIfExists(RenderMaterialImpl materialState) {
@@ -63,7 +87,7 @@ public class VertexCollectorList {
 		}
 
 		if (result == null) {
-			result = new VertexCollectorImpl().prepare(materialState);
+			result = new VertexCollectorImpl(animatedSprites).prepare(materialState);
 			collectors[index] = result;
 			pool.add(result);
 		}
@@ -124,7 +148,8 @@ public class VertexCollectorList {
 	}
 
 	/**
-	 * Gives populated collectors in the order they should be drawn.
+	 * Gives populated collectors in the order they should be drawn - draw priority
+	 * order, with order-independent draws rearranged to reduce state changes.
 	 * DO NOT RETAIN A REFERENCE
 	 */
 	public ObjectArrayList<VertexCollectorImpl> sortedDrawList(Predicate<RenderMaterialImpl> predicate) {
@@ -145,11 +170,42 @@ public class VertexCollectorList {
 
 		if (!drawList.isEmpty()) {
 			drawList.sort(DRAW_SORT);
+
+			if (drawList.size() > 2) {
+				planDrawOrder(drawList);
+			}
 		}
 
 		return drawList;
 	}
 
+	private void planDrawOrder(ObjectArrayList<VertexCollectorImpl> drawList) {
+		final int count = drawList.size();
+
+		if (planOrder.length < count) {
+			final int size = Math.max(count, planOrder.length * 2);
+			planGroups = new long[size];
+			planStates = new int[size * DrawPlanner.FIELD_COUNT];
+			planOrder = new int[size];
+			planCopy = new VertexCollectorImpl[size];
+		}
+
+		for (int i = 0; i < count; ++i) {
+			final RenderMaterialImpl mat = drawList.get(i).materialState;
+			planGroups[i] = mat.drawOrderGroup;
+			mat.renderState.drawPlannerState(planStates, i);
+		}
+
+		if (DrawPlanner.plan(count, planGroups, planStates, planOrder)) {
+			final VertexCollectorImpl[] copy = planCopy;
+			drawList.getElements(0, copy, 0, count);
+
+			for (int i = 0; i < count; ++i) {
+				drawList.set(i, copy[planOrder[i]]);
+			}
+		}
+	}
+
 	private static final Comparator<VertexCollectorImpl> DRAW_SORT = (a, b) -> {
 		// note reverse argument order - higher priority wins
 		return Long.compare(b.materialState.drawPriority, a.materialState.drawPriority);
@@ -45,8 +45,6 @@ import grondag.canvas.light.AoFace.WeightFunction;
  */
 @Environment(EnvType.CLIENT)
 public abstract class AoCalculator {
-	public static final float DIVIDE_BY_255 = 1f / 255f;
-
 	//PERF: could be better - or wait for a diff Ao model
 	static final int BLEND_CACHE_DIVISION = 16;
 	static final int BLEND_CACHE_DEPTH = BLEND_CACHE_DIVISION - 1;
@@ -67,9 +65,9 @@ public abstract class AoCalculator {
 	 */
 	private final AoFaceData[] faceData = new AoFaceData[12];
 	/**
-	 * Holds per-corner weights - used locally to avoid new allocation.
+	 * Holds per-corner weights in 8.8 fixed point - used locally to avoid new allocation.
 	 */
-	private final float[] w = new float[4];
+	private final int[] w = new int[4];
 	/**
 	 * Used exclusively in irregular face to avoid new heap allocations each call.
 	 */
@@ -219,13 +217,13 @@ public abstract class AoCalculator {
 		final AoFaceCalc faceData = gatherFace(lightFace, isOnLightFace).calc;
 		final AoFace face = AoFace.get(lightFace);
 		final WeightFunction wFunc = face.weightFunc;
-		final float[] w = this.w;
-		final float[] ao = quad.ao;
+		final int[] w = this.w;
 
 		for (int i = 0; i < 4; i++) {
 			wFunc.apply(quad, i, w);
-			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), faceData.weightedCombinedLight(w)));
-			ao[i] = faceData.weigtedAo(w) * DIVIDE_BY_255;
+			final int weighted = faceData.weighted(w);
+			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), AoFaceCalc.combinedLight(weighted)));
+			quad.ao(i, AoFaceCalc.ao(weighted));
 		}
 	}
 
@@ -234,11 +232,11 @@ public abstract class AoCalculator {
 		final AoFaceCalc faceData = gatherFace(lightFace, isOnLightFace).calc;
 		final AoFace face = AoFace.get(lightFace);
 		final WeightFunction wFunc = face.weightFunc;
-		final float[] w = this.w;
+		final int[] w = this.w;
 
 		for (int i = 0; i < 4; i++) {
 			wFunc.apply(quad, i, w);
-			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), faceData.weightedCombinedLight(w)));
+			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), AoFaceCalc.combinedLight(faceData.weighted(w))));
 		}
 	}
 
@@ -250,8 +248,8 @@ public abstract class AoCalculator {
 		final Vertex2Float vFunc = face.vFunc;
 
 		for (int i = 0; i < 4; i++) {
-			quad.u[i] = uFunc.apply(quad, i);
-			quad.v[i] = vFunc.apply(quad, i);
+			quad.hdLightU(i, uFunc.apply(quad, i));
+			quad.hdLightV(i, vFunc.apply(quad, i));
 		}
 
 		quad.hdLight = LightmapHd.find(faceData);
@@ -266,8 +264,8 @@ public abstract class AoCalculator {
 		final Vertex2Float vFunc = face.vFunc;
 
 		for (int i = 0; i < 4; i++) {
-			quad.u[i] = uFunc.apply(quad, i);
-			quad.v[i] = vFunc.apply(quad, i);
+			quad.hdLightU(i, uFunc.apply(quad, i));
+			quad.hdLightV(i, vFunc.apply(quad, i));
 		}
 
 		quad.hdLight = LightmapHd.find(faceData);
@@ -288,10 +286,7 @@ public abstract class AoCalculator {
 			final AoFaceCalc result = blendCache[blendIndex];
 
 			if (checkBlendDirty(blendIndex)) {
-				final float w0 = 1 - w1;
-				result.weightedMean(
-						gatherFace(lightFace, true).calc, w0,
-						gatherFace(lightFace, false).calc, w1);
+				result.weightedMean(gatherFace(lightFace, true).calc, gatherFace(lightFace, false).calc, Math.round(w1 * 256));
 			}
 
 			return result;
@@ -303,13 +298,13 @@ public abstract class AoCalculator {
 		final AoFaceCalc faceData = blendedInsetData(quad, 0, lightFace);
 		final AoFace face = AoFace.get(lightFace);
 		final WeightFunction wFunc = face.weightFunc;
-		final float[] w = this.w;
-		final float[] ao = quad.ao;
+		final int[] w = this.w;
 
 		for (int i = 0; i < 4; i++) {
 			wFunc.apply(quad, i, w);
-			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), faceData.weightedCombinedLight(w)));
-			ao[i] = faceData.weigtedAo(w) * DIVIDE_BY_255;
+			final int weighted = faceData.weighted(w);
+			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), AoFaceCalc.combinedLight(weighted)));
+			quad.ao(i, AoFaceCalc.ao(weighted));
 		}
 	}
 
@@ -318,11 +313,11 @@ public abstract class AoCalculator {
 		final AoFaceCalc faceData = blendedInsetData(quad, 0, lightFace);
 		final AoFace face = AoFace.get(lightFace);
 		final WeightFunction wFunc = face.weightFunc;
-		final float[] w = this.w;
+		final int[] w = this.w;
 
 		for (int i = 0; i < 4; i++) {
 			wFunc.apply(quad, i, w);
-			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), faceData.weightedCombinedLight(w)));
+			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), AoFaceCalc.combinedLight(faceData.weighted(w))));
 		}
 	}
 
@@ -340,8 +335,8 @@ public abstract class AoCalculator {
 		final Vertex2Float vFunc = face.vFunc;
 
 		for (int i = 0; i < 4; i++) {
-			quad.u[i] = uFunc.apply(quad, i);
-			quad.v[i] = vFunc.apply(quad, i);
+			quad.hdLightU(i, uFunc.apply(quad, i));
+			quad.hdLightV(i, vFunc.apply(quad, i));
 		}
 
 		quad.hdLight = LightmapHd.find(faceData);
@@ -350,8 +345,7 @@ public abstract class AoCalculator {
 	private void irregularFace(MutableQuadViewImpl quad) {
 		final Vector3f faceNorm = quad.faceNormal();
 		Vector3f normal;
-		final float[] w = this.w;
-		final float[] aoResult = quad.ao;
+		final int[] w = this.w;
 
 		//TODO: currently no way to handle 3d interpolation shader-side
 		quad.hdLight = null;
@@ -359,8 +353,7 @@ public abstract class AoCalculator {
 		for (int i = 0; i < 4; i++) {
 			normal = quad.hasNormal(i) ? quad.copyNormal(i, vertexNormal) : faceNorm;
 			float ao = 0, sky = 0, block = 0;
-			int maxSky = 0, maxBlock = 0;
-			float maxAo = 0;
+			int maxAo = 0, maxSky = 0, maxBlock = 0;
 
 			final float x = normal.getX();
 
@@ -370,9 +363,10 @@ public abstract class AoCalculator {
 				final AoFaceCalc fd = blendedInsetData(quad, i, face);
 				AoFace.get(face).weightFunc.apply(quad, i, w);
 				final float n = x * x;
-				final float a = fd.weigtedAo(w);
-				final int s = fd.weigtedSkyLight(w);
-				final int b = fd.weigtedBlockLight(w);
+				final int weighted = fd.weighted(w);
+				final int a = AoFaceCalc.ao(weighted);
+				final int s = (weighted >> 8) & 0xFF;
+				final int b = weighted & 0xFF;
 				ao += n * a;
 				sky += n * s;
 				block += n * b;
@@ -388,9 +382,10 @@ public abstract class AoCalculator {
 				final AoFaceCalc fd = blendedInsetData(quad, i, face);
 				AoFace.get(face).weightFunc.apply(quad, i, w);
 				final float n = y * y;
-				final float a = fd.weigtedAo(w);
-				final int s = fd.weigtedSkyLight(w);
-				final int b = fd.weigtedBlockLight(w);
+				final int weighted = fd.weighted(w);
+				final int a = AoFaceCalc.ao(weighted);
+				final int s = (weighted >> 8) & 0xFF;
+				final int b = weighted & 0xFF;
 				ao += n * a;
 				sky += n * s;
 				block += n * b;
@@ -406,9 +401,10 @@ public abstract class AoCalculator {
 				final AoFaceCalc fd = blendedInsetData(quad, i, face);
 				AoFace.get(face).weightFunc.apply(quad, i, w);
 				final float n = z * z;
-				final float a = fd.weigtedAo(w);
-				final int s = fd.weigtedSkyLight(w);
-				final int b = fd.weigtedBlockLight(w);
+				final int weighted = fd.weighted(w);
+				final int a = AoFaceCalc.ao(weighted);
+				final int s = (weighted >> 8) & 0xFF;
+				final int b = weighted & 0xFF;
 				ao += n * a;
 				sky += n * s;
 				block += n * b;
@@ -417,7 +413,7 @@ public abstract class AoCalculator {
 				maxBlock = Math.max(b, maxBlock);
 			}
 
-			aoResult[i] = (ao + maxAo) * (0.5f * DIVIDE_BY_255);
+			quad.ao(i, Math.round((ao + maxAo) * 0.5f));
 			quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), (((int) ((sky + maxSky) * 0.5f) & 0xFF) << 16)
 					| ((int) ((block + maxBlock) * 0.5f) & 0xFF)));
 		}
@@ -42,76 +42,34 @@ enum AoFace {
 		(q, i) -> clamp(q.y(i)),
 		(q, i) -> clamp(q.z(i)),
 		(q, i) -> 1 - clamp(q.x(i)),
-		(q, i, w) -> {
-			final float u = clamp(q.z(i));
-			final float v = 1 - clamp(q.x(i));
-			w[0] = v * u;
-			w[1] = v * (1 - u);
-			w[2] = (1 - v) * (1 - u);
-			w[3] = (1 - v) * u;
-		}),
+		(q, i, w) -> AoFaceCalc.weights(clamp(q.z(i)), 1 - clamp(q.x(i)), w)),
 
 	AOF_UP(EAST, WEST, NORTH, SOUTH,
 		(q, i) -> 1 - clamp(q.y(i)),
 		(q, i) -> clamp(q.z(i)),
 		(q, i) -> clamp(q.x(i)),
-		(q, i, w) -> {
-			final float u = clamp(q.z(i));
-			final float v = clamp(q.x(i));
-			w[0] = v * u;
-			w[1] = v * (1 - u);
-			w[2] = (1 - v) * (1 - u);
-			w[3] = (1 - v) * u;
-		}),
+		(q, i, w) -> AoFaceCalc.weights(clamp(q.z(i)), clamp(q.x(i)), w)),
 
 	AOF_NORTH(UP, DOWN, EAST, WEST,
 		(q, i) -> clamp(q.z(i)),
 		(q, i) -> 1 - clamp(q.x(i)),
 		(q, i) -> clamp(q.y(i)),
-		(q, i, w) -> {
-			final float u = 1 - clamp(q.x(i));
-			final float v = clamp(q.y(i));
-			w[0] = v * u;
-			w[1] = v * (1 - u);
-			w[2] = (1 - v) * (1 - u);
-			w[3] = (1 - v) * u;
-		}),
+		(q, i, w) -> AoFaceCalc.weights(1 - clamp(q.x(i)), clamp(q.y(i)), w)),
 	AOF_SOUTH(WEST, EAST, DOWN, UP,
 		(q, i) -> 1 - clamp(q.z(i)),
 		(q, i) -> clamp(q.y(i)),
 		(q, i) -> 1 - clamp(q.x(i)),
-		(q, i, w) -> {
-			final float u = clamp(q.y(i));
-			final float v = 1 - clamp(q.x(i));
-			w[0] = u * v;
-			w[1] = (1 - u) * v;
-			w[2] = (1 - u) * (1 - v);
-			w[3] = u * (1 - v);
-		}),
+		(q, i, w) -> AoFaceCalc.weights(clamp(q.y(i)), 1 - clamp(q.x(i)), w)),
 	AOF_WEST(UP, DOWN, NORTH, SOUTH,
 		(q, i) -> clamp(q.x(i)),
 		(q, i) -> clamp(q.z(i)),
 		(q, i) -> clamp(q.y(i)),
-		(q, i, w) -> {
-			final float u = clamp(q.z(i));
-			final float v = clamp(q.y(i));
-			w[0] = v * u;
-			w[1] = v * (1 - u);
-			w[2] = (1 - v) * (1 - u);
-			w[3] = (1 - v) * u;
-		}),
+		(q, i, w) -> AoFaceCalc.weights(clamp(q.z(i)), clamp(q.y(i)), w)),
 	AOF_EAST(DOWN, UP, NORTH, SOUTH,
 		(q, i) -> 1 - clamp(q.x(i)),
 		(q, i) -> clamp(q.z(i)),
 		(q, i) -> 1 - clamp(q.y(i)),
-		(q, i, w) -> {
-			final float u = clamp(q.z(i));
-			final float v = 1 - clamp(q.y(i));
-			w[0] = v * u;
-			w[1] = v * (1 - u);
-			w[2] = (1 - v) * (1 - u);
-			w[3] = (1 - v) * u;
-		});
+		(q, i, w) -> AoFaceCalc.weights(clamp(q.z(i)), 1 - clamp(q.y(i)), w));
 
 	private static final AoFace[] values = createValues();
 	final int[] neighbors;
@@ -177,11 +135,12 @@ enum AoFace {
 	 * each face is a unit cube. Uses coordinates from axes orthogonal to face as
 	 * distance from the edge of the cube, flipping as needed. Multiplying distance
 	 * coordinate pairs together gives sub-area that are the corner weights. Weights
-	 * sum to 1 because it is a unit cube. Values are stored in the provided array.
+	 * sum to 1 because it is a unit cube. Values are stored in the provided array
+	 * as 8.8 fixed point.
 	 */
 	@FunctionalInterface
 	interface WeightFunction {
-		void apply(QuadViewImpl q, int vertexIndex, float[] out);
+		void apply(QuadViewImpl q, int vertexIndex, int[] out);
 	}
 
 	@FunctionalInterface
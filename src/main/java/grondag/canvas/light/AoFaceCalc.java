@@ -20,22 +20,45 @@ import java.util.function.IntBinaryOperator;
 
 /**
  * Handles vanilla-style calculations for ao and light blending.
+ *
+ * <p>Each corner is packed into a long with block light, sky light and ao in
+ * 16-bit lanes, low to high. Every lane holds a value from 0 to 255, so four
+ * corners scaled by 8.8 fixed-point weights that sum to 256 can be added
+ * without carrying into the next lane.
  */
 public class AoFaceCalc {
-	int aoBottomRight;
-	int aoBottomLeft;
-	int aoTopLeft;
-	int aoTopRight;
-
-	int blockBottomRight;
-	int blockBottomLeft;
-	int blockTopLeft;
-	int blockTopRight;
+	private static final long LANE_MASK = 0xFF_00FF_00FFL;
+	/** Rounds all lanes. Block and sky light are truncated in vertex blends, matching the float results. */
+	private static final long ROUND_ALL = 0x80_0080_0080L;
+	private static final long ROUND_AO = 0x80_0000_0000L;
+
+	long bottomRight;
+	long bottomLeft;
+	long topLeft;
+	long topRight;
+
+	private static long pack(int block, int sky, int ao) {
+		return block | ((long) sky << 16) | ((long) ao << 32);
+	}
 
-	int skyBottomRight;
-	int skyBottomLeft;
-	int skyTopLeft;
-	int skyTopRight;
+	/**
+	 * Bilinear corner weights in 8.8 fixed point. Corner order is (v * u), (v * (1 - u)),
+	 * ((1 - v) * (1 - u)), ((1 - v) * u). Each pair sharing a v term is derived from
+	 * the same rounded product so the weights always sum to exactly 256.
+	 *
+	 * <p>Inputs are clamped even when exterior vertices are not, because negative
+	 * weights would borrow across lanes.
+	 */
+	public static void weights(float u, float v, int[] w) {
+		final int u8 = Math.max(0, Math.min(256, Math.round(u * 256)));
+		final int v8 = Math.max(0, Math.min(256, Math.round(v * 256)));
+		final int w0 = (v8 * u8 + 128) >> 8;
+		final int w3 = ((256 - v8) * u8 + 128) >> 8;
+		w[0] = w0;
+		w[1] = v8 - w0;
+		w[2] = 256 - v8 - w3;
+		w[3] = w3;
+	}
 
 	/**
 	 * Independent minimum of packed components.
@@ -102,79 +125,45 @@ public class AoFaceCalc {
 	}
 
 	public void compute(AoFaceData input) {
-		aoTopLeft = input.aoTopLeft;
-		aoTopRight = input.aoTopRight;
-		aoBottomLeft = input.aoBottomLeft;
-		aoBottomRight = input.aoBottomRight;
-
 		int l = meanBrightness(input.right, input.bottom, input.bottomRight, input.center);
-		blockBottomRight = l & 0xFFFF;
-		skyBottomRight = (l >>> 16) & 0xFFFF;
+		bottomRight = pack(l & 0xFFFF, (l >>> 16) & 0xFFFF, input.aoBottomRight);
 
 		l = meanBrightness(input.left, input.bottom, input.bottomLeft, input.center);
-		blockBottomLeft = l & 0xFFFF;
-		skyBottomLeft = (l >>> 16) & 0xFFFF;
+		bottomLeft = pack(l & 0xFFFF, (l >>> 16) & 0xFFFF, input.aoBottomLeft);
 
 		l = meanBrightness(input.left, input.top, input.topLeft, input.center);
-		blockTopLeft = l & 0xFFFF;
-		skyTopLeft = (l >>> 16) & 0xFFFF;
+		topLeft = pack(l & 0xFFFF, (l >>> 16) & 0xFFFF, input.aoTopLeft);
 
 		l = meanBrightness(input.right, input.top, input.topRight, input.center);
-		blockTopRight = l & 0xFFFF;
-		skyTopRight = (l >>> 16) & 0xFFFF;
+		topRight = pack(l & 0xFFFF, (l >>> 16) & 0xFFFF, input.aoTopRight);
 	}
 
-	int weigtedBlockLight(float[] w) {
-		return (int) (blockBottomRight * w[0] + blockBottomLeft * w[1] + blockTopLeft * w[2] + blockTopRight * w[3]) & 0xFF;
-	}
-
-	int maxBlockLight(int oldMax) {
-		final int i = blockBottomRight > blockBottomLeft ? blockBottomRight : blockBottomLeft;
-		final int j = blockTopLeft > blockTopRight ? blockTopLeft : blockTopRight;
-		return Math.max(oldMax, i > j ? i : j);
-	}
-
-	int weigtedSkyLight(float[] w) {
-		return (int) (skyBottomRight * w[0] + skyBottomLeft * w[1] + skyTopLeft * w[2] + skyTopRight * w[3]) & 0xFF;
-	}
-
-	int maxSkyLight(int oldMax) {
-		final int i = skyBottomRight > skyBottomLeft ? skyBottomRight : skyBottomLeft;
-		final int j = skyTopLeft > skyTopRight ? skyTopLeft : skyTopRight;
-		return Math.max(oldMax, i > j ? i : j);
-	}
-
-	int weightedCombinedLight(float[] w) {
-		return weigtedSkyLight(w) << 16 | weigtedBlockLight(w);
+	/**
+	 * @param w corner weights from {@link #weights(float, float, int[])}, summing to 256
+	 * @return block light, sky light and ao as bytes, low to high - the layout used by the vertex encoder
+	 */
+	public int weighted(int[] w) {
+		final long r = bottomRight * w[0] + bottomLeft * w[1] + topLeft * w[2] + topRight * w[3] + ROUND_AO;
+		return (int) ((r >>> 8) & 0xFF) | (int) ((r >>> 16) & 0xFF00) | (int) ((r >>> 24) & 0xFF0000);
 	}
 
-	float weigtedAo(float[] w) {
-		// PERF: pass ints directly to vertex encoder
-		return (aoBottomRight * w[0] + aoBottomLeft * w[1] + aoTopLeft * w[2] + aoTopRight * w[3]);
+	/** Converts a result of {@link #weighted(int[])} to a packed lightmap value. */
+	public static int combinedLight(int weighted) {
+		return (weighted & 0xFF) | ((weighted & 0xFF00) << 8);
 	}
 
-	float maxAo(float oldMax) {
-		final int x = aoBottomRight > aoBottomLeft ? aoBottomRight : aoBottomLeft;
-		final int y = aoTopLeft > aoTopRight ? aoTopLeft : aoTopRight;
-		final int z = x > y ? x : y;
-		return oldMax > z ? oldMax : z;
+	public static int ao(int weighted) {
+		return weighted >>> 16;
 	}
 
-	// PERF: use integer weights
-	public void weightedMean(AoFaceCalc in0, float w0, AoFaceCalc in1, float w1) {
-		aoBottomRight = Math.round(in0.aoBottomRight * w0 + in1.aoBottomRight * w1);
-		aoBottomLeft = Math.round(in0.aoBottomLeft * w0 + in1.aoBottomLeft * w1);
-		aoTopLeft = Math.round(in0.aoTopLeft * w0 + in1.aoTopLeft * w1);
-		aoTopRight = Math.round(in0.aoTopRight * w0 + in1.aoTopRight * w1);
-
-		blockBottomRight = Math.round(in0.blockBottomRight * w0 + in1.blockBottomRight * w1);
-		blockBottomLeft = Math.round(in0.blockBottomLeft * w0 + in1.blockBottomLeft * w1);
-		blockTopLeft = Math.round(in0.blockTopLeft * w0 + in1.blockTopLeft * w1);
-		blockTopRight = Math.round(in0.blockTopRight * w0 + in1.blockTopRight * w1);
-
-		skyBottomRight = Math.round(in0.skyBottomRight * w0 + in1.skyBottomRight * w1);
-		skyBottomLeft = Math.round(in0.skyBottomLeft * w0 + in1.skyBottomLeft * w1);
-		skyTopLeft = Math.round(in0.skyTopLeft * w0 + in1.skyTopLeft * w1);
-		skyTopRight = Math.round(in0.skyTopRight * w0 + in1.skyTopRight * w1);
+	/**
+	 * @param w1 weight of the second input in 8.8 fixed point, 0 to 256
+	 */
+	public void weightedMean(AoFaceCalc in0, AoFaceCalc in1, int w1) {
+		final int w0 = 256 - w1;
+		bottomRight = ((in0.bottomRight * w0 + in1.bottomRight * w1 + ROUND_ALL) >>> 8) & LANE_MASK;
+		bottomLeft = ((in0.bottomLeft * w0 + in1.bottomLeft * w1 + ROUND_ALL) >>> 8) & LANE_MASK;
+		topLeft = ((in0.topLeft * w0 + in1.topLeft * w1 + ROUND_ALL) >>> 8) & LANE_MASK;
+		topRight = ((in0.topRight * w0 + in1.topRight * w1 + ROUND_ALL) >>> 8) & LANE_MASK;
 	}
 }
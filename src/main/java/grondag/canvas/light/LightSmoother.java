@@ -33,13 +33,14 @@ public class LightSmoother {
 	private static final int POS_COUNT = POS_DIAMETER * POS_DIAMETER * POS_DIAMETER;
 	private static final int Y_INC = POS_DIAMETER;
 	private static final int Z_INC = POS_DIAMETER * POS_DIAMETER;
-	private static final ThreadLocal<Helper> helpers = ThreadLocal.withInitial(Helper::new);
 	private static final int INNER_DIST = 28966; // fractional part of 0xFFFF
 	private static final int OUTER_DIST = (0xFFFF - INNER_DIST) / 2;
 	private static final int INNER_PLUS = INNER_DIST + OUTER_DIST;
 
-	public static void computeSmoothedBrightness(FastRenderRegion region) {
-		final Helper help = helpers.get();
+	/**
+	 * @param help working arrays, owned by the calling render context
+	 */
+	public static void computeSmoothedBrightness(FastRenderRegion region, Helper help) {
 		final BlockPos.Mutable smoothPos = help.smoothPos;
 		final int[] sky = help.a;
 		final int[] block = help.b;
@@ -222,7 +223,8 @@ public class LightSmoother {
 		}
 	}
 
-	private static class Helper {
+	/** Large - allocate only when smoothing is enabled. */
+	public static class Helper {
 		private final BlockPos.Mutable smoothPos = new BlockPos.Mutable();
 		private final int[] a = new int[POS_COUNT];
 		private final int[] b = new int[POS_COUNT];
@@ -31,9 +31,15 @@ public class LightmapHd {
 	static final Object2ObjectOpenHashMap<AoFaceData, LightmapHd> MAP = new Object2ObjectOpenHashMap<>(MathHelper.smallestEncompassingPowerOfTwo(LightmapSizer.maxCount), LightmapSizer.maxCount / (float) MathHelper.smallestEncompassingPowerOfTwo(LightmapSizer.maxCount));
 	private static final AtomicInteger nextIndex = new AtomicInteger();
 	private static boolean errorNoticeNeeded = true;
+
+	// scratch for map creation, which only happens while holding the MAP lock
+	private static final int[] aoLight = new int[LightmapSizer.lightmapPixels];
+	private static final int[] skyLight = new int[LightmapSizer.lightmapPixels];
+	private static final int[] blockLight = new int[LightmapSizer.lightmapPixels];
+	private static final int[] light = new int[LightmapSizer.lightmapPixels];
+
 	public final int uMinImg;
 	public final int vMinImg;
-	private final int[] light;
 
 	private LightmapHd(AoFaceData faceData) {
 		final int index = nextIndex.getAndIncrement();
@@ -41,7 +47,6 @@ public class LightmapHd {
 		final int t = index / LightmapSizer.mapsPerAxis;
 		uMinImg = s * LightmapSizer.paddedSize;
 		vMinImg = t * LightmapSizer.paddedSize;
-		light = new int[LightmapSizer.lightmapPixels];
 
 		if (index >= LightmapSizer.maxCount) {
 			if (errorNoticeNeeded) {
@@ -49,17 +54,10 @@ public class LightmapHd {
 				errorNoticeNeeded = false;
 			}
 		} else {
-			// PERF: pool these and the main array - not needed after upload
-
-			final int[] aoLight = new int[LightmapSizer.lightmapPixels];
-			final int[] skyLight = new int[LightmapSizer.lightmapPixels];
-			final int[] blockLight = new int[LightmapSizer.lightmapPixels];
-
 			// TODO: make this an option for AO debugging
 			//			Arrays.fill(skyLight, 255);
 			//			Arrays.fill(blockLight, 255);
 
-			// PERF: skips steps when all unit value or same  value
 			LightmapHdCalc.computeAo(aoLight, faceData);
 			LightmapHdCalc.computeLight(blockLight, faceData, false);
 			LightmapHdCalc.computeLight(skyLight, faceData, true);
@@ -71,7 +69,8 @@ public class LightmapHd {
 				light[i] = (sky << 24) | (ao << 16) | (block << 8) | ao;
 			}
 
-			LightmapHdTexture.instance().enque(this);
+			// pixels are copied to the image, so scratch can be reused
+			LightmapHdTexture.instance().enque(this, light);
 		}
 	}
 
@@ -108,18 +107,11 @@ public class LightmapHd {
 		return result;
 	}
 
-	/**
-	 * Handles padding.
-	 */
-	public int pixel(int u, int v) {
-		return light[v * LightmapSizer.paddedSize + u];
-	}
-
 	public int coord(MutableQuadViewImpl q, int i) {
 		final int u, v;
 
-		u = Math.round((uMinImg + 0.5f + q.u[i] * LightmapSizer.centerToCenterPixelDistance) * LightmapSizer.textureToBuffer);
-		v = Math.round((vMinImg + 0.5f + q.v[i] * LightmapSizer.centerToCenterPixelDistance) * LightmapSizer.textureToBuffer);
+		u = Math.round((uMinImg + 0.5f + q.hdLightU(i) * LightmapSizer.centerToCenterPixelDistance) * LightmapSizer.textureToBuffer);
+		v = Math.round((vMinImg + 0.5f + q.hdLightV(i) * LightmapSizer.centerToCenterPixelDistance) * LightmapSizer.textureToBuffer);
 
 		return u | (v << 16);
 	}
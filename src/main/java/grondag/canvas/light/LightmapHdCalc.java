@@ -16,152 +16,140 @@
 
 package grondag.canvas.light;
 
-import static grondag.canvas.light.LightmapHd.lightIndex;
+import java.util.Arrays;
 
-import it.unimi.dsi.fastutil.ints.Int2IntFunction;
+/**
+ * Computes the pixels of one HD lightmap channel.
+ *
+ * <p>Each quadrant of the padded map interpolates between the center, two side and
+ * one corner sample. Pixel centers fall on exact tenths of the quadrant and every
+ * sample is a multiple of 1/6 of an input value, so inputs are scaled by 6 and each
+ * row is stepped in integers with no rounding until the output.
+ *
+ * <p>Note: won't work for other than 4x4 interior, 6x6 padded.
+ */
+public final class LightmapHdCalc {
+	/** Inputs are in sixths and weights in tenths of the quadrant on each axis. */
+	private static final int DIVISOR = 6 * 10 * 10;
+	private static final int NEG = -1;
+	private static final int POS = 1;
+
+	private LightmapHdCalc() {
+	}
 
-final class LightmapHdCalc {
-	static float input(int b, boolean isSky) {
+	private static int input(int b, boolean isSky) {
 		return b == AoFaceData.OPAQUE ? AoFaceData.OPAQUE : (isSky ? (b >> 16) & 0xFF : b & 0xFF);
 	}
 
-	static void computeLight(int[] light, AoFaceData faceData, boolean isSky) {
-		// PERF: use integer math
-		final float center = input(faceData.center, isSky);
-		final float top = input(faceData.top, isSky);
-		final float bottom = input(faceData.bottom, isSky);
-		final float right = input(faceData.right, isSky);
-		final float left = input(faceData.left, isSky);
-		final float topLeft = input(faceData.topLeft, isSky);
-		final float topRight = input(faceData.topRight, isSky);
-		final float bottomRight = input(faceData.bottomRight, isSky);
-		final float bottomLeft = input(faceData.bottomLeft, isSky);
+	public static void computeLight(int[] light, AoFaceData faceData, boolean isSky) {
+		final int center = input(faceData.center, isSky);
+		final int top = input(faceData.top, isSky);
+		final int bottom = input(faceData.bottom, isSky);
+		final int right = input(faceData.right, isSky);
+		final int left = input(faceData.left, isSky);
+		final int topLeft = input(faceData.topLeft, isSky);
+		final int topRight = input(faceData.topRight, isSky);
+		final int bottomRight = input(faceData.bottomRight, isSky);
+		final int bottomLeft = input(faceData.bottomLeft, isSky);
+
+		// open on all sides with the same light, which includes most of any sunlit or dark area
+		if (center != AoFaceData.OPAQUE && center == top && center == bottom && center == right && center == left
+				&& center == topLeft && center == topRight && center == bottomRight && center == bottomLeft) {
+			Arrays.fill(light, center);
+			return;
+		}
 
-		// Note: won't work for other than 4x4 interior, 6x6 padded
-		computeQuadrant(center, left, top, topLeft, light, LightmapSizer.NEG, LightmapSizer.NEG);
-		computeQuadrant(center, right, top, topRight, light, LightmapSizer.POS, LightmapSizer.NEG);
-		computeQuadrant(center, left, bottom, bottomLeft, light, LightmapSizer.NEG, LightmapSizer.POS);
-		computeQuadrant(center, right, bottom, bottomRight, light, LightmapSizer.POS, LightmapSizer.POS);
+		computeQuadrant(center, left, top, topLeft, light, NEG, NEG);
+		computeQuadrant(center, right, top, topRight, light, POS, NEG);
+		computeQuadrant(center, left, bottom, bottomLeft, light, NEG, POS);
+		computeQuadrant(center, right, bottom, bottomRight, light, POS, POS);
 	}
 
-	private static void computeQuadrant(float center, float uSide, float vSide, float corner, int[] light, Int2IntFunction uFunc, Int2IntFunction vFunc) {
+	private static void computeQuadrant(int center, int uSide, int vSide, int corner, int[] light, int uDir, int vDir) {
 		//FIX: handle error case when center is missing
+		final int c = center * 6;
+
 		if (uSide == AoFaceData.OPAQUE) {
 			if (vSide == AoFaceData.OPAQUE) {
 				// fully enclosed
-				computeOpen(center, center - 8f, center - 8f, center - 8f, light, uFunc, vFunc);
+				fill(c, c - 48, c - 48, c - 48, false, light, uDir, vDir);
 			} else if (corner == AoFaceData.OPAQUE) {
 				// U + corner enclosing
-				uSide = center - 4f;
-				computeClamped(center, uSide, (vSide + center) * 0.5f, (uSide + vSide - 4f) * 0.5f, light, uFunc, vFunc);
+				fill(c, c - 24, 3 * (vSide + center), 3 * (center + vSide - 8), true, light, uDir, vDir);
 			} else {
 				// U side enclosing
-				final float join = (center + vSide + corner) / 3f;
-				computeClamped(center, center - 4f, (vSide + center) * 0.5f, join, light, uFunc, vFunc);
+				fill(c, c - 24, 3 * (vSide + center), 2 * (center + vSide + corner), true, light, uDir, vDir);
 			}
 		} else if (vSide == AoFaceData.OPAQUE) {
 			if (corner == AoFaceData.OPAQUE) {
 				// V + corner enclosing
-				vSide = center - 4f;
-				computeClamped(center, (uSide + center) * 0.5f, vSide, (uSide + vSide - 4f) * 0.5f, light, uFunc, vFunc);
+				fill(c, 3 * (uSide + center), c - 24, 3 * (uSide + center - 8), true, light, uDir, vDir);
 			} else {
 				// V side enclosing
-				final float join = (center + uSide + corner) / 3f;
-				computeClamped(center, (uSide + center) * 0.5f, center - 4f, join, light, uFunc, vFunc);
+				fill(c, 3 * (uSide + center), c - 24, 2 * (center + uSide + corner), true, light, uDir, vDir);
 			}
 		} else if (corner == AoFaceData.OPAQUE) {
 			// opaque corner
-			final float join = (center + uSide + vSide) / 3f;
-			computeClamped(center, (uSide + center) * 0.5f, (vSide + center) * 0.5f, join, light, uFunc, vFunc);
+			fill(c, 3 * (uSide + center), 3 * (vSide + center), 2 * (center + uSide + vSide), true, light, uDir, vDir);
 		} else {
 			// all open
-			computeOpen(center, uSide, vSide, corner, light, uFunc, vFunc);
-		}
-	}
-
-	/* interpolates center-to-center */
-	static void computeOpen(float center, float uSide, float vSide, float corner, int[] light, Int2IntFunction uFunc, Int2IntFunction vFunc) {
-		for (int u = 0; u < LightmapSizer.radius; u++) {
-			for (int v = 0; v < LightmapSizer.radius; v++) {
-				final float uLinear = 1f - LightmapSizer.centralPixelDistance - u * LightmapSizer.pixelUnitFraction;
-				final float vLinear = 1f - LightmapSizer.centralPixelDistance - v * LightmapSizer.pixelUnitFraction;
-
-				assert uLinear >= 0 && uLinear <= 1f;
-				assert vLinear >= 0 && vLinear <= 1f;
-
-				final float linear = center * (uLinear * vLinear)
-						+ corner * (1 - uLinear) * (1 - vLinear)
-						+ uSide * ((1 - uLinear) * (vLinear))
-						+ vSide * ((uLinear) * (1 - vLinear));
-
-				light[lightIndex(uFunc.applyAsInt(u), vFunc.applyAsInt(v))] = output(linear);
-			}
+			fill(c, uSide * 6, vSide * 6, corner * 6, false, light, uDir, vDir);
 		}
 	}
 
-	/* interpolates center-to-corner */
-	private static void computeClamped(float center, float uSide, float vSide, float corner, int[] light, Int2IntFunction uFunc, Int2IntFunction vFunc) {
-		for (int u = 0; u < LightmapSizer.radius; u++) {
-			for (int v = 0; v < LightmapSizer.radius; v++) {
-				final float uLinear = 1f - LightmapSizer.pixelUnitFraction - u * LightmapSizer.pixelUnitFraction * 2f;
-				final float vLinear = 1f - LightmapSizer.pixelUnitFraction - v * LightmapSizer.pixelUnitFraction * 2f;
-
-				assert uLinear >= 0 && uLinear <= 1f;
-				assert vLinear >= 0 && vLinear <= 1f;
-
-				final float linear = center * (uLinear * vLinear)
-						+ corner * (1 - uLinear) * (1 - vLinear)
-						+ uSide * ((1 - uLinear) * (vLinear))
-						+ vSide * ((uLinear) * (1 - vLinear));
-
-				light[lightIndex(uFunc.applyAsInt(u), vFunc.applyAsInt(v))] = output(linear);
+	/**
+	 * Bilinear fill of one quadrant from samples in sixths. Open quadrants interpolate
+	 * center-to-center, with pixels at 9/10, 7/10 and 5/10 of the center weight on
+	 * each axis. Clamped quadrants interpolate center-to-corner, at 8/10, 4/10 and 0.
+	 *
+	 * @param uDir NEG for left quadrants, POS for right
+	 * @param vDir NEG for top quadrants, POS for bottom
+	 */
+	private static void fill(int center, int uSide, int vSide, int corner, boolean clamped, int[] light, int uDir, int vDir) {
+		final int radius = LightmapSizer.radius;
+		final int size = LightmapSizer.paddedSize;
+		final int uStart = uDir == NEG ? radius - 1 : radius;
+		final int vStart = vDir == NEG ? radius - 1 : radius;
+
+		if (center == uSide && center == vSide && center == corner) {
+			final int value = output(center * 100);
+
+			for (int v = 0; v < radius; ++v) {
+				final int row = (vStart + v * vDir) * size + uStart;
+
+				for (int u = 0; u < radius; ++u) {
+					light[row + u * uDir] = value;
+				}
 			}
-		}
-	}
-
-	static int output(float in) {
-		int result = Math.round(in);
 
-		if (result < 0) {
-			result = 0;
-		} else if (result > 255) {
-			result = 255;
+			return;
 		}
 
-		return result;
-	}
-
-	/* interpolates center-to-corner */
-	private static void computeClampedAo(int center, int uSide, int vSide, int corner, int[] light, Int2IntFunction uFunc, Int2IntFunction vFunc) {
-		for (int u = 0; u < LightmapSizer.radius; u++) {
-			for (int v = 0; v < LightmapSizer.radius; v++) {
-				final float uLinear = 1f - LightmapSizer.pixelUnitFraction - u * LightmapSizer.pixelUnitFraction * 2f;
-				final float vLinear = 1f - LightmapSizer.pixelUnitFraction - v * LightmapSizer.pixelUnitFraction * 2f;
-
-				assert uLinear >= 0 && uLinear <= 1f;
-				assert vLinear >= 0 && vLinear <= 1f;
-
-				final float linear = center * (uLinear * vLinear)
-						+ corner * (1 - uLinear) * (1 - vLinear)
-						+ uSide * ((1 - uLinear) * (vLinear))
-						+ vSide * ((uLinear) * (1 - vLinear));
-
-				light[lightIndex(uFunc.applyAsInt(u), vFunc.applyAsInt(v))] = outputAo(Math.round(linear));
+		final int first = clamped ? 8 : 9;
+		final int step = clamped ? -4 : -2;
+		int b = first;
+
+		for (int v = 0; v < radius; ++v) {
+			// values at the center and far edges of this row, times ten
+			final int near = center * b + vSide * (10 - b);
+			final int far = uSide * b + corner * (10 - b);
+			final int delta = near - far;
+			int acc = far * 10 + first * delta;
+			final int row = (vStart + v * vDir) * size + uStart;
+
+			for (int u = 0; u < radius; ++u) {
+				light[row + u * uDir] = output(acc);
+				acc += step * delta;
 			}
-		}
-	}
-
-	static int outputAo(int in) {
-		// non-linear curve towards dark
-		//		in = (in + ((in * in) >> 8) >> 1);
 
-		if (in < 0) {
-			in = 0;
-		} else if (in > 255) {
-			in = 255;
+			b += step;
 		}
+	}
 
-		return in;
+	/** Rounds half up and clamps, from a sum scaled by {@link #DIVISOR}. */
+	private static int output(int scaled) {
+		final int result = Math.floorDiv(scaled + DIVISOR / 2, DIVISOR);
+		return result < 0 ? 0 : (result > 255 ? 255 : result);
 	}
 
 	static int aoCorner(int a, int b, int c, int d) {
@@ -190,103 +178,23 @@ final class LightmapHdCalc {
 		}
 	}
 
-	static void computeAo(int[] light, AoFaceData faceData) {
-		// final float FACTOR = 0.6f;
-		//		final float topLeft = faceData.aoTopLeft; //FACTOR * (255f - faceData.aoTopLeft);
-		//		final float topRight = faceData.aoTopRight; //FACTOR * (255f - faceData.aoTopRight);
-		//		final float bottomRight = faceData.aoBottomRight; //FACTOR * (255f - faceData.aoBottomRight);
-		//		final float bottomLeft = faceData.aoBottomLeft; //FACTOR * (255f - faceData.aoBottomLeft);
-		//
-		//		final float top = faceData.aoTop; //FACTOR * (255f - faceData.aoTop);
-		//		final float right = faceData.aoRight; //FACTOR * (255f - faceData.aoRight);
-		//		final float bottom = faceData.aoBottom; //FACTOR * (255f - faceData.aoBottom);
-		//		final float left = faceData.aoLeft; //FACTOR * (255f - faceData.aoLeft);
-		//
-		//		final float center = faceData.aoCenter;
-
+	public static void computeAo(int[] light, AoFaceData faceData) {
 		final int topLeft = aoCorner(faceData.aoTop, faceData.aoTopLeft, faceData.aoLeft, faceData.aoCenter);
 		final int topRight = aoCorner(faceData.aoTop, faceData.aoTopRight, faceData.aoRight, faceData.aoCenter);
 		final int bottomRight = aoCorner(faceData.aoBottom, faceData.aoBottomRight, faceData.aoRight, faceData.aoCenter);
 		final int bottomLeft = aoCorner(faceData.aoBottom, faceData.aoBottomLeft, faceData.aoLeft, faceData.aoCenter);
 
-		final int center = faceData.aoCenter; //(topLeft + topRight + bottomRight + bottomLeft) * 0.25f;
+		final int center = faceData.aoCenter;
 
-		final int top = ((faceData.aoTop + center + 1) >> 1); //FACTOR * (255f - faceData.aoTop);
-		final int right = ((faceData.aoRight + center + 1) >> 1); //FACTOR * (255f - faceData.aoRight);
-		final int bottom = ((faceData.aoBottom + center + 1) >> 1); //FACTOR * (255f - faceData.aoBottom);
-		final int left = ((faceData.aoLeft + center + 1) >> 1); //FACTOR * (255f - faceData.aoLeft);
+		final int top = ((faceData.aoTop + center + 1) >> 1);
+		final int right = ((faceData.aoRight + center + 1) >> 1);
+		final int bottom = ((faceData.aoBottom + center + 1) >> 1);
+		final int left = ((faceData.aoLeft + center + 1) >> 1);
 
-		computeClampedAo(center, left, top, topLeft, light, LightmapSizer.NEG, LightmapSizer.NEG);
-		computeClampedAo(center, right, top, topRight, light, LightmapSizer.POS, LightmapSizer.NEG);
-		computeClampedAo(center, left, bottom, bottomLeft, light, LightmapSizer.NEG, LightmapSizer.POS);
-		computeClampedAo(center, right, bottom, bottomRight, light, LightmapSizer.POS, LightmapSizer.POS);
-
-		//		for(int u = 0; u < LightmapSizer.paddedSize; u++) {
-		//			for(int v = 0; v < LightmapSizer.paddedSize; v++) {
-		//				final float uDist = (float)u / LightmapSizer.centerToCenterPixelDistance;
-		//				final float vDist = (float)v / LightmapSizer.centerToCenterPixelDistance;
-		//				final float uInvDist = 1 - uDist;
-		//				final float uInvSq  = uInvDist * uInvDist;
-		//
-		//				final float uSq = uDist * uDist;
-		//				final float vSq = vDist * vDist;
-		//
-		//
-		//				final float vInvDist = 1 - vDist;
-		//				final float vInvSq  = vInvDist;// * vInvDist;
-		//
-		//				float ao = 1;
-		//
-		//				//				ao -= topRight * (uSq + vInvSq);
-		//				//				ao -= bottomRight * (uSq + vSq);
-		//				//				ao -= bottomLeft * (uInvSq + vSq);
-		//				ao -= top * vInvSq;
-		//				//				ao -= bottom * vSq;
-		//				//				ao -= left * uSq;
-		//				//				ao -= right * uInvSq;
-		//
-		//				//				final float tl = (1 - uDist) * (1 - vDist) * topLeft;
-		//				//				final float tr = uDist * (1 - vDist) * topRight;
-		//				//				final float br = uDist * vDist * bottomRight;
-		//				//				final float bl = (1 - uDist) * vDist * bottomLeft;
-		//				light[lightIndex(u, v)] = outputAo(ao < 0 ? 0 : ao);
-		//			}
-		//		}
+		// interpolates center-to-corner
+		fill(center * 6, left * 6, top * 6, topLeft * 6, true, light, NEG, NEG);
+		fill(center * 6, right * 6, top * 6, topRight * 6, true, light, POS, NEG);
+		fill(center * 6, left * 6, bottom * 6, bottomLeft * 6, true, light, NEG, POS);
+		fill(center * 6, right * 6, bottom * 6, bottomRight * 6, true, light, POS, POS);
 	}
-
-	//	private static void computeQuadrantAo(float center, float uSide, float vSide, float corner, int light[], Int2IntFunction uFunc, Int2IntFunction vFunc) {
-	//		//FIX: handle error case when center is missing
-	//		if(uSide == AoFaceData.OPAQUE) {
-	//			if(vSide == AoFaceData.OPAQUE) {
-	//				// fully enclosed
-	//				computeOpen(center, center - 0.5f, center - 0.5f, center - 0.5f, light, uFunc, vFunc);
-	//			} else if (corner == AoFaceData.OPAQUE) {
-	//				// U + corner enclosing
-	//				uSide = center - 0.25f;
-	//				computeClamped(center, uSide, (vSide + center) * 0.5f, (uSide + vSide - 0.25f) * 0.5f, light, uFunc, vFunc);
-	//			} else {
-	//				// U side enclosing
-	//				final float join = (center + vSide + corner) / 3f;
-	//				computeClamped(center, center - 0.25f, (vSide + center) * 0.5f, join, light, uFunc, vFunc);
-	//			}
-	//		} else if(vSide == AoFaceData.OPAQUE) {
-	//			if(corner == AoFaceData.OPAQUE) {
-	//				// V + corner enclosing
-	//				vSide = center - 0.25f;
-	//				computeClamped(center, (uSide + center) * 0.5f, vSide, (uSide + vSide - 0.25f) * 0.5f, light, uFunc, vFunc);
-	//			} else {
-	//				// V side enclosing
-	//				final float join = (center + uSide + corner) / 3f;
-	//				computeClamped(center, (uSide + center) * 0.5f, center - 0.25f, join, light, uFunc, vFunc);
-	//			}
-	//
-	//		} else if(corner == AoFaceData.OPAQUE) {
-	//			// opaque corner
-	//			final float join = (center + uSide + vSide) / 3f;
-	//			computeClamped(center, (uSide + center) * 0.5f, (vSide + center) * 0.5f, join, light, uFunc, vFunc);
-	//		} else {
-	//			// all open
-	//			computeOpen(center, uSide, vSide, corner, light, uFunc, vFunc);
-	//		}
-	//	}
 }
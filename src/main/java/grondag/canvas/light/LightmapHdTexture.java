@@ -69,14 +69,17 @@ public class LightmapHdTexture implements AutoCloseable {
 		texture.upload();
 	}
 
-	public void enque(LightmapHd lightmap) {
+	/**
+	 * @param pixels padded lightmap pixels, row-major - copied before return
+	 */
+	public void enque(LightmapHd lightmap, int[] pixels) {
 		final SimpleImage image = this.image;
 		final int uMap = lightmap.uMinImg;
 		final int vMap = lightmap.vMinImg;
 
 		for (int u = 0; u < LightmapSizer.paddedSize; u++) {
 			for (int v = 0; v < LightmapSizer.paddedSize; v++) {
-				image.setPixelRGBA(uMap + u, vMap + v, lightmap.pixel(u, v));
+				image.setPixelRGBA(uMap + u, vMap + v, pixels[LightmapHd.lightIndex(u, v)]);
 			}
 		}
 
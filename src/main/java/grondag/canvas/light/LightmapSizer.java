@@ -16,8 +16,6 @@
 
 package grondag.canvas.light;
 
-import it.unimi.dsi.fastutil.ints.Int2IntFunction;
-
 import grondag.canvas.Configurator;
 
 public final class LightmapSizer {
@@ -37,13 +35,4 @@ public final class LightmapSizer {
 	 */
 	public static final int bufferScale = 0x8000;
 	public static final float textureToBuffer = (float) bufferScale / texSize;
-
-	/**
-	 * Converts zero-based distance from center to u/v index - use for top/left.
-	 */
-	public static final Int2IntFunction NEG = i -> radius - 1 - i;
-	/**
-	 * Converts zero-based distance from center to u/v index - use for bottom/right.
-	 */
-	public static final Int2IntFunction POS = i -> radius + i;
 }
@@ -18,8 +18,6 @@ package grondag.canvas.material.property;
 
 import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.systems.RenderSystem;
-import it.unimi.dsi.fastutil.Hash;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import org.lwjgl.opengl.GL21;
 
 import net.minecraft.client.MinecraftClient;
@@ -30,10 +28,13 @@ import net.minecraft.util.Identifier;
 
 import grondag.canvas.CanvasMod;
 import grondag.canvas.texture.SpriteInfoTexture;
+import grondag.canvas.varia.CopyOnWriteRegistry;
 
 public class MaterialTextureState {
 	public final int index;
 	public final Identifier id;
+	/** True for the block atlas, the only atlas with animated sprite tracking. */
+	public final boolean isBlockAtlas;
 
 	private AbstractTexture texture;
 	private boolean isAtlas;
@@ -42,6 +43,7 @@ public class MaterialTextureState {
 	private MaterialTextureState(int index, Identifier id) {
 		this.index = index;
 		this.id = id;
+		isBlockAtlas = id.equals(SpriteAtlasTexture.BLOCK_ATLAS_TEXTURE);
 	}
 
 	private void retreiveTexture() {
@@ -143,11 +145,9 @@ public class MaterialTextureState {
 	}
 
 	public static final int MAX_TEXTURE_STATES = 4096;
-	private static int nextIndex = 1;
-	private static final MaterialTextureState[] STATES = new MaterialTextureState[MAX_TEXTURE_STATES];
-	private static final Object2ObjectOpenHashMap<Identifier, MaterialTextureState> MAP = new Object2ObjectOpenHashMap<>(256, Hash.VERY_FAST_LOAD_FACTOR);
+	private static final CopyOnWriteRegistry<Identifier, MaterialTextureState> REGISTRY = new CopyOnWriteRegistry<>(MAX_TEXTURE_STATES);
 
-	public static final MaterialTextureState NO_TEXTURE = new MaterialTextureState(0, TextureManager.MISSING_IDENTIFIER) {
+	public static final MaterialTextureState NO_TEXTURE = REGISTRY.addUnmapped(index -> new MaterialTextureState(index, TextureManager.MISSING_IDENTIFIER) {
 		@Override
 		public void enable(boolean bilinear) {
 			if (activeState != this) {
@@ -155,7 +155,7 @@ public class MaterialTextureState {
 				activeState = this;
 			}
 		}
-	};
+	});
 
 	public static final MaterialTextureState MISSING;
 
@@ -170,49 +170,46 @@ public class MaterialTextureState {
 	}
 
 	static {
-		STATES[0] = NO_TEXTURE;
-		MAP.defaultReturnValue(NO_TEXTURE);
 		MISSING = fromId(TextureManager.MISSING_IDENTIFIER);
 	}
 
 	public static MaterialTextureState fromIndex(int index) {
-		return STATES[index];
+		return REGISTRY.fromIndex(index);
 	}
 
 	private static boolean shouldWarn = true;
 
-	// PERF: use cow or other method to avoid synch
-	public static synchronized MaterialTextureState fromId(Identifier id) {
-		MaterialTextureState state = MAP.get(id);
-
-		if (state == NO_TEXTURE) {
-			if (nextIndex >= MAX_TEXTURE_STATES) {
-				if (shouldWarn) {
-					shouldWarn = false;
-					CanvasMod.LOG.warn(String.format("Maximum unique textures (%d) exceeded when attempting to add %s.  Missing texture will be used.",
-							MAX_TEXTURE_STATES, id.toString()));
-					CanvasMod.LOG.warn("Previously encountered textures are listed below. Subsequent warnings are suppressed.");
-
-					for (final MaterialTextureState extant : STATES) {
-						CanvasMod.LOG.info(extant == null ? "Null (this is a bug)" : extant.id.toString());
-					}
-				}
-
-				return MISSING;
-			}
+	public static MaterialTextureState fromId(Identifier id) {
+		final MaterialTextureState state = REGISTRY.getOrCreate(id, MaterialTextureState::new);
 
-			final int index = nextIndex++;
-			state = new MaterialTextureState(index, id);
-			MAP.put(id, state);
-			STATES[index] = state;
+		if (state == null) {
+			warnFull(id);
+			return MISSING;
 		}
 
 		return state;
 	}
 
+	private static synchronized void warnFull(Identifier id) {
+		if (shouldWarn) {
+			shouldWarn = false;
+			CanvasMod.LOG.warn(String.format("Maximum unique textures (%d) exceeded when attempting to add %s.  Missing texture will be used.",
+					MAX_TEXTURE_STATES, id.toString()));
+			CanvasMod.LOG.warn("Previously encountered textures are listed below. Subsequent warnings are suppressed.");
+
+			final int limit = REGISTRY.size();
+
+			for (int i = 0; i < limit; ++i) {
+				CanvasMod.LOG.info(REGISTRY.fromIndex(i).id.toString());
+			}
+		}
+	}
+
 	public static void reload() {
-		MAP.values().forEach(t -> {
-			t.texture = null;
-		});
+		final int limit = REGISTRY.size();
+
+		for (int i = 0; i < limit; ++i) {
+			REGISTRY.fromIndex(i).texture = null;
+		}
 	}
 }
@@ -16,34 +16,24 @@
 
 package grondag.canvas.material.state;
 
-import it.unimi.dsi.fastutil.Hash;
-import it.unimi.dsi.fastutil.longs.Long2IntFunction;
-import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import grondag.canvas.varia.LongCopyOnWriteRegistry;
 
 public class CollectorIndexMap {
 	public static final int MAX_COLLECTOR_COUNT = 4096;
-	static int nextIndex = 0;
 
-	private static final long[] KEYS_BY_INDEX = new long[MAX_COLLECTOR_COUNT];
-	private static final RenderState[] RENDER_STATES = new RenderState[MAX_COLLECTOR_COUNT];
-	static final Long2IntOpenHashMap MAP = new Long2IntOpenHashMap(256, Hash.VERY_FAST_LOAD_FACTOR);
+	private static final LongCopyOnWriteRegistry<RenderState> REGISTRY = new LongCopyOnWriteRegistry<>(MAX_COLLECTOR_COUNT);
 
-	private static final Long2IntFunction FUNC = key -> {
-		final int result = nextIndex++;
-		RENDER_STATES[result] = RenderStateFinder.threadLocal().fromBits(key);
-		KEYS_BY_INDEX[result] = key;
-		return result;
-	};
+	private static final LongCopyOnWriteRegistry.Factory<RenderState> FACTORY = (index, key) -> RenderStateFinder.threadLocal().fromBits(key);
 
-	public static synchronized int indexFromKey(long collectorKey) {
-		return MAP.computeIfAbsent(collectorKey, FUNC);
+	public static int indexFromKey(long collectorKey) {
+		return REGISTRY.getOrCreateIndex(collectorKey, FACTORY);
 	}
 
 	public static long keyFromIndex(int index) {
-		return KEYS_BY_INDEX[index];
+		return REGISTRY.keyFromIndex(index);
 	}
 
 	public static RenderState renderStateForIndex(int index) {
-		return RENDER_STATES[index];
+		return REGISTRY.fromIndex(index);
 	}
 }
@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.material.state;
+
+/**
+ * Reorders draws that are already in draw priority order to reduce GL state changes.
+ *
+ * <p>Each draw is described by a group and a set of state fields. Consecutive draws in
+ * the same group can be drawn in any order without changing the result, and are sorted
+ * by their state fields, most expensive first, so that draws sharing a framebuffer,
+ * program or texture end up together. Draws in a negative group are never moved, and
+ * draws never move between groups.
+ *
+ * <p>The order within a group depends only on the draws in the group. Draws with equal
+ * state keep their input order. Choosing the order from the draws around a group would
+ * let coplanar geometry swap places from frame to frame and flicker.
+ *
+ * <p>Costs are rough relative weights of what {@link RenderState#enable()} does when a
+ * field changes - framebuffer and program binds dominate.
+ */
+public final class DrawPlanner {
+	public static final int TARGET = 0;
+	public static final int SHADER = 1;
+	public static final int PROGRAM_TYPE = 2;
+	public static final int TEXTURE = 3;
+	public static final int BLUR = 4;
+	public static final int TRANSPARENCY = 5;
+	public static final int DEPTH_TEST = 6;
+	public static final int WRITE_MASK = 7;
+	public static final int FOG = 8;
+	public static final int DECAL = 9;
+	public static final int CULL = 10;
+	public static final int LIGHTMAP = 11;
+	public static final int LINES = 12;
+	public static final int FIELD_COUNT = 13;
+
+	private static final int[] COST = new int[FIELD_COUNT];
+
+	static {
+		COST[TARGET] = 100;
+		COST[SHADER] = 50;
+		COST[PROGRAM_TYPE] = 10;
+		COST[TEXTURE] = 20;
+		COST[BLUR] = 5;
+		COST[TRANSPARENCY] = 5;
+		COST[DEPTH_TEST] = 5;
+		COST[WRITE_MASK] = 5;
+		COST[FOG] = 5;
+		COST[DECAL] = 5;
+		COST[CULL] = 2;
+		COST[LIGHTMAP] = 10;
+		COST[LINES] = 2;
+	}
+
+	/** Fields in sort key order, highest cost first. */
+	private static final int[] KEY_FIELDS = {TARGET, SHADER, TEXTURE, PROGRAM_TYPE, LIGHTMAP, BLUR, TRANSPARENCY, DEPTH_TEST, WRITE_MASK, FOG, DECAL, CULL, LINES};
+
+	private DrawPlanner() {
+	}
+
+	/**
+	 * @param states state fields of all draws, {@link #FIELD_COUNT} per draw
+	 * @return estimated cost of drawing b immediately after a
+	 */
+	public static int cost(int[] states, int a, int b) {
+		int result = 0;
+		int i = a * FIELD_COUNT;
+		int j = b * FIELD_COUNT;
+
+		for (int f = 0; f < FIELD_COUNT; ++f) {
+			if (states[i++] != states[j++]) {
+				result += COST[f];
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return estimated cost of drawing in the given order, not counting the first draw
+	 */
+	public static int cost(int count, int[] states, int[] order) {
+		int result = 0;
+
+		for (int i = 1; i < count; ++i) {
+			result += cost(states, order[i - 1], order[i]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param count number of draws
+	 * @param groups order group of each draw, negative if the draw must not move
+	 * @param states state fields of each draw, {@link #FIELD_COUNT} per draw
+	 * @param order receives the planned order as indexes of the inputs
+	 * @return true if the planned order differs from the input order
+	 */
+	public static boolean plan(int count, long[] groups, int[] states, int[] order) {
+		boolean changed = false;
+		int start = 0;
+
+		for (int i = 0; i < count; ++i) {
+			order[i] = i;
+		}
+
+		while (start < count) {
+			final long group = groups[start];
+			int end = start + 1;
+
+			if (group >= 0) {
+				while (end < count && groups[end] == group) {
+					++end;
+				}
+
+				if (end - start > 1 && planGroup(start, end, states, order)) {
+					changed = true;
+				}
+			}
+
+			start = end;
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Stable insertion sort by state key. Groups are rarely more than a handful of draws.
+	 */
+	private static boolean planGroup(int start, int end, int[] states, int[] order) {
+		boolean changed = false;
+
+		for (int p = start + 1; p < end; ++p) {
+			final int draw = order[p];
+			int q = p;
+
+			while (q > start && compareKeys(states, order[q - 1], draw) > 0) {
+				order[q] = order[q - 1];
+				--q;
+			}
+
+			if (q != p) {
+				order[q] = draw;
+				changed = true;
+			}
+		}
+
+		return changed;
+	}
+
+	private static int compareKeys(int[] states, int a, int b) {
+		final int i = a * FIELD_COUNT;
+		final int j = b * FIELD_COUNT;
+
+		for (final int f : KEY_FIELDS) {
+			final int result = Integer.compare(states[i + f], states[j + f]);
+
+			if (result != 0) {
+				return result;
+			}
+		}
+
+		return 0;
+	}
+}
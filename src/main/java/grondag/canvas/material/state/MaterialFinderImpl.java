@@ -16,11 +16,13 @@
 
 package grondag.canvas.material.state;
 
+import grondag.canvas.varia.LongCopyOnWriteRegistry;
 import grondag.frex.api.material.MaterialFinder;
 
 // PERF: implement proper decal layers in JMX, RenderBender and XB/XM to improve performance for multi-layer blocks
 public class MaterialFinderImpl extends AbstractStateFinder<MaterialFinderImpl, RenderMaterialImpl> implements MaterialFinder {
 	private String renderLayerName = CANVAS_MATERIAL_NAME;
+	private final LongCopyOnWriteRegistry.Factory<RenderMaterialImpl> factory = (index, bits) -> new RenderMaterialImpl(index, bits, renderLayerName);
 
 	@Override
 	public MaterialFinderImpl clear() {
@@ -34,16 +36,8 @@ public class MaterialFinderImpl extends AbstractStateFinder<MaterialFinderImpl,
 	}
 
 	@Override
-	protected synchronized RenderMaterialImpl findInner() {
-		RenderMaterialImpl result = RenderMaterialImpl.MAP.get(bits);
-
-		if (result == null) {
-			result = new RenderMaterialImpl(bits, renderLayerName);
-			RenderMaterialImpl.MAP.put(bits, result);
-			RenderMaterialImpl.VALUES[result.index] = result;
-		}
-
-		return result;
+	protected RenderMaterialImpl findInner() {
+		return RenderMaterialImpl.REGISTRY.getOrCreate(bits, factory);
 	}
 
 	@Override
@@ -16,11 +16,7 @@
 
 package grondag.canvas.material.state;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 import com.google.common.base.Strings;
-import it.unimi.dsi.fastutil.Hash;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import net.minecraft.util.Identifier;
 
@@ -33,6 +29,7 @@ import grondag.canvas.material.property.MaterialTransparency;
 import grondag.canvas.material.property.MaterialWriteMask;
 import grondag.canvas.shader.MaterialShaderId;
 import grondag.canvas.texture.MaterialInfoTexture;
+import grondag.canvas.varia.LongCopyOnWriteRegistry;
 import grondag.fermion.bits.BitPacker64;
 import grondag.frex.api.material.RenderMaterial;
 
@@ -59,21 +56,27 @@ public final class RenderMaterialImpl extends AbstractRenderState implements Ren
 	// draw things that update depth buffer first
 	private static final BitPacker64<Void>.IntElement SORT_WRITE_MASK = SORT_PACKER.createIntElement(MaterialWriteMask.WRITE_MASK_COUNT);
 
+	// draws with the same order-dependent sort elements can be reordered, if the material allows
+	private static final long SORT_ORDER_MASK = SORT_DECAL.comparisonMask() | SORT_TPP.comparisonMask() | SORT_TRANSPARENCY.comparisonMask() | SORT_WRITE_MASK.comparisonMask();
+
 	public static final int MAX_MATERIAL_COUNT = RenderState.MAX_COUNT * 4;
 
 	public final int collectorIndex;
 	public final RenderState renderState;
 	public final int shaderFlags;
 	public final long drawPriority;
+	/** Draws in the same group can be drawn in any order. Negative if order matters. See {@link DrawPlanner}. */
+	public final long drawOrderGroup;
 	/** Vanilla render layer name if we derived from a vanilla render layer. */
 	public final String renderLayerName;
 
-	RenderMaterialImpl(long bits, String renderLayerName) {
-		super(nextIndex.getAndIncrement(), bits);
+	RenderMaterialImpl(int index, long bits, String renderLayerName) {
+		super(index, bits);
 		collectorIndex = CollectorIndexMap.indexFromKey(collectorKey());
 		renderState = CollectorIndexMap.renderStateForIndex(collectorIndex);
 		shaderFlags = shaderFlags();
 		drawPriority = drawPriority();
+		drawOrderGroup = isOrderIndependent() ? drawPriority & SORT_ORDER_MASK : -1;
 		this.renderLayerName = renderLayerName;
 		MaterialInfoTexture.INSTANCE.set(index, vertexShaderIndex, fragmentShaderIndex, gui ? 1 : 0, condition.index);
 
@@ -90,18 +93,12 @@ public final class RenderMaterialImpl extends AbstractRenderState implements Ren
 		return result;
 	}
 
-	static AtomicInteger nextIndex = new AtomicInteger();
-	static final RenderMaterialImpl[] VALUES = new RenderMaterialImpl[MAX_MATERIAL_COUNT];
-	static final Long2ObjectOpenHashMap<RenderMaterialImpl> MAP = new Long2ObjectOpenHashMap<>(4096, Hash.VERY_FAST_LOAD_FACTOR);
+	static final LongCopyOnWriteRegistry<RenderMaterialImpl> REGISTRY = new LongCopyOnWriteRegistry<>(MAX_MATERIAL_COUNT);
 
-	public static final RenderMaterialImpl MISSING = new RenderMaterialImpl(0, "<canvas missing>");
-
-	static {
-		VALUES[MISSING.index] = MISSING;
-	}
+	public static final RenderMaterialImpl MISSING = REGISTRY.addUnmapped(index -> new RenderMaterialImpl(index, 0, "<canvas missing>"));
 
 	public static RenderMaterialImpl fromIndex(int index) {
-		return VALUES[index];
+		return REGISTRY.fromIndex(index);
 	}
 
 	@Override
@@ -148,6 +145,7 @@ public final class RenderMaterialImpl extends AbstractRenderState implements Ren
 		sb.append("shaderFlags: ").append(Integer.toBinaryString(shaderFlags)).append("\n");
 		sb.append("blendMode: ").append(blendMode == null ? "null" : blendMode.name()).append("\n");
 		sb.append("drawPriority: ").append(drawPriority).append("\n");
+		sb.append("drawOrderGroup: ").append(drawOrderGroup).append("\n");
 		return sb.toString();
 	}
 
@@ -178,6 +176,28 @@ public final class RenderMaterialImpl extends AbstractRenderState implements Ren
 		return result;
 	}
 
+	/**
+	 * Opaque LEQUAL draws give the same result in any order except where fragments
+	 * from different collectors have equal depth. There the later draw wins, so coplanar
+	 * ties are resolved by the state key order of {@link DrawPlanner} instead of by draw
+	 * priority - both are arbitrary with respect to the model. Overlay quads that share a
+	 * material are in the same collector and keep their emitted order. Overlays that need
+	 * to win across materials must use a decal, which is part of the group key.
+	 *
+	 * <p>Additive blends that don't write depth commute, so their order never matters.
+	 */
+	private boolean isOrderIndependent() {
+		if (sorted) {
+			return false;
+		} else if (transparency == MaterialTransparency.NONE) {
+			// EQUAL depends on depth from earlier draws, and depth test is not part of the group key
+			return depthTest == MaterialDepthTest.LEQUAL;
+		} else {
+			return writeMask == MaterialWriteMask.COLOR && (transparency == MaterialTransparency.ADDITIVE
+					|| transparency == MaterialTransparency.LIGHTNING || transparency == MaterialTransparency.GLINT);
+		}
+	}
+
 	@Override
 	public Identifier textureId() {
 		return texture.id;
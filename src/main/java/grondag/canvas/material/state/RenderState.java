@@ -17,8 +17,6 @@
 package grondag.canvas.material.state;
 
 import com.mojang.blaze3d.systems.RenderSystem;
-import it.unimi.dsi.fastutil.Hash;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.lwjgl.opengl.GL11;
 
 import net.minecraft.client.MinecraftClient;
@@ -38,6 +36,7 @@ import grondag.canvas.shader.GlProgram;
 import grondag.canvas.shader.ProgramType;
 import grondag.canvas.texture.MaterialInfoTexture;
 import grondag.canvas.texture.SpriteInfoTexture;
+import grondag.canvas.varia.LongCopyOnWriteRegistry;
 
 /**
  * Primitives with the same state have the same vertex encoding,
@@ -54,8 +53,8 @@ import grondag.canvas.texture.SpriteInfoTexture;
  * packed in glState, uniformState order for best performance.
  */
 public final class RenderState extends AbstractRenderState {
-	protected RenderState(long bits) {
-		super(nextIndex++, bits);
+	protected RenderState(int index, long bits) {
+		super(index, bits);
 	}
 
 	public void enable() {
@@ -63,6 +62,8 @@ public final class RenderState extends AbstractRenderState {
 			return;
 		}
 
+		++stateChanges;
+
 		//		if (enablePrint) {
 		//			GlStateSpy.print();
 		//		}
@@ -105,6 +106,26 @@ public final class RenderState extends AbstractRenderState {
 		shader.setAtlasInfo(texture.atlasInfo());
 	}
 
+	/**
+	 * Fills the state fields {@link DrawPlanner} uses to estimate the cost of switching states.
+	 */
+	public void drawPlannerState(int[] states, int index) {
+		index *= DrawPlanner.FIELD_COUNT;
+		states[index + DrawPlanner.TARGET] = target.index;
+		states[index + DrawPlanner.SHADER] = shader.index;
+		states[index + DrawPlanner.PROGRAM_TYPE] = programType.ordinal();
+		states[index + DrawPlanner.TEXTURE] = texture.index;
+		states[index + DrawPlanner.BLUR] = blur ? 1 : 0;
+		states[index + DrawPlanner.TRANSPARENCY] = transparency.index;
+		states[index + DrawPlanner.DEPTH_TEST] = depthTest.index;
+		states[index + DrawPlanner.WRITE_MASK] = writeMask.index;
+		states[index + DrawPlanner.FOG] = fog.index;
+		states[index + DrawPlanner.DECAL] = decal.index;
+		states[index + DrawPlanner.CULL] = cull ? 1 : 0;
+		states[index + DrawPlanner.LIGHTMAP] = enableLightmap ? 1 : 0;
+		states[index + DrawPlanner.LINES] = lines ? 1 : 0;
+	}
+
 	public void enableWithOrigin(int x, int y, int z) {
 		enable();
 		shader.setModelOrigin(x, y, z);
@@ -155,20 +176,26 @@ public final class RenderState extends AbstractRenderState {
 	}
 
 	public static final int MAX_COUNT = 4096;
-	static int nextIndex = 0;
-	static final RenderState[] STATES = new RenderState[MAX_COUNT];
-	static final Long2ObjectOpenHashMap<RenderState> MAP = new Long2ObjectOpenHashMap<>(4096, Hash.VERY_FAST_LOAD_FACTOR);
+	static final LongCopyOnWriteRegistry<RenderState> REGISTRY = new LongCopyOnWriteRegistry<>(MAX_COUNT);
 
 	private static RenderState active = null;
+	private static int stateChanges = 0;
+	private static int lastFrameStateChanges = 0;
 
-	public static final RenderState MISSING = new RenderState(0);
+	/** Call at the start of each frame. */
+	public static void beginFrame() {
+		lastFrameStateChanges = stateChanges;
+		stateChanges = 0;
+	}
 
-	static {
-		STATES[0] = MISSING;
+	public static String debugReport() {
+		return String.format("Render state changes: %d/frame", lastFrameStateChanges);
 	}
 
+	public static final RenderState MISSING = REGISTRY.addUnmapped(index -> new RenderState(index, 0));
+
 	public static RenderState fromIndex(int index) {
-		return STATES[index];
+		return REGISTRY.fromIndex(index);
 	}
 
 	//	public static boolean enablePrint = false;
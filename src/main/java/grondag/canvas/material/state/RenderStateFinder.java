@@ -18,16 +18,8 @@ package grondag.canvas.material.state;
 
 public class RenderStateFinder extends AbstractStateFinder<RenderStateFinder, RenderState> {
 	@Override
-	public synchronized RenderState findInner() {
-		RenderState result = RenderState.MAP.get(bits);
-
-		if (result == null) {
-			result = new RenderState(bits);
-			RenderState.MAP.put(bits, result);
-			RenderState.STATES[result.index] = result;
-		}
-
-		return result;
+	public RenderState findInner() {
+		return RenderState.REGISTRY.getOrCreate(bits, RenderState::new);
 	}
 
 	@Override
@@ -39,7 +39,6 @@ public abstract class MixinBlockModelRenderer {
 	 */
 	@Overwrite
 	public boolean render(BlockRenderView blockView, BakedModel model, BlockState state, BlockPos pos, MatrixStack matrix, VertexConsumer buffer, boolean checkSides, Random rand, long seed, int overlay) {
-		// PERF: try to avoid threadlocal lookup here
 		BlockRenderContext.get().render((BlockModelRenderer) (Object) this, blockView, model, state, pos, matrix, buffer, checkSides, seed, overlay);
 		return true;
 	}
@@ -30,6 +30,7 @@ import grondag.canvas.buffer.GlBufferAllocator;
 import grondag.canvas.buffer.TransferBufferAllocator;
 import grondag.canvas.buffer.encoding.VertexCollectorImpl;
 import grondag.canvas.light.LightmapHd;
+import grondag.canvas.material.state.RenderState;
 
 @Mixin(DebugHud.class)
 public class MixinDebugHud {
@@ -44,5 +45,6 @@ public class MixinDebugHud {
 		list.add(TransferBufferAllocator.debugString());
 		list.add(GlBufferAllocator.debugString());
 		list.add(VertexCollectorImpl.debugReport());
+		list.add(RenderState.debugReport());
 	}
 }
@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.Box;
+
+import grondag.canvas.mixinterface.EntityExt;
+
+@Mixin(Entity.class)
+public class MixinEntity implements EntityExt {
+	private int canvas_visibilityVersion = -1;
+	private Box canvas_visibilityBox;
+	private boolean canvas_visibilityResult;
+
+	@Override
+	public int canvas_visibilityVersion() {
+		return canvas_visibilityVersion;
+	}
+
+	@Override
+	public Box canvas_visibilityBox() {
+		return canvas_visibilityBox;
+	}
+
+	@Override
+	public boolean canvas_visibilityResult() {
+		return canvas_visibilityResult;
+	}
+
+	@Override
+	public void canvas_setVisibility(int version, Box box, boolean result) {
+		canvas_visibilityVersion = version;
+		canvas_visibilityBox = box;
+		canvas_visibilityResult = result;
+	}
+}
@@ -16,15 +16,41 @@
 
 package grondag.canvas.mixin;
 
+import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import net.minecraft.client.resource.metadata.AnimationResourceMetadata;
 import net.minecraft.client.texture.Sprite;
 
 import grondag.canvas.mixinterface.SpriteExt;
+import grondag.canvas.texture.AnimatedSpriteTracker;
 
 @Mixin(Sprite.class)
 public class MixinSprite implements SpriteExt {
+	@Shadow
+	@Final
+	private AnimationResourceMetadata animationMetadata;
+	@Shadow
+	private int frameIndex;
+	@Shadow
+	private int frameTicks;
+
 	private int canvasId;
+	private boolean canvasIsTracked;
+	private boolean canvasNeedsUpload;
+
+	@Shadow
+	private int getFrameCount() {
+		return 0;
+	}
+
+	@Shadow
+	private void upload(int frame) {
+	}
 
 	@Override
 	public int canvas_id() {
@@ -35,4 +61,43 @@ public class MixinSprite implements SpriteExt {
 	public void canvas_id(int id) {
 		canvasId = id;
 	}
+
+	@Override
+	public boolean canvas_isTracked() {
+		return canvasIsTracked;
+	}
+
+	@Override
+	public void canvas_isTracked(boolean isTracked) {
+		canvasIsTracked = isTracked;
+	}
+
+	@Inject(at = @At("HEAD"), method = "tickAnimation", cancellable = true)
+	private void beforeTickAnimation(CallbackInfo ci) {
+		if (!canvasIsTracked) {
+			return;
+		}
+
+		if (AnimatedSpriteTracker.BLOCKS.shouldAnimate(canvasId)) {
+			if (canvasNeedsUpload) {
+				// catch up with frames skipped while hidden
+				canvasNeedsUpload = false;
+				final int frame = animationMetadata.getFrameIndex(frameIndex);
+
+				if (frame >= 0 && frame < getFrameCount()) {
+					upload(frame);
+				}
+			}
+		} else {
+			// keep time as vanilla does but skip frame uploads and interpolation
+			if (++frameTicks >= animationMetadata.getFrameTime(frameIndex)) {
+				final int frameCount = animationMetadata.getFrameCount() == 0 ? getFrameCount() : animationMetadata.getFrameCount();
+				frameIndex = (frameIndex + 1) % frameCount;
+				frameTicks = 0;
+			}
+
+			canvasNeedsUpload = true;
+			ci.cancel();
+		}
+	}
 }
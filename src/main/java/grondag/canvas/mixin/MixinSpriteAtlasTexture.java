@@ -25,11 +25,15 @@ import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.model.ModelLoader;
 import net.minecraft.client.texture.Sprite;
 import net.minecraft.client.texture.SpriteAtlasTexture;
 import net.minecraft.util.Identifier;
 
+import grondag.canvas.Configurator;
 import grondag.canvas.mixinterface.SpriteExt;
+import grondag.canvas.texture.AnimatedSpriteTracker;
 import grondag.canvas.texture.SpriteInfoTexture;
 
 @Mixin(SpriteAtlasTexture.class)
@@ -50,5 +54,32 @@ public class MixinSpriteAtlasTexture {
 		}
 
 		SpriteInfoTexture.getOrCreate(id).reset(input, spriteIndex, (SpriteAtlasTexture) (Object) this);
+
+		if (id.equals(SpriteAtlasTexture.BLOCK_ATLAS_TEXTURE)) {
+			trackAnimatedSprites(spriteIndex);
+		}
+	}
+
+	private static void trackAnimatedSprites(ObjectArrayList<Sprite> spriteIndex) {
+		final AnimatedSpriteTracker tracker = AnimatedSpriteTracker.BLOCKS;
+		tracker.reset(spriteIndex.size());
+
+		for (final Sprite sprite : spriteIndex) {
+			final Identifier spriteId = sprite.getId();
+
+			// fire is also drawn on burning entities without passing through the encoder
+			if (sprite.isAnimated() && !spriteId.equals(ModelLoader.FIRE_0.getTextureId()) && !spriteId.equals(ModelLoader.FIRE_1.getTextureId())) {
+				final SpriteExt ext = (SpriteExt) sprite;
+				tracker.setTracked(ext.canvas_id());
+				ext.canvas_isTracked(true);
+			}
+		}
+	}
+
+	@Inject(at = @At("HEAD"), method = "tickAnimatedSprites")
+	private void beforeTickAnimatedSprites(CallbackInfo info) {
+		if (id.equals(SpriteAtlasTexture.BLOCK_ATLAS_TEXTURE)) {
+			AnimatedSpriteTracker.BLOCKS.beginTick(Configurator.skipHiddenAnimation && MinecraftClient.getInstance().world != null);
+		}
 	}
 }
@@ -0,0 +1,31 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.mixinterface;
+
+import net.minecraft.util.math.Box;
+
+public interface EntityExt {
+	/** Entity visibility version in effect when visibility was last tested. */
+	int canvas_visibilityVersion();
+
+	/** Visibility bounding box instance used for the last visibility test. */
+	Box canvas_visibilityBox();
+
+	boolean canvas_visibilityResult();
+
+	void canvas_setVisibility(int version, Box box, boolean result);
+}
@@ -20,4 +20,9 @@ public interface SpriteExt {
 	int canvas_id();
 
 	void canvas_id(int id);
+
+	/** True if animation may be skipped while the sprite is not seen. */
+	boolean canvas_isTracked();
+
+	void canvas_isTracked(boolean isTracked);
 }
@@ -17,9 +17,18 @@
 package grondag.canvas.render;
 
 import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.google.common.util.concurrent.Runnables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import org.lwjgl.opengl.GL11;
 
 import net.minecraft.client.particle.Particle;
@@ -33,21 +42,34 @@ import net.minecraft.client.render.VertexConsumer;
 import net.minecraft.client.render.VertexConsumerProvider;
 import net.minecraft.client.texture.SpriteAtlasTexture;
 import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.particle.ParticleType;
 import net.minecraft.util.crash.CrashException;
 import net.minecraft.util.crash.CrashReport;
 import net.minecraft.util.crash.CrashReportSection;
 
+import grondag.canvas.Configurator;
 import grondag.canvas.buffer.encoding.VertexCollectorImpl;
 import grondag.canvas.material.state.MaterialFinderImpl;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.mixinterface.ParticleExt;
 import grondag.canvas.mixinterface.ParticleManagerExt;
+import grondag.canvas.texture.AnimatedSpriteTracker;
 import grondag.frex.api.material.MaterialFinder;
 import grondag.frex.api.material.MaterialMap;
 import grondag.frex.api.material.RenderMaterial;
 
 public class CanvasParticleRenderer {
+	/** Sheets with fewer particles than this are always built on the render thread. */
+	private static final int MIN_PARALLEL_BATCH = 512;
+	private static final int WORKER_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	private static ExecutorService executor;
+
 	private final VertexCollectorImpl collector = new VertexCollectorImpl();
+	/** Worker zero is the render thread and writes directly to the main collector. */
+	private final ParticleWorker[] workers = new ParticleWorker[WORKER_COUNT + 1];
+	private final Future<?>[] futures = new Future[WORKER_COUNT + 1];
+	private final ObjectArrayList<Particle> particleList = new ObjectArrayList<>();
 
 	private Tessellator tessellator;
 	private BufferBuilder bufferBuilder;
@@ -58,6 +80,16 @@ public class CanvasParticleRenderer {
 	private RenderMaterialImpl emissiveMat;
 	public final ParticleFrustum frustum = new ParticleFrustum();
 
+	public CanvasParticleRenderer() {
+		workers[0] = new ParticleWorker(collector, null);
+
+		for (int i = 1; i <= WORKER_COUNT; ++i) {
+			// sprites are reported from the render thread after the worker finishes
+			final AnimatedSpriteTracker.Collector sprites = AnimatedSpriteTracker.BLOCKS.collector();
+			workers[i] = new ParticleWorker(new VertexCollectorImpl(sprites), sprites);
+		}
+	}
+
 	public void renderParticles(ParticleManager pm, MatrixStack matrixStack, VertexConsumerProvider.Immediate immediate, LightmapTextureManager lightmapTextureManager, Camera camera, float tickDelta) {
 		RenderSystem.pushMatrix();
 		RenderSystem.multMatrix(matrixStack.peek().getModel());
@@ -66,43 +98,34 @@ public class CanvasParticleRenderer {
 		tessellator = Tessellator.getInstance();
 		bufferBuilder = tessellator.getBuffer();
 		ext = (ParticleManagerExt) pm;
+
+		for (final ParticleWorker w : workers) {
+			w.materials.clear();
+		}
+
 		final Iterator<ParticleTextureSheet> sheets = ext.canvas_textureSheets().iterator();
 
 		while (sheets.hasNext()) {
 			final ParticleTextureSheet particleTextureSheet = sheets.next();
-			final Iterable<Particle> iterable = ext.canvas_particles().get(particleTextureSheet);
+			final Queue<Particle> queue = ext.canvas_particles().get(particleTextureSheet);
 
-			if (iterable == null) {
+			if (queue == null) {
 				continue;
 			}
 
-			final Iterator<Particle> particles = iterable.iterator();
+			final Iterator<Particle> particles = queue.iterator();
 
 			if (!particles.hasNext()) continue;
 
 			final VertexConsumer consumer = beginSheet(particleTextureSheet);
 
-			while (particles.hasNext()) {
-				final Particle particle = particles.next();
-
-				if (!frustum.isVisible(particle.getBoundingBox())) {
-					continue;
-				}
+			if (baseMat != null && Configurator.parallelParticles && queue.size() >= MIN_PARALLEL_BATCH * 2) {
+				buildParallel(particles, particleTextureSheet, camera, tickDelta);
+			} else {
+				final ParticleWorker worker = workers[0];
 
-				try {
-					if (baseMat != null) {
-						// FEAT: enhanced material maps for particles - shaders for animation in particular
-						final RenderMaterial mat = (RenderMaterial) MaterialMap.getForParticle(((ParticleExt) particle).canvas_particleType()).getMapped(null);
-						collector.vertexState(mat == null || !mat.emissive() ? baseMat : emissiveMat);
-					}
-
-					particle.buildGeometry(consumer, camera, tickDelta);
-				} catch (final Throwable exception) {
-					final CrashReport crashReport = CrashReport.create(exception, "Rendering Particle");
-					final CrashReportSection crashReportSection = crashReport.addElement("Particle being rendered");
-					crashReportSection.add("Particle", particle::toString);
-					crashReportSection.add("Particle Type", particleTextureSheet::toString);
-					throw new CrashException(crashReport);
+				while (particles.hasNext()) {
+					worker.buildParticle(particles.next(), consumer, particleTextureSheet, camera, tickDelta, baseMat, emissiveMat);
 				}
 			}
 
@@ -113,6 +136,159 @@ public class CanvasParticleRenderer {
 		teardownVanillParticleRender();
 	}
 
+	/**
+	 * Splits the sheet into batches built concurrently, each into its own collector.
+	 * The render thread builds the first batch and the remaining collectors are
+	 * appended to the main collector so the sheet is still drawn with a single call.
+	 */
+	private void buildParallel(Iterator<Particle> particles, ParticleTextureSheet sheet, Camera camera, float tickDelta) {
+		final ObjectArrayList<Particle> list = particleList;
+
+		while (particles.hasNext()) {
+			list.add(particles.next());
+		}
+
+		final int size = list.size();
+		final int batchCount = Math.min(WORKER_COUNT + 1, size / MIN_PARALLEL_BATCH);
+		final int batchSize = (size + batchCount - 1) / batchCount;
+		final RenderMaterialImpl baseMat = this.baseMat;
+		final RenderMaterialImpl emissiveMat = this.emissiveMat;
+		final ExecutorService executor = executor();
+
+		RuntimeException failure = null;
+
+		try {
+			try {
+				for (int i = 1; i < batchCount; ++i) {
+					final ParticleWorker worker = workers[i];
+					final int start = i * batchSize;
+					final int end = Math.min(size, start + batchSize);
+					worker.collector.prepare(baseMat);
+					futures[i] = executor.submit(() -> worker.build(list, start, end, sheet, camera, tickDelta, baseMat, emissiveMat));
+				}
+
+				workers[0].build(list, 0, Math.min(size, batchSize), sheet, camera, tickDelta, baseMat, emissiveMat);
+			} finally {
+				// workers read the list and write their collectors until they finish
+				failure = awaitWorkers(batchCount);
+			}
+
+			if (failure != null) {
+				throw failure;
+			}
+
+			for (int i = 1; i < batchCount; ++i) {
+				collector.append(workers[i].collector);
+				workers[i].sprites.markVisible();
+			}
+		} finally {
+			for (int i = 1; i < batchCount; ++i) {
+				workers[i].collector.clear();
+				workers[i].sprites.clear();
+			}
+
+			list.clear();
+		}
+	}
+
+	/**
+	 * Waits for every submitted worker, even if interrupted or another worker failed.
+	 *
+	 * @return the first worker failure, or null if all completed normally
+	 */
+	private RuntimeException awaitWorkers(int batchCount) {
+		RuntimeException failure = null;
+
+		for (int i = 1; i < batchCount; ++i) {
+			final Future<?> future = futures[i];
+
+			if (future == null) {
+				continue;
+			}
+
+			futures[i] = null;
+
+			try {
+				Uninterruptibles.getUninterruptibly(future);
+			} catch (final ExecutionException e) {
+				if (failure == null) {
+					final Throwable cause = e.getCause();
+					failure = cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+				}
+			}
+		}
+
+		return failure;
+	}
+
+	private static ExecutorService executor() {
+		ExecutorService result = executor;
+
+		if (result == null) {
+			result = Executors.newFixedThreadPool(WORKER_COUNT, new ThreadFactoryBuilder()
+					.setNameFormat("Canvas Particle Worker - %d")
+					.setDaemon(true)
+					.build());
+
+			executor = result;
+		}
+
+		return result;
+	}
+
+	private class ParticleWorker {
+		private final VertexCollectorImpl collector;
+		/** Block atlas sprites drawn by this worker. Null for the render thread, which reports them directly. */
+		private final AnimatedSpriteTracker.Collector sprites;
+
+		/** Memoized per frame - material maps can change with resource reloads. */
+		private final Reference2ObjectOpenHashMap<ParticleType<?>, RenderMaterial> materials = new Reference2ObjectOpenHashMap<>();
+
+		private ParticleWorker(VertexCollectorImpl collector, AnimatedSpriteTracker.Collector sprites) {
+			this.collector = collector;
+			this.sprites = sprites;
+		}
+
+		private void build(ObjectArrayList<Particle> list, int start, int end, ParticleTextureSheet sheet, Camera camera, float tickDelta, RenderMaterialImpl baseMat, RenderMaterialImpl emissiveMat) {
+			for (int i = start; i < end; ++i) {
+				buildParticle(list.get(i), collector, sheet, camera, tickDelta, baseMat, emissiveMat);
+			}
+		}
+
+		private void buildParticle(Particle particle, VertexConsumer consumer, ParticleTextureSheet sheet, Camera camera, float tickDelta, RenderMaterialImpl baseMat, RenderMaterialImpl emissiveMat) {
+			if (!frustum.isVisible(particle.getBoundingBox())) {
+				return;
+			}
+
+			try {
+				if (baseMat != null) {
+					final RenderMaterial mat = material(((ParticleExt) particle).canvas_particleType());
+					collector.vertexState(mat == null || !mat.emissive() ? baseMat : emissiveMat);
+				}
+
+				particle.buildGeometry(consumer, camera, tickDelta);
+			} catch (final Throwable exception) {
+				final CrashReport crashReport = CrashReport.create(exception, "Rendering Particle");
+				final CrashReportSection crashReportSection = crashReport.addElement("Particle being rendered");
+				crashReportSection.add("Particle", particle::toString);
+				crashReportSection.add("Particle Type", sheet::toString);
+				throw new CrashException(crashReport);
+			}
+		}
+
+		private RenderMaterial material(ParticleType<?> type) {
+			RenderMaterial result = materials.get(type);
+
+			if (result == null && !materials.containsKey(type)) {
+				// FEAT: enhanced material maps for particles - shaders for animation in particular
+				result = (RenderMaterial) MaterialMap.getForParticle(type).getMapped(null);
+				materials.put(type, result);
+			}
+
+			return result;
+		}
+	}
+
 	private void setupVanillaParticleRender() {
 		lightmapTextureManager.enable();
 		RenderSystem.enableAlphaTest();
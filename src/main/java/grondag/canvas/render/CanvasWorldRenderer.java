@@ -33,6 +33,7 @@ import org.lwjgl.opengl.GL21;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.StructureBlockBlockEntity;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gl.Framebuffer;
 import net.minecraft.client.gl.ShaderEffect;
@@ -91,19 +92,25 @@ import grondag.canvas.material.property.MaterialTarget;
 import grondag.canvas.material.state.RenderContextState;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.mixinterface.BufferBuilderStorageExt;
+import grondag.canvas.mixinterface.EntityExt;
 import grondag.canvas.mixinterface.MatrixStackExt;
 import grondag.canvas.mixinterface.WorldRendererExt;
 import grondag.canvas.shader.MaterialShaderManager;
+import grondag.canvas.terrain.occlusion.EntityOcclusionTester;
 import grondag.canvas.terrain.occlusion.PotentiallyVisibleRegionSorter;
 import grondag.canvas.terrain.occlusion.TerrainIterator;
 import grondag.canvas.terrain.occlusion.TerrainOccluder;
 import grondag.canvas.terrain.occlusion.geometry.OcclusionRegion;
 import grondag.canvas.terrain.occlusion.geometry.PackedBox;
 import grondag.canvas.terrain.region.BuiltRenderRegion;
+import grondag.canvas.terrain.region.RegionData;
+import grondag.canvas.terrain.region.RegionReplay;
 import grondag.canvas.terrain.region.RenderRegionBuilder;
 import grondag.canvas.terrain.region.RenderRegionPruner;
 import grondag.canvas.terrain.region.RenderRegionStorage;
+import grondag.canvas.terrain.region.TranslucentSortScheduler;
 import grondag.canvas.terrain.render.TerrainLayerRenderer;
+import grondag.canvas.texture.AnimatedSpriteTracker;
 import grondag.canvas.texture.DitherTexture;
 import grondag.canvas.varia.CanvasGlHelper;
 import grondag.canvas.varia.WorldDataManager;
@@ -121,7 +128,8 @@ public class CanvasWorldRenderer extends WorldRenderer {
 	private final TerrainOccluder terrainOccluder = new TerrainOccluder();
 	private final RenderRegionPruner pruner = new RenderRegionPruner(terrainOccluder, distanceSorter);
 	private final RenderRegionStorage renderRegionStorage = new RenderRegionStorage(this, pruner);
-	private final TerrainIterator terrainIterator = new TerrainIterator(renderRegionStorage, terrainOccluder, distanceSorter);
+	private final EntityOcclusionTester entityOcclusion = new EntityOcclusionTester();
+	private final TerrainIterator terrainIterator = new TerrainIterator(renderRegionStorage, terrainOccluder, distanceSorter, entityOcclusion);
 	public final TerrainFrustum terrainFrustum = new TerrainFrustum();
 
 	/**
@@ -134,7 +142,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 	private boolean terrainSetupOffThread = Configurator.terrainSetupOffThread;
 	private int playerLightmap = 0;
 	private RenderRegionBuilder regionBuilder;
-	private int translucentSortPositionVersion;
+	private final TranslucentSortScheduler translucentSortScheduler = new TranslucentSortScheduler();
 	private ClientWorld world;
 	// both of these are measured in chunks, not blocks
 	private int squaredChunkRenderDistance;
@@ -143,6 +151,17 @@ public class CanvasWorldRenderer extends WorldRenderer {
 	private int lastRegionDataVersion = -1;
 	private int lastViewVersion = -1;
 	private int visibleRegionCount = 0;
+	/** Incremented each time a new visible region list is published. */
+	private int visibleRegionsVersion = 0;
+
+	/**
+	 * Advances when frustum, occluder or visible region state changes.
+	 * Entity visibility results are reused until this changes or the entity moves.
+	 */
+	private int entityVisibilityVersion = 0;
+	private int entityViewVersion = -1;
+	private int entityOccluderVersion = -1;
+	private int entityVisibleRegionsVersion = -1;
 	final TerrainLayerRenderer TRANSLUCENT = new TerrainLayerRenderer("translucemt", this::sortTranslucentTerrain);
 
 	private final RenderContextState contextState = new RenderContextState();
@@ -165,10 +184,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 	// PERF: render larger cubes - avoid matrix state changes
 	// PERF: cull particle rendering?
 	// PERF: reduce garbage generation
-	// PERF: lod culling: don't render grass, cobwebs, flowers, etc. at longer ranges
-	// PERF: render leaves as solid at distance - omit interior faces
 	// PERF: get VAO working again
-	// PERF: consider trying backface culling again but at draw time w/ glMultiDrawArrays
 
 	public static int playerLightmap() {
 		return instance == null ? 0 : instance.playerLightmap;
@@ -228,7 +244,9 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		DitherTexture.instance().initializeIfNeeded();
 		world = clientWorld;
 		visibleRegionCount = 0;
+		++visibleRegionsVersion;
 		terrainIterator.reset();
+		entityOcclusion.clear();
 		renderRegionStorage.clear();
 		Arrays.fill(visibleRegions, null);
 		Arrays.fill(terrainIterator.visibleRegions, null);
@@ -293,8 +311,10 @@ public class CanvasWorldRenderer extends WorldRenderer {
 				final BuiltRenderRegion[] visibleRegions = this.visibleRegions;
 				final int size = terrainIterator.visibleRegionCount;
 				visibleRegionCount = size;
+				++visibleRegionsVersion;
 				System.arraycopy(terrainIterator.visibleRegions, 0, visibleRegions, 0, size);
 				assert size == 0 || visibleRegions[0] != null;
+				entityOcclusion.publish();
 				scheduleOrBuild(terrainIterator.updateRegions);
 				terrainIterator.reset();
 				state = TerrainIterator.IDLE;
@@ -320,7 +340,9 @@ public class CanvasWorldRenderer extends WorldRenderer {
 				final int size = terrainIterator.visibleRegionCount;
 				lastViewVersion = terrainFrustum.viewVersion();
 				visibleRegionCount = size;
+				++visibleRegionsVersion;
 				System.arraycopy(terrainIterator.visibleRegions, 0, visibleRegions, 0, size);
+				entityOcclusion.publish();
 				scheduleOrBuild(terrainIterator.updateRegions);
 				terrainIterator.reset();
 			}
@@ -490,6 +512,8 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		Configurator.lagFinder.swap("WorldRenderer-EntityRender");
 
 		profiler.swap("entities");
+		updateEntityVisibilityVersion();
+		entityOcclusion.beginFrame();
 		WorldRenderEvents.BEFORE_ENTITIES.invoker().beforeEntities(eventContext);
 		profiler.push("prepare");
 		int entityCount = 0;
@@ -569,17 +593,26 @@ public class CanvasWorldRenderer extends WorldRenderer {
 
 		final int visibleRegionCount = this.visibleRegionCount;
 		final Set<BlockEntity> noCullingBlockEntities = wr.canvas_noCullingBlockEntities();
+		final boolean occludeBlockEntities = Configurator.cullEntityRender && Configurator.entityOcclusionCulling;
+		final EntityOcclusionTester entityOcclusion = this.entityOcclusion;
 
 		for (int regionIndex = 0; regionIndex < visibleRegionCount; ++regionIndex) {
 			assert visibleRegions[regionIndex] != null;
 
-			final List<BlockEntity> list = visibleRegions[regionIndex].getBuildData().getBlockEntities();
+			final RegionData regionData = visibleRegions[regionIndex].getBuildData();
+			AnimatedSpriteTracker.BLOCKS.addVisible(regionData.getAnimatedSprites());
+			final List<BlockEntity> list = regionData.getBlockEntities();
 
 			final Iterator<BlockEntity> itBER = list.iterator();
 
 			while (itBER.hasNext()) {
 				final BlockEntity blockEntity = itBER.next();
 				final BlockPos blockPos = blockEntity.getPos();
+
+				if (occludeBlockEntities && !entityOcclusion.isVisible(blockEntity, blockPos.getX(), blockPos.getY(), blockPos.getZ(), blockPos.getX() + 1, blockPos.getY() + 1, blockPos.getZ() + 1)) {
+					continue;
+				}
+
 				VertexConsumerProvider outputConsumer = immediate;
 				contextState.setCurrentBlockEntity(blockEntity);
 
@@ -614,6 +647,14 @@ public class CanvasWorldRenderer extends WorldRenderer {
 			while (globalBERs.hasNext()) {
 				final BlockEntity blockEntity2 = globalBERs.next();
 				final BlockPos blockPos2 = blockEntity2.getPos();
+
+				// Extent is unknown but vanilla renderers here draw beams that run the height of the world.
+				// Structure block outlines can extend in any direction and are never culled.
+				if (occludeBlockEntities && !(blockEntity2 instanceof StructureBlockBlockEntity)
+						&& !entityOcclusion.isVisible(blockEntity2, blockPos2.getX(), 0, blockPos2.getZ(), blockPos2.getX() + 1, 256, blockPos2.getZ() + 1)) {
+					continue;
+				}
+
 				contextState.setCurrentBlockEntity(blockEntity2);
 				matrixStack.push();
 				matrixStack.translate(blockPos2.getX() - cameraX, blockPos2.getY() - cameraY, blockPos2.getZ() - cameraZ);
@@ -969,17 +1010,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 
 		mc.getProfiler().push("translucent_sort");
 
-		if (translucentSortPositionVersion != terrainFrustum.positionVersion()) {
-			translucentSortPositionVersion = terrainFrustum.positionVersion();
-
-			int j = 0;
-
-			for (int regionIndex = 0; regionIndex < visibleRegionCount; regionIndex++) {
-				if (j < 15 && visibleRegions[regionIndex].scheduleSort()) {
-					++j;
-				}
-			}
-		}
+		translucentSortScheduler.schedule(visibleRegions, visibleRegionCount, terrainFrustum.positionVersion(), cameraPos);
 
 		mc.getProfiler().pop();
 	}
@@ -1016,6 +1047,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 	}
 
 	private void updateRegions(long endNanos) {
+		RegionReplay.handleInput();
 		regionBuilder.upload();
 
 		final Set<BuiltRenderRegion> regionsToRebuild = this.regionsToRebuild;
@@ -1077,10 +1109,47 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		((WorldRenderer) wr).updateNoCullingBlockEntities(removedBlockEntities, addedBlockEntities);
 	}
 
-	// PERF: stash frustum version and terrain version in entity - only retest when changed
+	private void updateEntityVisibilityVersion() {
+		final int viewVersion = terrainFrustum.viewVersion();
+		final int occluderVersion = terrainOccluder.version();
+
+		if (viewVersion != entityViewVersion || occluderVersion != entityOccluderVersion || visibleRegionsVersion != entityVisibleRegionsVersion) {
+			entityViewVersion = viewVersion;
+			entityOccluderVersion = occluderVersion;
+			entityVisibleRegionsVersion = visibleRegionsVersion;
+			++entityVisibilityVersion;
+		}
+	}
+
+	/**
+	 * Result is stashed in the entity and reused while the entity visibility version is unchanged
+	 * and the entity has the same visibility box instance, which is replaced whenever it moves.
+	 * Entities that pass are then checked against terrain occlusion results, which are not stashed.
+	 */
 	public <T extends Entity> boolean isEntityVisible(T entity) {
 		final Box box = entity.getVisibilityBoundingBox();
+		final EntityExt ext = (EntityExt) entity;
+		final int version = entityVisibilityVersion;
+		final boolean result;
+
+		if (ext.canvas_visibilityVersion() == version && ext.canvas_visibilityBox() == box) {
+			result = ext.canvas_visibilityResult();
+		} else {
+			result = computeEntityVisibility(entity, box);
+
+			// invalid boxes are tested using entity position so can't be reused
+			ext.canvas_setVisibility(box.isValid() ? -1 : version, box, result);
+		}
+
+		// glowing entities are drawn through terrain
+		if (!result || !Configurator.entityOcclusionCulling || box.isValid() || wr.canvas_mc().hasOutline(entity)) {
+			return result;
+		}
+
+		return entityOcclusion.isVisible(entity, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+	}
 
+	private <T extends Entity> boolean computeEntityVisibility(T entity, Box box) {
 		final double x0, y0, z0, x1, y1, z1;
 
 		// NB: this method is mis-named
@@ -1111,7 +1180,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		final int ry1 = MathHelper.floor(y1) & 0xFFFFFFF0;
 		final int rz1 = MathHelper.floor(z1) & 0xFFFFFFF0;
 
-		int flags = rx0 == rz1 ? 0 : 1;
+		int flags = rx0 == rx1 ? 0 : 1;
 		if (ry0 != ry1) flags |= 2;
 		if (rz0 != rz1) flags |= 4;
 
@@ -1159,6 +1228,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 
 	@Override
 	public void render(MatrixStack matrices, float tickDelta, long frameStartNanos, boolean renderBlockOutline, Camera camera, GameRenderer gameRenderer, LightmapTextureManager lightmapTextureManager, Matrix4f matrix4f) {
+		RenderState.beginFrame();
 		wr.canvas_mc().getProfiler().swap("dynamic_lighting");
 		eventContext.prepare(this, matrices, tickDelta, frameStartNanos, renderBlockOutline, camera, gameRenderer, lightmapTextureManager, matrix4f, worldRenderImmediate, wr.canvas_mc().getProfiler(), wr.canvas_transparencyShader() != null, world);
 		WorldRenderEvents.START.invoker().onStart(eventContext);
@@ -1173,6 +1243,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		computeDistances();
 		terrainIterator.reset();
 		terrainOccluder.invalidate();
+		entityOcclusion.clear();
 		terrainSetupOffThread = Configurator.terrainSetupOffThread;
 		regionsToRebuild.clear();
 
@@ -1183,6 +1254,7 @@ public class CanvasWorldRenderer extends WorldRenderer {
 		renderRegionStorage.clear();
 		distanceSorter.clear();
 		visibleRegionCount = 0;
+		++visibleRegionsVersion;
 		terrainFrustum.reload();
 
 		//ClassInspector.inspect();
@@ -16,11 +16,14 @@
 
 package grondag.canvas.render;
 
+import java.util.Arrays;
+
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.Camera;
 import net.minecraft.client.render.GameRenderer;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.entity.LivingEntity;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Matrix4f;
 import net.minecraft.util.math.Vec3d;
@@ -60,6 +63,36 @@ public class TerrainFrustum extends CanvasFrustum {
 	private float lastCameraYaw = Float.MAX_VALUE;
 	private double fov;
 
+	/** Plane bits for hierarchical tests. Set when a volume is entirely inside the plane. */
+	public static final int PLANE_LEFT = 1;
+	public static final int PLANE_RIGHT = 2;
+	public static final int PLANE_NEAR = 4;
+	public static final int PLANE_TOP = 8;
+	public static final int PLANE_BOTTOM = 16;
+	public static final int ALL_PLANES = 31;
+	/** Returned by hierarchical tests when a volume is entirely outside at least one plane. */
+	public static final int OUTSIDE = -1;
+
+	/**
+	 * Grows boxes in hierarchical tests so that results remain conservative for
+	 * regions, which use a camera-relative center that lags by up to one block.
+	 */
+	private static final int HIERARCHY_PADDING = 2;
+
+	// Results for 256-block render cubes (8 x 8 horizontally) and 64-block region groups (32 x 4 x 32).
+	// Indexed by world position, which is unambiguous because render distance is well under 2048 blocks.
+	private final int[] cubeMasks = new int[64];
+	private final int[] cubeVersions = new int[64];
+	private final long[] cubeOrigins = new long[64];
+	private final int[] groupMasks = new int[4096];
+	private final int[] groupVersions = new int[4096];
+	private final long[] groupOrigins = new long[4096];
+
+	{
+		Arrays.fill(cubeVersions, -1);
+		Arrays.fill(groupVersions, -1);
+	}
+
 	void reload() {
 		lastViewX = Float.MAX_VALUE;
 		lastViewY = Float.MAX_VALUE;
@@ -285,26 +318,103 @@ public class TerrainFrustum extends CanvasFrustum {
 	}
 
 	public boolean isRegionVisible(BuiltRenderRegion region) {
+		return isRegionVisible(region, 0);
+	}
+
+	/**
+	 * Planes in insideMask are known to contain the region and are not tested.
+	 * Use {@link #regionGroupMask(int, int, int)} to obtain the mask.
+	 */
+	public boolean isRegionVisible(BuiltRenderRegion region, int insideMask) {
+		if (insideMask == OUTSIDE) {
+			return false;
+		} else if (insideMask == ALL_PLANES) {
+			return true;
+		}
+
 		final float cx = region.cameraRelativeCenterX;
 		final float cy = region.cameraRelativeCenterY;
 		final float cz = region.cameraRelativeCenterZ;
 
-		if (cx * leftX + cy * leftY + cz * leftZ + leftRegionExtent > MIN_GAP) {
+		if ((insideMask & PLANE_LEFT) == 0 && cx * leftX + cy * leftY + cz * leftZ + leftRegionExtent > MIN_GAP) {
 			return false;
 		}
 
-		if (cx * rightX + cy * rightY + cz * rightZ + rightRegionExtent > MIN_GAP) {
+		if ((insideMask & PLANE_RIGHT) == 0 && cx * rightX + cy * rightY + cz * rightZ + rightRegionExtent > MIN_GAP) {
 			return false;
 		}
 
-		if (cx * nearX + cy * nearY + cz * nearZ + nearRegionExtent > MIN_GAP) {
+		if ((insideMask & PLANE_NEAR) == 0 && cx * nearX + cy * nearY + cz * nearZ + nearRegionExtent > MIN_GAP) {
 			return false;
 		}
 
-		if (cx * topX + cy * topY + cz * topZ + topRegionExtent > MIN_GAP) {
+		if ((insideMask & PLANE_TOP) == 0 && cx * topX + cy * topY + cz * topZ + topRegionExtent > MIN_GAP) {
 			return false;
 		}
 
-		return !(cx * bottomX + cy * bottomY + cz * bottomZ + bottomRegionExtent > MIN_GAP);
+		return (insideMask & PLANE_BOTTOM) != 0 || !(cx * bottomX + cy * bottomY + cz * bottomZ + bottomRegionExtent > MIN_GAP);
+	}
+
+	/**
+	 * Frustum planes that entirely contain the 64-block group enclosing the given region origin,
+	 * or {@link #OUTSIDE}. The group is only tested against planes that do not already contain
+	 * its 256-block render cube.  Results are computed on first use and retained until the view changes.
+	 */
+	public int regionGroupMask(int x, int y, int z) {
+		final int gx = x & 0xFFFFFFC0;
+		final int gy = y & 0xFFFFFFC0;
+		final int gz = z & 0xFFFFFFC0;
+		final long groupOrigin = BlockPos.asLong(gx, gy, gz);
+		final int groupIndex = ((gx >> 6) & 31) | (((gz >> 6) & 31) << 5) | (((gy >> 6) & 3) << 10);
+		final int viewVersion = this.viewVersion;
+
+		if (groupVersions[groupIndex] == viewVersion && groupOrigins[groupIndex] == groupOrigin) {
+			return groupMasks[groupIndex];
+		}
+
+		final int cx = x & 0xFFFFFF00;
+		final int cz = z & 0xFFFFFF00;
+		final long cubeOrigin = BlockPos.asLong(cx, 0, cz);
+		final int cubeIndex = ((cx >> 8) & 7) | (((cz >> 8) & 7) << 3);
+		int cubeMask;
+
+		if (cubeVersions[cubeIndex] == viewVersion && cubeOrigins[cubeIndex] == cubeOrigin) {
+			cubeMask = cubeMasks[cubeIndex];
+		} else {
+			cubeMask = testCube(cx, 0, cz, 128, 0);
+			cubeMasks[cubeIndex] = cubeMask;
+			cubeOrigins[cubeIndex] = cubeOrigin;
+			cubeVersions[cubeIndex] = viewVersion;
+		}
+
+		final int result = cubeMask == OUTSIDE || cubeMask == ALL_PLANES ? cubeMask : testCube(gx, gy, gz, 32, cubeMask);
+		groupMasks[groupIndex] = result;
+		groupOrigins[groupIndex] = groupOrigin;
+		groupVersions[groupIndex] = viewVersion;
+		return result;
+	}
+
+	private int testCube(int x0, int y0, int z0, int halfSize, int insideMask) {
+		final float cx = (float) (x0 + halfSize - lastViewX);
+		final float cy = (float) (y0 + halfSize - lastViewY);
+		final float cz = (float) (z0 + halfSize - lastViewZ);
+		final float r = halfSize + HIERARCHY_PADDING;
+
+		insideMask = testPlane(insideMask, PLANE_LEFT, cx * leftX + cy * leftY + cz * leftZ + leftW, r * (leftXe + leftYe + leftZe));
+		insideMask = testPlane(insideMask, PLANE_RIGHT, cx * rightX + cy * rightY + cz * rightZ + rightW, r * (rightXe + rightYe + rightZe));
+		insideMask = testPlane(insideMask, PLANE_NEAR, cx * nearX + cy * nearY + cz * nearZ + nearW, r * (nearXe + nearYe + nearZe));
+		insideMask = testPlane(insideMask, PLANE_TOP, cx * topX + cy * topY + cz * topZ + topW, r * (topXe + topYe + topZe));
+		return testPlane(insideMask, PLANE_BOTTOM, cx * bottomX + cy * bottomY + cz * bottomZ + bottomW, r * (bottomXe + bottomYe + bottomZe));
+	}
+
+	/** Also passes through {@link #OUTSIDE} because it has all bits set. */
+	private static int testPlane(int insideMask, int plane, float dist, float radius) {
+		if ((insideMask & plane) != 0) {
+			return insideMask;
+		} else if (dist - radius > MIN_GAP) {
+			return OUTSIDE;
+		} else {
+			return dist + radius < 0 ? insideMask | plane : insideMask;
+		}
 	}
 }
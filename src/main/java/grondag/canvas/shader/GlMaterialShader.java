@@ -16,14 +16,21 @@
 
 package grondag.canvas.shader;
 
+import java.util.Arrays;
+import java.util.HashMap;
+
 import org.apache.commons.lang3.StringUtils;
 import org.lwjgl.opengl.GL21;
 
-import net.minecraft.resource.ResourceManager;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.Identifier;
 
-// PERF: emit switch statments on non-Mac
 public class GlMaterialShader extends GlShader {
+	private static final String PROGRAM_ID = "cv_programId";
+
+	/** Shaders are upgraded to GLSL 130, which has switch statements, except on Mac. See {@link GlShader}. */
+	private static final boolean USE_SWITCH = !MinecraftClient.IS_SYSTEM_MAC;
+
 	GlMaterialShader(Identifier shaderSource, int shaderType, ProgramType programType) {
 		super(shaderSource, shaderType, programType);
 	}
@@ -34,144 +41,86 @@ public class GlMaterialShader extends GlShader {
 		return shaderType == GL21.GL_FRAGMENT_SHADER ? ".frag" : ".vert";
 	}
 
+	// output depends on which sub-shaders are in use
+	@Override
+	protected String cacheKey() {
+		final int[] shaders = shaderType == GL21.GL_FRAGMENT_SHADER ? MaterialShaderManager.FRAGMENT_INDEXES.toIntArray() : MaterialShaderManager.VERTEX_INDEXES.toIntArray();
+		Arrays.sort(shaders);
+		return super.cacheKey() + Arrays.toString(shaders);
+	}
+
 	@Override
-	protected String preprocessSource(ResourceManager resourceManager, String baseSource) {
+	protected String preprocessSource(String baseSource) {
 		if (shaderType == GL21.GL_FRAGMENT_SHADER) {
-			return preprocessFragmentSource(resourceManager, baseSource);
+			return preprocessFragmentSource(baseSource);
 		} else {
-			return preprocessVertexSource(resourceManager, baseSource);
+			return preprocessVertexSource(baseSource);
 		}
 	}
 
-	private String preprocessFragmentSource(ResourceManager resourceManager, String baseSource) {
-		String starts;
-		String impl;
-
+	private String preprocessFragmentSource(String baseSource) {
 		final int[] shaders = MaterialShaderManager.FRAGMENT_INDEXES.toIntArray();
-		final int limit = shaders.length;
-
-		if (limit == 0) {
-			starts = "\t// NOOP";
-			impl = "";
-		} else if (limit == 1) {
-			impl = loadShaderSource(resourceManager, MaterialShaderManager.FRAGMENT_INDEXER.fromHandle(shaders[0]));
-
-			if (impl.contains("frx_startFragment")) {
-				starts = "\tfrx_startFragment(data);";
-			} else {
-				starts = "\t// NOOP";
-			}
-		} else {
-			final StringBuilder startsBuilder = new StringBuilder();
-			final StringBuilder implBuilder = new StringBuilder();
-
-			for (int i = 0; i < limit; ++i) {
-				final int index = shaders[i];
-
-				if (i > 0) {
-					startsBuilder.append("\telse ");
-				}
-
-				if (i < limit - 1) {
-					startsBuilder.append("\tif (cv_programId == ");
-					startsBuilder.append(index);
-					startsBuilder.append(") ");
-				}
-
-				String src = loadShaderSource(resourceManager, MaterialShaderManager.FRAGMENT_INDEXER.fromHandle(index));
-
-				if (src.contains("frx_startFragment")) {
-					startsBuilder.append("frx_startFragment");
-					startsBuilder.append(index);
-					startsBuilder.append("(data);\n");
-
-					src = StringUtils.replace(src, "frx_startFragment", "frx_startFragment" + index);
-					implBuilder.append(src);
-					implBuilder.append("\n");
-				} else {
-					startsBuilder.append("{ }\n");
-				}
+		Arrays.sort(shaders);
+
+		final ShaderDispatchBuilder starts = new ShaderDispatchBuilder(PROGRAM_ID, USE_SWITCH);
+		final StringBuilder impl = new StringBuilder();
+		final HashMap<String, Integer> owners = new HashMap<>();
+
+		for (final int index : shaders) {
+			final String src = loadCachedSource(MaterialShaderManager.FRAGMENT_INDEXER.fromHandle(index));
+			final int owner = ownerIndex(owners, src, index);
+
+			if (owner == index) {
+				impl.append(StringUtils.replace(src, "frx_startFragment", "frx_startFragment" + index));
+				impl.append("\n");
 			}
 
-			impl = implBuilder.toString();
-			starts = startsBuilder.toString();
+			final int weight = MaterialShaderManager.FRAGMENT_USE_COUNTS.get(index);
+			starts.add(index, src.contains("frx_startFragment") ? "frx_startFragment" + owner + "(data);" : "", weight);
 		}
 
-		baseSource = StringUtils.replace(baseSource, ShaderData.API_TARGET, impl);
-		baseSource = StringUtils.replace(baseSource, ShaderData.FRAGMENT_START, starts);
+		baseSource = StringUtils.replace(baseSource, ShaderData.API_TARGET, impl.toString());
+		baseSource = StringUtils.replace(baseSource, ShaderData.FRAGMENT_START, starts.build());
 		return baseSource;
 	}
 
-	private String preprocessVertexSource(ResourceManager resourceManager, String baseSource) {
-		String starts;
-		String ends;
-		String impl;
-
+	private String preprocessVertexSource(String baseSource) {
 		final int[] shaders = MaterialShaderManager.VERTEX_INDEXES.toIntArray();
-		final int limit = shaders.length;
-
-		if (limit == 0) {
-			starts = "\t// NOOP";
-			ends = "\t// NOOP";
-			impl = "\t// NOOP";
-		} else if (limit == 1) {
-			impl = loadShaderSource(resourceManager, MaterialShaderManager.VERTEX_INDEXER.fromHandle(shaders[0]));
-			starts = impl.contains("frx_startVertex") ? "\tfrx_startVertex(data);" : "\t// NOOP";
-			ends = impl.contains("frx_endVertex") ? "\tfrx_endVertex(data);" : "\t// NOOP";
-		} else {
-			final StringBuilder startsBuilder = new StringBuilder();
-			final StringBuilder endsBuilder = new StringBuilder();
-			final StringBuilder implBuilder = new StringBuilder();
-
-			for (int i = 0; i < limit; ++i) {
-				final int index = shaders[i];
-				String src = loadShaderSource(resourceManager, MaterialShaderManager.VERTEX_INDEXER.fromHandle(index));
-
-				if (i > 0) {
-					startsBuilder.append("\telse ");
-					endsBuilder.append("\telse ");
-				}
-
-				if (i < limit - 1) {
-					startsBuilder.append("\tif (cv_programId == ");
-					startsBuilder.append(index);
-					startsBuilder.append(") ");
-
-					endsBuilder.append("\tif (cv_programId == ");
-					endsBuilder.append(index);
-					endsBuilder.append(") ");
-				}
-
-				if (src.contains("frx_startVertex")) {
-					startsBuilder.append("{ frx_startVertex");
-					startsBuilder.append(index);
-					startsBuilder.append("(data); }\n");
-					src = StringUtils.replace(src, "frx_startVertex", "frx_startVertex" + index);
-				} else {
-					startsBuilder.append("{ }\n");
-				}
-
-				if (src.contains("frx_endVertex")) {
-					endsBuilder.append("{ frx_endVertex");
-					endsBuilder.append(index);
-					endsBuilder.append("(data); }\n");
-					src = StringUtils.replace(src, "frx_endVertex", "frx_endVertex" + index);
-				} else {
-					endsBuilder.append("{ }\n");
-				}
-
-				implBuilder.append(src);
-				implBuilder.append("\n");
+		Arrays.sort(shaders);
+
+		final ShaderDispatchBuilder starts = new ShaderDispatchBuilder(PROGRAM_ID, USE_SWITCH);
+		final ShaderDispatchBuilder ends = new ShaderDispatchBuilder(PROGRAM_ID, USE_SWITCH);
+		final StringBuilder impl = new StringBuilder();
+		final HashMap<String, Integer> owners = new HashMap<>();
+
+		for (final int index : shaders) {
+			final String src = loadCachedSource(MaterialShaderManager.VERTEX_INDEXER.fromHandle(index));
+			final int owner = ownerIndex(owners, src, index);
+
+			if (owner == index) {
+				String renamed = StringUtils.replace(src, "frx_startVertex", "frx_startVertex" + index);
+				renamed = StringUtils.replace(renamed, "frx_endVertex", "frx_endVertex" + index);
+				impl.append(renamed);
+				impl.append("\n");
 			}
 
-			impl = implBuilder.toString();
-			starts = startsBuilder.toString();
-			ends = endsBuilder.toString();
+			final int weight = MaterialShaderManager.VERTEX_USE_COUNTS.get(index);
+			starts.add(index, src.contains("frx_startVertex") ? "frx_startVertex" + owner + "(data);" : "", weight);
+			ends.add(index, src.contains("frx_endVertex") ? "frx_endVertex" + owner + "(data);" : "", weight);
 		}
 
-		baseSource = StringUtils.replace(baseSource, ShaderData.API_TARGET, impl);
-		baseSource = StringUtils.replace(baseSource, ShaderData.VERTEX_START, starts);
-		baseSource = StringUtils.replace(baseSource, ShaderData.VEREX_END, ends);
+		baseSource = StringUtils.replace(baseSource, ShaderData.API_TARGET, shaders.length == 0 ? ShaderDispatchBuilder.NOOP : impl.toString());
+		baseSource = StringUtils.replace(baseSource, ShaderData.VERTEX_START, starts.build());
+		baseSource = StringUtils.replace(baseSource, ShaderData.VEREX_END, ends.build());
 		return baseSource;
 	}
+
+	/**
+	 * Sub-shaders with identical source share the functions of the first one seen,
+	 * so their dispatch cases collapse into one branch.
+	 */
+	private static int ownerIndex(HashMap<String, Integer> owners, String src, int index) {
+		final Integer owner = owners.putIfAbsent(src, index);
+		return owner == null ? index : owner;
+	}
 }
@@ -75,6 +75,8 @@ public class GlProgram {
 	private final ObjectArrayList<UniformImpl<?>> activeUniforms = new ObjectArrayList<>();
 	private final ObjectArrayList<UniformImpl<?>> renderTickUpdates = new ObjectArrayList<>();
 	private final ObjectArrayList<UniformImpl<?>> gameTickUpdates = new ObjectArrayList<>();
+	private final ObjectArrayList<SharedUniformArrayf> sharedUniforms = new ObjectArrayList<>();
+	private final ObjectArrayList<SharedUniformArrayf> activeSharedUniforms = new ObjectArrayList<>();
 
 	protected boolean hasDirty = false;
 	private int progID = -1;
@@ -167,6 +169,14 @@ public class GlProgram {
 		return new UniformArrayuiImpl(name, initializer, frequency, size);
 	}
 
+	/**
+	 * Float array uniform backed by a block shared with other programs. Uploaded on
+	 * activation only when the block has changed since this program last uploaded it.
+	 */
+	public void sharedUniformArrayf(String name, SharedUniformBlock block) {
+		sharedUniforms.add(new SharedUniformArrayf(name, block));
+	}
+
 	public final void activate() {
 		if (needsLoad) {
 			load();
@@ -190,6 +200,12 @@ public class GlProgram {
 
 		GL21.glUseProgram(progID);
 
+		final int sharedCount = activeSharedUniforms.size();
+
+		for (int i = 0; i < sharedCount; i++) {
+			activeSharedUniforms.get(i).binding.upload();
+		}
+
 		if (hasDirty) {
 			final int count = activeUniforms.size();
 
@@ -237,6 +253,18 @@ public class GlProgram {
 				}
 			}
 		}
+
+		activeSharedUniforms.clear();
+		final int sharedLimit = sharedUniforms.size();
+
+		for (int i = 0; i < sharedLimit; ++i) {
+			final SharedUniformArrayf u = sharedUniforms.get(i);
+
+			if (vertexShader.containsUniformSpec(SharedUniformArrayf.SEARCH_STRING, u.name)
+					|| fragmentShader.containsUniformSpec(SharedUniformArrayf.SEARCH_STRING, u.name)) {
+				activeSharedUniforms.add(u);
+			}
+		}
 	}
 
 	public void load() {
@@ -270,6 +298,12 @@ public class GlProgram {
 			for (int i = 0; i < limit; i++) {
 				activeUniforms.get(i).load(progID);
 			}
+
+			final int sharedLimit = activeSharedUniforms.size();
+
+			for (int i = 0; i < sharedLimit; i++) {
+				activeSharedUniforms.get(i).load(progID);
+			}
 		}
 	}
 
@@ -330,6 +364,21 @@ public class GlProgram {
 				|| fragmentShader.containsUniformSpec(type, name);
 	}
 
+	private static class SharedUniformArrayf {
+		private static final String SEARCH_STRING = "float\\s*\\[\\s*[0-9]+\\s*]";
+		private final String name;
+		private final SharedUniformBlock.Binding binding;
+
+		private SharedUniformArrayf(String name, SharedUniformBlock block) {
+			this.name = name;
+			binding = block.binding();
+		}
+
+		private void load(int programID) {
+			binding.load(i -> GL21.glGetUniformLocation(programID, name + "[" + i + "]"));
+		}
+	}
+
 	public abstract class UniformImpl<T extends Uniform> {
 		protected static final int FLAG_NEEDS_UPLOAD = 1;
 		protected static final int FLAG_NEEDS_INITIALIZATION = 2;
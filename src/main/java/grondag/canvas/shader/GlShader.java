@@ -23,12 +23,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.google.common.io.CharStreams;
-import org.apache.commons.lang3.StringUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL21;
 
@@ -50,8 +47,7 @@ import grondag.canvas.varia.CanvasGlHelper;
 import grondag.frex.api.config.ShaderConfig;
 
 public class GlShader implements Shader {
-	static final Pattern PATTERN = Pattern.compile("^#include\\s+(\\\"*[\\w]+:[\\w/\\.]+)[ \\t]*.*", Pattern.MULTILINE);
-	private static final HashSet<String> INCLUDED = new HashSet<>();
+	private static final ShaderSourceCache SOURCE_CACHE = new ShaderSourceCache(id -> loadShaderSource(MinecraftClient.getInstance().getResourceManager(), new Identifier(id)));
 	private static boolean isErrorNoticeComplete = false;
 	private static boolean needsClearDebugOutputWarning = true;
 	private static boolean needsDebugOutputWarning = true;
@@ -220,79 +216,104 @@ public class GlShader implements Shader {
 		String result = source;
 
 		if (result == null) {
-			result = getCombinedShaderSource();
+			result = SOURCE_CACHE.process(cacheKey(), shaderSourceId.toString(), this::preprocessSource, defines());
+			source = result;
+		}
 
-			if (programType == ProgramType.MATERIAL_VERTEX_LOGIC) {
-				result = StringUtils.replace(result, "#define PROGRAM_BY_UNIFORM", "//#define PROGRAM_BY_UNIFORM");
-			}
+		return result;
+	}
 
-			if (shaderType == GL21.GL_FRAGMENT_SHADER) {
-				result = StringUtils.replace(result, "#define VERTEX_SHADER", "#define FRAGMENT_SHADER");
-			}
+	/**
+	 * Configuration-dependent substitutions for this shader. Order matters only
+	 * for targets that could match at the same position, which none currently do.
+	 */
+	private ShaderDefines defines() {
+		final ShaderDefines result = new ShaderDefines();
 
-			if (!Configurator.wavyGrass) {
-				result = StringUtils.replace(result, "#define ANIMATED_FOLIAGE", "//#define ANIMATED_FOLIAGE");
-			}
+		if (programType == ProgramType.MATERIAL_VERTEX_LOGIC) {
+			result.replace("#define PROGRAM_BY_UNIFORM", "//#define PROGRAM_BY_UNIFORM");
+		}
 
-			if (Configurator.fogMode != FogMode.VANILLA) {
-				result = StringUtils.replace(result, "#define _CV_FOG_CONFIG _CV_FOG_CONFIG_VANILLA",
-					"#define _CV_FOG_CONFIG _CV_FOG_CONFIG_" + Configurator.fogMode.name());
-			}
+		if (shaderType == GL21.GL_FRAGMENT_SHADER) {
+			result.replace("#define VERTEX_SHADER", "#define FRAGMENT_SHADER");
+		}
 
-			if (Configurator.enableBloom) {
-				result = StringUtils.replace(result, "#define TARGET_EMISSIVE -1", "#define TARGET_EMISSIVE 1");
-			}
+		if (!Configurator.wavyGrass) {
+			result.replace("#define ANIMATED_FOLIAGE", "//#define ANIMATED_FOLIAGE");
+		}
 
-			result = StringUtils.replace(result, "#define HANDHELD_LIGHT_RADIUS 0", "#define HANDHELD_LIGHT_RADIUS " + Configurator.handheldLightRadius);
+		if (Configurator.fogMode != FogMode.VANILLA) {
+			result.replace("#define _CV_FOG_CONFIG _CV_FOG_CONFIG_VANILLA",
+				"#define _CV_FOG_CONFIG _CV_FOG_CONFIG_" + Configurator.fogMode.name());
+		}
 
-			result = StringUtils.replace(result, "#define _CV_MATERIAL_INFO_TEXTURE_SIZE 0", "#define _CV_MATERIAL_INFO_TEXTURE_SIZE " + MaterialInfoTexture.INSTANCE.squareSizePixels());
-			result = StringUtils.replace(result, "#define _CV_MAX_SHADER_COUNT 0", "#define _CV_MAX_SHADER_COUNT " + MaterialShaderImpl.MAX_SHADERS);
+		if (Configurator.enableBloom) {
+			result.replace("#define TARGET_EMISSIVE -1", "#define TARGET_EMISSIVE 1");
+		}
 
-			if (Configurator.hdLightmaps()) {
-				result = StringUtils.replace(result, "#define VANILLA_LIGHTING", "//#define VANILLA_LIGHTING");
+		result.replace("#define HANDHELD_LIGHT_RADIUS 0", "#define HANDHELD_LIGHT_RADIUS " + Configurator.handheldLightRadius);
 
-				if (Configurator.lightmapNoise) {
-					result = StringUtils.replace(result, "//#define ENABLE_LIGHT_NOISE", "#define ENABLE_LIGHT_NOISE");
-				}
-			}
+		result.replace("#define _CV_MATERIAL_INFO_TEXTURE_SIZE 0", "#define _CV_MATERIAL_INFO_TEXTURE_SIZE " + MaterialInfoTexture.INSTANCE.squareSizePixels());
+		result.replace("#define _CV_MAX_SHADER_COUNT 0", "#define _CV_MAX_SHADER_COUNT " + MaterialShaderImpl.MAX_SHADERS);
 
-			if (!MinecraftClient.isAmbientOcclusionEnabled()) {
-				// disable ao for particles or if disabled by player
-				result = StringUtils.replace(result, "#define AO_SHADING_MODE AO_MODE_NORMAL",
-					"#define AO_SHADING_MODE AO_MODE_" + AoMode.NONE.name());
-			} else if (Configurator.aoShadingMode != AoMode.NORMAL) {
-				result = StringUtils.replace(result, "#define AO_SHADING_MODE AO_MODE_NORMAL",
-					"#define AO_SHADING_MODE AO_MODE_" + Configurator.aoShadingMode.name());
-			}
+		if (Configurator.hdLightmaps()) {
+			result.replace("#define VANILLA_LIGHTING", "//#define VANILLA_LIGHTING");
 
-			if (Configurator.diffuseShadingMode != DiffuseMode.NORMAL) {
-				result = StringUtils.replace(result, "#define DIFFUSE_SHADING_MODE DIFFUSE_MODE_NORMAL",
-					"#define DIFFUSE_SHADING_MODE DIFFUSE_MODE_" + Configurator.diffuseShadingMode.name());
+			if (Configurator.lightmapNoise) {
+				result.replace("//#define ENABLE_LIGHT_NOISE", "#define ENABLE_LIGHT_NOISE");
 			}
+		}
 
-			if (!MinecraftClient.IS_SYSTEM_MAC) {
-				result = StringUtils.replace(result, "#version 120", "#version 130");
-				result = StringUtils.replace(result, "#extension GL_EXT_gpu_shader4 : require", "//#extension GL_EXT_gpu_shader4 : require");
-			}
+		if (!MinecraftClient.isAmbientOcclusionEnabled()) {
+			// disable ao for particles or if disabled by player
+			result.replace("#define AO_SHADING_MODE AO_MODE_NORMAL",
+				"#define AO_SHADING_MODE AO_MODE_" + AoMode.NONE.name());
+		} else if (Configurator.aoShadingMode != AoMode.NORMAL) {
+			result.replace("#define AO_SHADING_MODE AO_MODE_NORMAL",
+				"#define AO_SHADING_MODE AO_MODE_" + Configurator.aoShadingMode.name());
+		}
 
-			source = result;
+		if (Configurator.diffuseShadingMode != DiffuseMode.NORMAL) {
+			result.replace("#define DIFFUSE_SHADING_MODE DIFFUSE_MODE_NORMAL",
+				"#define DIFFUSE_SHADING_MODE DIFFUSE_MODE_" + Configurator.diffuseShadingMode.name());
+		}
+
+		if (!MinecraftClient.IS_SYSTEM_MAC) {
+			result.replace("#version 120", "#version 130");
+			result.replace("#extension GL_EXT_gpu_shader4 : require", "//#extension GL_EXT_gpu_shader4 : require");
 		}
 
 		return result;
 	}
 
-	private String getCombinedShaderSource() {
-		final ResourceManager resourceManager = MinecraftClient.getInstance().getResourceManager();
-		INCLUDED.clear();
-		String result = loadShaderSource(resourceManager, shaderSourceId);
-		result = preprocessSource(resourceManager, result);
-		return processSourceIncludes(resourceManager, result);
+	/**
+	 * Identifies the processed output of this shader in the source cache.
+	 * Subclasses must include any state that affects preprocessing.
+	 */
+	protected String cacheKey() {
+		return GlShaderManager.shaderKey(shaderSourceId, programType) + (shaderType == GL21.GL_FRAGMENT_SHADER ? ".frag" : ".vert");
 	}
 
-	protected String preprocessSource(ResourceManager resourceManager, String baseSource) {
+	/**
+	 * Applied to base source before includes are expanded. Return the input
+	 * instance if no changes are made.  Use {@link #loadCachedSource(Identifier)}
+	 * to load any additional source.
+	 */
+	protected String preprocessSource(String baseSource) {
 		return baseSource;
 	}
 
+	protected static String loadCachedSource(Identifier shaderSourceId) {
+		return SOURCE_CACHE.load(shaderSourceId.toString());
+	}
+
+	/**
+	 * Call after resource reload so changed source files are detected.
+	 */
+	public static void invalidateSourceCache() {
+		SOURCE_CACHE.invalidate();
+	}
+
 	protected static String loadShaderSource(ResourceManager resourceManager, Identifier shaderSourceId) {
 		try (Resource resource = resourceManager.getResource(shaderSourceId)) {
 			try (Reader reader = new InputStreamReader(resource.getInputStream())) {
@@ -306,25 +327,6 @@ public class GlShader implements Shader {
 		}
 	}
 
-	private String processSourceIncludes(ResourceManager resourceManager, String source) {
-		final Matcher m = PATTERN.matcher(source);
-
-		while (m.find()) {
-			// allow quoted arguments to #include for nicer IDE support
-			final String id = StringUtils.replace(m.group(1), "\"", "");
-
-			if (INCLUDED.contains(id)) {
-				source = StringUtils.replace(source, m.group(0), "");
-			} else {
-				INCLUDED.add(id);
-				final String src = processSourceIncludes(resourceManager, loadShaderSource(resourceManager, new Identifier(id)));
-				source = StringUtils.replace(source, m.group(0), src, 1);
-			}
-		}
-
-		return source;
-	}
-
 	/**
 	 * Call after render / resource refresh to force shader reload.
 	 */
@@ -71,6 +71,7 @@ public enum GlShaderManager {
 	}
 
 	public void reload() {
+		GlShader.invalidateSourceCache();
 		GlShader.forceReloadErrors();
 		fragmentShaders.values().forEach(s -> s.forceReload());
 		vertexShaders.values().forEach(s -> s.forceReload());
@@ -16,11 +16,9 @@
 
 package grondag.canvas.shader;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-
 import net.minecraft.util.Identifier;
 
-import grondag.fermion.sc.unordered.SimpleUnorderedArrayList;
+import grondag.canvas.varia.LongCopyOnWriteRegistry;
 
 public class MaterialShaderId {
 	public final int index;
@@ -37,27 +35,27 @@ public class MaterialShaderId {
 		fragmentId = MaterialShaderManager.FRAGMENT_INDEXER.fromHandle(fragmentIndex);
 	}
 
-	private static final Int2ObjectOpenHashMap<MaterialShaderId> MAP = new Int2ObjectOpenHashMap<>();
-	private static final SimpleUnorderedArrayList<MaterialShaderId> LIST = new SimpleUnorderedArrayList<>();
+	public static final int MAX_SHADER_IDS = 4096;
+
+	private static final LongCopyOnWriteRegistry<MaterialShaderId> REGISTRY = new LongCopyOnWriteRegistry<>(MAX_SHADER_IDS);
+
+	private static final LongCopyOnWriteRegistry.Factory<MaterialShaderId> FACTORY = (index, key) -> new MaterialShaderId(index, (int) (key & 0xFFFF), (int) ((key >>> 16) & 0xFFFF));
 
-	public static synchronized MaterialShaderId find(Identifier vertexShaderId, Identifier fragmentShaderId) {
+	public static MaterialShaderId find(Identifier vertexShaderId, Identifier fragmentShaderId) {
 		return find(MaterialShaderManager.VERTEX_INDEXER.toHandle(vertexShaderId), MaterialShaderManager.FRAGMENT_INDEXER.toHandle(fragmentShaderId));
 	}
 
-	public static synchronized MaterialShaderId find(int vertexShaderIndex, int fragmentShaderIndex) {
-		final int key = (fragmentShaderIndex << 16) | vertexShaderIndex;
-		MaterialShaderId result = MAP.get(key);
+	public static MaterialShaderId find(int vertexShaderIndex, int fragmentShaderIndex) {
+		final MaterialShaderId result = REGISTRY.getOrCreate((fragmentShaderIndex << 16) | vertexShaderIndex, FACTORY);
 
 		if (result == null) {
-			result = new MaterialShaderId(LIST.size(), vertexShaderIndex, fragmentShaderIndex);
-			LIST.add(result);
-			MAP.put(key, result);
+			throw new IllegalStateException(String.format("Maximum material shader id count (%d) exceeded.", MAX_SHADER_IDS));
 		}
 
 		return result;
 	}
 
 	public static MaterialShaderId get(int index) {
-		return LIST.get(index);
+		return REGISTRY.fromIndex(index);
 	}
 }
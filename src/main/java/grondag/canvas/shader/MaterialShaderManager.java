@@ -16,8 +16,8 @@
 
 package grondag.canvas.shader;
 
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.Identifier;
@@ -26,13 +26,16 @@ import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 
 import grondag.canvas.CanvasMod;
 import grondag.canvas.Configurator;
-import grondag.fermion.sc.unordered.SimpleUnorderedArrayList;
+import grondag.canvas.varia.LongCopyOnWriteRegistry;
 import grondag.fermion.varia.IndexedInterner;
 
 public enum MaterialShaderManager implements ClientTickEvents.EndTick {
 	INSTANCE;
 
-	private final SimpleUnorderedArrayList<MaterialShaderImpl> shaders = new SimpleUnorderedArrayList<>();
+	public static final int MAX_SHADERS = 4096;
+
+	private final LongCopyOnWriteRegistry<MaterialShaderImpl> shaders = new LongCopyOnWriteRegistry<>(MAX_SHADERS);
+	private final LongCopyOnWriteRegistry.Factory<MaterialShaderImpl> factory = this::create;
 
 	/**
 	 * Count of client ticks observed by renderer since last restart.
@@ -52,24 +55,27 @@ public enum MaterialShaderManager implements ClientTickEvents.EndTick {
 		ClientTickEvents.END_CLIENT_TICK.register(this);
 	}
 
-	public synchronized MaterialShaderImpl find(int vertexShaderIndex, int fragmentShaderIndex, ProgramType programType) {
-		final long key = key(vertexShaderIndex, fragmentShaderIndex, programType);
-		MaterialShaderImpl result = KEYMAP.get(key);
+	public MaterialShaderImpl find(int vertexShaderIndex, int fragmentShaderIndex, ProgramType programType) {
+		final MaterialShaderImpl result = shaders.getOrCreate(key(vertexShaderIndex, fragmentShaderIndex, programType), factory);
 
 		if (result == null) {
-			result = create(vertexShaderIndex, fragmentShaderIndex, programType);
-			KEYMAP.put(key, result);
+			throw new IllegalStateException(String.format("Maximum material shader count (%d) exceeded.", MAX_SHADERS));
 		}
 
 		return result;
 	}
 
-	private synchronized MaterialShaderImpl create(int vertexShaderIndex, int fragmentShaderIndex, ProgramType programType) {
-		final MaterialShaderImpl result = new MaterialShaderImpl(shaders.size(), vertexShaderIndex, fragmentShaderIndex, programType);
-		shaders.add(result);
+	/** Called once per key, with registration locked. */
+	private MaterialShaderImpl create(int index, long key) {
+		final int vertexShaderIndex = (int) (key >>> 32);
+		final int fragmentShaderIndex = (int) ((key >>> 16) & 0xFFFF);
+		final ProgramType programType = ProgramType.values()[(int) (key & 0xFFFF)];
+		final MaterialShaderImpl result = new MaterialShaderImpl(index, vertexShaderIndex, fragmentShaderIndex, programType);
 
 		final boolean newVert = VERTEX_INDEXES.add(vertexShaderIndex);
 		final boolean newFrag = FRAGMENT_INDEXES.add(fragmentShaderIndex);
+		VERTEX_USE_COUNTS.addTo(vertexShaderIndex, 1);
+		FRAGMENT_USE_COUNTS.addTo(fragmentShaderIndex, 1);
 
 		// ensure shaders are recompiled when new sub-shader source referenced
 		if (newVert || newFrag) {
@@ -80,7 +86,7 @@ public enum MaterialShaderManager implements ClientTickEvents.EndTick {
 	}
 
 	public MaterialShaderImpl get(int index) {
-		return shaders.get(index);
+		return shaders.fromIndex(index);
 	}
 
 	/**
@@ -104,7 +110,7 @@ public enum MaterialShaderManager implements ClientTickEvents.EndTick {
 		final int limit = shaders.size();
 
 		for (int i = 0; i < limit; i++) {
-			shaders.get(i).onGameTick();
+			shaders.fromIndex(i).onGameTick();
 		}
 	}
 
@@ -113,7 +119,7 @@ public enum MaterialShaderManager implements ClientTickEvents.EndTick {
 		final int limit = shaders.size();
 
 		for (int i = 0; i < limit; i++) {
-			shaders.get(i).onRenderTick();
+			shaders.fromIndex(i).onRenderTick();
 		}
 	}
 
@@ -123,9 +129,14 @@ public enum MaterialShaderManager implements ClientTickEvents.EndTick {
 	/** Tracks which fragmet sub-shaders are in use by materials. */
 	public static final IntOpenHashSet FRAGMENT_INDEXES = new IntOpenHashSet();
 
+	/** Number of material shaders using each vertex sub-shader. Orders dispatch tests when switch isn't available. */
+	public static final Int2IntOpenHashMap VERTEX_USE_COUNTS = new Int2IntOpenHashMap();
+
+	/** Number of material shaders using each fragment sub-shader. */
+	public static final Int2IntOpenHashMap FRAGMENT_USE_COUNTS = new Int2IntOpenHashMap();
+
 	public static final IndexedInterner<Identifier> VERTEX_INDEXER = new IndexedInterner<>(Identifier.class);
 	public static final IndexedInterner<Identifier> FRAGMENT_INDEXER = new IndexedInterner<>(Identifier.class);
-	private static final Long2ObjectOpenHashMap<MaterialShaderImpl> KEYMAP = new Long2ObjectOpenHashMap<>();
 
 	private static long key(int vertexShaderIndex, int fragmentShaderIndex, ProgramType programType) {
 		// PERF: don't need key space this big
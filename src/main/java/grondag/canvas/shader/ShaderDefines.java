@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.shader;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Set of literal source substitutions - typically configuration-dependent
+ * {@code #define} lines - applied to shader source in a single scan.
+ *
+ * <p>When more than one target matches at the same position, the first one added wins.
+ * Output is the same as applying each replacement in order for targets that
+ * do not overlap, which is always the case for shader directives.
+ */
+public class ShaderDefines {
+	private final ObjectArrayList<String> targets = new ObjectArrayList<>();
+	private final ObjectArrayList<String> replacements = new ObjectArrayList<>();
+	private final StringBuilder signature = new StringBuilder();
+	private String firstChars = "";
+
+	public ShaderDefines replace(String target, String replacement) {
+		assert !target.isEmpty();
+
+		targets.add(target);
+		replacements.add(replacement);
+		signature.append(target).append('\0').append(replacement).append('\0');
+
+		final char c = target.charAt(0);
+
+		if (firstChars.indexOf(c) == -1) {
+			firstChars += c;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Uniquely identifies this set of substitutions. Two instances with
+	 * equal signatures will always produce the same output.
+	 */
+	public String signature() {
+		return signature.toString();
+	}
+
+	public String apply(String source) {
+		if (targets.isEmpty()) {
+			return source;
+		}
+
+		final int len = source.length();
+		final int targetCount = targets.size();
+		final String firstChars = this.firstChars;
+		StringBuilder builder = null;
+		int copyFrom = 0;
+		int i = 0;
+
+		while (i < len) {
+			if (firstChars.indexOf(source.charAt(i)) == -1) {
+				++i;
+				continue;
+			}
+
+			int match = -1;
+
+			for (int j = 0; j < targetCount; ++j) {
+				if (source.startsWith(targets.get(j), i)) {
+					match = j;
+					break;
+				}
+			}
+
+			if (match == -1) {
+				++i;
+			} else {
+				if (builder == null) {
+					builder = new StringBuilder(len + 256);
+				}
+
+				builder.append(source, copyFrom, i).append(replacements.get(match));
+				i += targets.get(match).length();
+				copyFrom = i;
+			}
+		}
+
+		if (builder == null) {
+			return source;
+		}
+
+		builder.append(source, copyFrom, len);
+		return builder.toString();
+	}
+}
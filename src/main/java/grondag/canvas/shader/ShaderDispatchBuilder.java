@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.shader;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Generates GLSL that runs the statement registered for the value of an int selector.
+ *
+ * <p>Cases with identical statements share one branch and cases with no statement are
+ * left out. With GLSL 130 and later the output is a {@code switch}. GLSL 120 has no
+ * switch, so the output is an if-else chain with the highest-weighted branches tested
+ * first. When every case has a statement, the last branch needs no test.
+ *
+ * <p>No Minecraft dependencies so that output can be tested headless.
+ */
+public class ShaderDispatchBuilder {
+	public static final String NOOP = "\t// NOOP";
+
+	private final String selector;
+	private final boolean useSwitch;
+	private final ArrayList<Branch> branches = new ArrayList<>();
+	private boolean hasEmpty = false;
+
+	/**
+	 * @param selector GLSL int expression compared to case values
+	 * @param useSwitch true if the target GLSL version supports switch statements
+	 */
+	public ShaderDispatchBuilder(String selector, boolean useSwitch) {
+		this.selector = selector;
+		this.useSwitch = useSwitch;
+	}
+
+	/**
+	 * @param value selector value for this case - must not repeat
+	 * @param statement GLSL statement without indent or line break, or empty for no action
+	 * @param weight relative frequency of this case, used to order if-else tests
+	 */
+	public ShaderDispatchBuilder add(int value, String statement, int weight) {
+		if (statement.isEmpty()) {
+			hasEmpty = true;
+			return this;
+		}
+
+		for (final Branch branch : branches) {
+			if (branch.statement.equals(statement)) {
+				branch.add(value, weight);
+				return this;
+			}
+		}
+
+		final Branch branch = new Branch(statement);
+		branch.add(value, weight);
+		branches.add(branch);
+		return this;
+	}
+
+	public String build() {
+		if (branches.isEmpty()) {
+			return NOOP;
+		}
+
+		if (branches.size() == 1 && !hasEmpty) {
+			return "\t" + branches.get(0).statement;
+		}
+
+		final StringBuilder result = new StringBuilder();
+
+		if (useSwitch) {
+			branches.sort(Comparator.comparingInt(b -> b.values.get(0)));
+			buildSwitch(result);
+		} else {
+			branches.sort(WEIGHT_ORDER);
+			buildIfChain(result);
+		}
+
+		return result.toString();
+	}
+
+	private void buildSwitch(StringBuilder result) {
+		result.append("\tswitch (").append(selector).append(") {\n");
+		final int limit = branches.size();
+
+		for (int i = 0; i < limit; ++i) {
+			final Branch branch = branches.get(i);
+
+			if (i == limit - 1 && !hasEmpty) {
+				result.append("\tdefault:\n");
+			} else {
+				for (final int value : branch.values) {
+					result.append("\tcase ").append(value).append(":\n");
+				}
+			}
+
+			result.append("\t\t").append(branch.statement).append("\n");
+			result.append("\t\tbreak;\n");
+		}
+
+		result.append("\t}\n");
+	}
+
+	private void buildIfChain(StringBuilder result) {
+		final int limit = branches.size();
+
+		for (int i = 0; i < limit; ++i) {
+			final Branch branch = branches.get(i);
+			result.append(i == 0 ? "\tif (" : " else if (");
+
+			if (i == limit - 1 && !hasEmpty) {
+				// replace trailing test with plain else
+				result.setLength(result.length() - 4);
+				result.append("{\n");
+			} else {
+				final int valueCount = branch.values.size();
+
+				for (int j = 0; j < valueCount; ++j) {
+					if (j > 0) {
+						result.append(" || ");
+					}
+
+					result.append(selector).append(" == ").append(branch.values.get(j));
+				}
+
+				result.append(") {\n");
+			}
+
+			result.append("\t\t").append(branch.statement).append("\n");
+			result.append("\t}");
+		}
+
+		result.append("\n");
+	}
+
+	private static final Comparator<Branch> WEIGHT_ORDER = (a, b) -> {
+		final int result = Long.compare(b.weight, a.weight);
+		return result == 0 ? Integer.compare(a.values.get(0), b.values.get(0)) : result;
+	};
+
+	private static class Branch {
+		private final String statement;
+		private final ArrayList<Integer> values = new ArrayList<>();
+		private long weight;
+
+		private Branch(String statement) {
+			this.statement = statement;
+		}
+
+		private void add(int value, int weight) {
+			values.add(value);
+			values.sort(null);
+			this.weight += weight;
+		}
+	}
+}
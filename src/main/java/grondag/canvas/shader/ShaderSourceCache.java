@@ -0,0 +1,182 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.shader;
+
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Loads, parses and combines shader source.
+ *
+ * <p>Each source is split into text and {@code #include} segments once and the parsed
+ * form is shared by every program that includes it. Fully processed results are
+ * memoized by key and reused until the defines change or one of the sources they
+ * were built from has different text.
+ *
+ * <p>Not thread-safe - shader loading happens on the render thread.
+ */
+public class ShaderSourceCache {
+	static final Pattern INCLUDE_PATTERN = Pattern.compile("^#include\\s+(\\\"*[\\w]+:[\\w/\\.]+)[ \\t]*.*", Pattern.MULTILINE);
+
+	private final Function<String, String> loader;
+	private final Object2ObjectOpenHashMap<String, ParsedSource> sources = new Object2ObjectOpenHashMap<>();
+	private final Object2ObjectOpenHashMap<String, ProcessedSource> processed = new Object2ObjectOpenHashMap<>();
+	private final ObjectOpenHashSet<String> included = new ObjectOpenHashSet<>();
+	private final ObjectArrayList<ParsedSource> dependencies = new ObjectArrayList<>();
+	private int generation = 0;
+
+	public ShaderSourceCache(Function<String, String> loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Call after resource reload. Sources will be read again when next referenced
+	 * but parsed and processed results are retained if text has not changed.
+	 */
+	public void invalidate() {
+		++generation;
+	}
+
+	/**
+	 * Source text for use in preprocessing. Will be tracked as a dependency
+	 * of the result currently being processed.
+	 */
+	public String load(String id) {
+		final ParsedSource result = source(id);
+		dependencies.add(result);
+		return result.text;
+	}
+
+	private ParsedSource source(String id) {
+		ParsedSource result = sources.get(id);
+
+		if (result == null || result.generation != generation) {
+			final String text = loader.apply(id);
+
+			if (result == null || !result.text.equals(text)) {
+				result = new ParsedSource(id, text);
+				sources.put(id, result);
+			}
+
+			result.generation = generation;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns fully processed source for the given root. The preprocessor is
+	 * applied to the root text before includes are expanded and must return
+	 * the same instance if it makes no changes.  Any source it needs should be
+	 * obtained via {@link #load(String)}.
+	 */
+	public String process(String key, String rootId, UnaryOperator<String> preprocessor, ShaderDefines defines) {
+		final String signature = defines.signature();
+		final ProcessedSource prior = processed.get(key);
+
+		if (prior != null && prior.signature.equals(signature) && isCurrent(prior)) {
+			return prior.result;
+		}
+
+		dependencies.clear();
+		included.clear();
+
+		final ParsedSource root = source(rootId);
+		dependencies.add(root);
+		final String preprocessed = preprocessor.apply(root.text);
+
+		final StringBuilder builder = new StringBuilder(preprocessed.length() * 4);
+		expand(builder, preprocessed == root.text ? root : new ParsedSource(rootId, preprocessed));
+
+		final String result = defines.apply(builder.toString());
+		processed.put(key, new ProcessedSource(signature, dependencies.toArray(new ParsedSource[dependencies.size()]), result));
+		dependencies.clear();
+
+		return result;
+	}
+
+	private boolean isCurrent(ProcessedSource processed) {
+		for (final ParsedSource dep : processed.dependencies) {
+			if (source(dep.id) != dep) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void expand(StringBuilder builder, ParsedSource source) {
+		final String[] segments = source.segments;
+		final int limit = segments.length;
+
+		// even segments are text, odd segments are include ids
+		for (int i = 0; i < limit; ++i) {
+			if ((i & 1) == 0) {
+				builder.append(segments[i]);
+			} else if (included.add(segments[i])) {
+				final ParsedSource inc = source(segments[i]);
+				dependencies.add(inc);
+				expand(builder, inc);
+			}
+		}
+	}
+
+	private static class ParsedSource {
+		private final String id;
+		private final String text;
+		private final String[] segments;
+		private int generation;
+
+		private ParsedSource(String id, String text) {
+			this.id = id;
+			this.text = text;
+
+			final ObjectArrayList<String> list = new ObjectArrayList<>();
+			final Matcher m = INCLUDE_PATTERN.matcher(text);
+			int start = 0;
+
+			while (m.find()) {
+				list.add(text.substring(start, m.start()));
+				// allow quoted arguments to #include for nicer IDE support
+				list.add(StringUtils.replace(m.group(1), "\"", ""));
+				start = m.end();
+			}
+
+			list.add(text.substring(start));
+			segments = list.toArray(new String[list.size()]);
+		}
+	}
+
+	private static class ProcessedSource {
+		private final String signature;
+		private final ParsedSource[] dependencies;
+		private final String result;
+
+		private ProcessedSource(String signature, ParsedSource[] dependencies, String result) {
+			this.signature = signature;
+			this.dependencies = dependencies;
+			this.result = result;
+		}
+	}
+}
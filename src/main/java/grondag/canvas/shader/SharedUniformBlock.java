@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.shader;
+
+import java.nio.FloatBuffer;
+import java.util.function.IntUnaryOperator;
+
+import org.lwjgl.BufferUtils;
+
+import grondag.canvas.varia.GlBackend;
+
+/**
+ * Float array uniform with one copy of the data shared by every program.
+ *
+ * <p>Each change stamps the element with the next block version. Programs keep a
+ * {@link Binding} that remembers the version last uploaded, so activating a program
+ * uploads nothing when the block is unchanged and otherwise uploads only the span
+ * of elements changed since then, in a single call.
+ *
+ * <p>Not thread-safe. Written and uploaded on the render thread.
+ */
+public class SharedUniformBlock {
+	private final int length;
+	private final FloatBuffer data;
+	private final int[] elementVersions;
+	private int version = 0;
+	private boolean hasPending = false;
+
+	public SharedUniformBlock(int length) {
+		this.length = length;
+		data = BufferUtils.createFloatBuffer(length);
+		elementVersions = new int[length];
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public float get(int index) {
+		return data.get(index);
+	}
+
+	public void set(int index, float value) {
+		if (data.get(index) != value) {
+			data.put(index, value);
+			// changes between reads share a version
+			elementVersions[index] = version + 1;
+			hasPending = true;
+		}
+	}
+
+	/**
+	 * Current version, advanced at most once per read when
+	 * elements have changed since the prior read.
+	 */
+	public int version() {
+		if (hasPending) {
+			++version;
+			hasPending = false;
+		}
+
+		return version;
+	}
+
+	public Binding binding() {
+		return new Binding();
+	}
+
+	/**
+	 * Upload state of the block for one program.
+	 */
+	public class Binding {
+		private final int[] locations = new int[length];
+		private int activeLength = 0;
+		private int uploadedVersion;
+		private boolean needsFullUpload = true;
+
+		/**
+		 * Call after each program link. The linker may drop trailing
+		 * elements the program never reads, so only the leading run
+		 * of elements that have a location will be uploaded.
+		 *
+		 * @param elementLocation gives the uniform location of an element, or -1 if absent
+		 */
+		public void load(IntUnaryOperator elementLocation) {
+			activeLength = 0;
+
+			while (activeLength < length) {
+				final int location = elementLocation.applyAsInt(activeLength);
+
+				if (location == -1) {
+					break;
+				}
+
+				locations[activeLength++] = location;
+			}
+
+			needsFullUpload = true;
+		}
+
+		/**
+		 * Uploads elements changed since the last upload. Program must be in use.
+		 *
+		 * @return number of elements uploaded
+		 */
+		public int upload() {
+			final int currentVersion = version();
+
+			if (activeLength == 0 || (!needsFullUpload && currentVersion == uploadedVersion)) {
+				return 0;
+			}
+
+			int start = 0;
+			int end = activeLength;
+
+			if (!needsFullUpload) {
+				while (start < end && elementVersions[start] - uploadedVersion <= 0) {
+					++start;
+				}
+
+				while (end > start && elementVersions[end - 1] - uploadedVersion <= 0) {
+					--end;
+				}
+			}
+
+			uploadedVersion = currentVersion;
+			needsFullUpload = false;
+
+			if (start == end) {
+				return 0;
+			}
+
+			// a vector upload at an element location fills that element and those after it
+			data.position(start);
+			data.limit(end);
+			GlBackend.get().uniform1fv(locations[start], data);
+			data.clear();
+			return end - start;
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.occlusion;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * Tests entity and block entity bounds against the terrain occlusion raster.
+ *
+ * <p>The raster has coverage but no depth, so it only tells us something about a box
+ * while it is being drawn front-to-back.  Boxes are therefore tested during terrain
+ * iteration, just before the first region they overlap is drawn, and only in passes
+ * that redraw the raster from scratch.
+ *
+ * <p>Boxes are collected on the render thread during one frame and handed to the next
+ * iteration in {@link #prepare(boolean)}. Results become visible to the render thread
+ * in {@link #publish()}, along with the visible region list from the same pass. Tested
+ * bounds are padded by one block so results still apply after small movements. Anything
+ * that moves outside its tested bounds, or was never tested, is visible.
+ */
+public class EntityOcclusionTester {
+	private static final int PADDING = 1;
+
+	/** Boxes overlapping more regions than this are not tested. Allows a padded full-height column. */
+	private static final int MAX_REGION_SPAN = 64;
+
+	// render thread
+	private Batch pending = new Batch();
+	private Results current = new Results();
+
+	// handed off to worker in prepare and back in publish
+	private Batch active = new Batch();
+	private Results next = new Results();
+	private boolean enabled;
+	private boolean nextReady = false;
+
+	// worker thread
+	private final Long2ObjectOpenHashMap<IntArrayList> buckets = new Long2ObjectOpenHashMap<>();
+	private final ObjectArrayList<IntArrayList> listPool = new ObjectArrayList<>();
+	private boolean[] tested = new boolean[256];
+	private boolean testing = false;
+
+	/**
+	 * Call from render thread before boxes for a new frame are added.
+	 */
+	public void beginFrame() {
+		pending.clear();
+	}
+
+	/**
+	 * Call from render thread. True unless the box was found to be hidden in the most
+	 * recently published pass and has not moved outside its tested bounds since. The box is
+	 * also queued for testing in the next pass.
+	 */
+	public boolean isVisible(Object key, double x0, double y0, double z0, double x1, double y1, double z1) {
+		pending.add(key, x0, y0, z0, x1, y1, z1);
+		return !current.isOccluded(key, x0, y0, z0, x1, y1, z1);
+	}
+
+	/**
+	 * Call from render thread before the terrain iterator is started.
+	 */
+	void prepare(boolean enabled) {
+		final Batch swap = active;
+		active = pending;
+		pending = swap;
+		pending.clear();
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Call from render thread when terrain iteration results are published.
+	 */
+	public void publish() {
+		if (nextReady) {
+			final Results swap = current;
+			current = next;
+			next = swap;
+			nextReady = false;
+		}
+	}
+
+	/**
+	 * Call from render thread when the world or renderer is reset.
+	 * Results from an iteration already underway may still be published.
+	 */
+	public void clear() {
+		pending.clear();
+		current.clear();
+	}
+
+	void beginPass(boolean redrawOccluder) {
+		final Batch active = this.active;
+		final int size = active.size();
+		testing = enabled && redrawOccluder && size > 0;
+
+		if (!testing) {
+			return;
+		}
+
+		next.clear();
+
+		if (tested.length < size) {
+			tested = new boolean[MathHelper.smallestEncompassingPowerOfTwo(size)];
+		} else {
+			Arrays.fill(tested, 0, size, false);
+		}
+
+		final int[] bounds = active.bounds.elements();
+
+		for (int i = 0; i < size; ++i) {
+			final int b = i * 6;
+			final int rx0 = bounds[b] & 0xFFFFFFF0;
+			final int ry0 = MathHelper.clamp(bounds[b + 1], 0, 255) & 0xFFFFFFF0;
+			final int rz0 = bounds[b + 2] & 0xFFFFFFF0;
+			final int rx1 = bounds[b + 3] & 0xFFFFFFF0;
+			final int ry1 = MathHelper.clamp(bounds[b + 4], 0, 255) & 0xFFFFFFF0;
+			final int rz1 = bounds[b + 5] & 0xFFFFFFF0;
+
+			if (((rx1 - rx0 + 16) >> 4) * ((ry1 - ry0 + 16) >> 4) * ((rz1 - rz0 + 16) >> 4) > MAX_REGION_SPAN) {
+				continue;
+			}
+
+			for (int x = rx0; x <= rx1; x += 16) {
+				for (int y = ry0; y <= ry1; y += 16) {
+					for (int z = rz0; z <= rz1; z += 16) {
+						final long key = BlockPos.asLong(x, y, z);
+						IntArrayList bucket = buckets.get(key);
+
+						if (bucket == null) {
+							bucket = listPool.isEmpty() ? new IntArrayList() : listPool.pop();
+							buckets.put(key, bucket);
+						}
+
+						bucket.add(i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests boxes not already tested that overlap the region. Must be called before
+	 * the region is drawn into the raster.
+	 */
+	void testRegion(TerrainOccluder occluder, BlockPos origin) {
+		if (!testing) {
+			return;
+		}
+
+		final IntArrayList bucket = buckets.get(origin.asLong());
+
+		if (bucket == null) {
+			return;
+		}
+
+		final int limit = bucket.size();
+		final int[] elements = bucket.elements();
+		final int[] bounds = active.bounds.elements();
+		final ObjectArrayList<Object> keys = active.keys;
+		final boolean[] tested = this.tested;
+
+		for (int j = 0; j < limit; ++j) {
+			final int i = elements[j];
+
+			if (!tested[i]) {
+				tested[i] = true;
+				final int b = i * 6;
+
+				if (!occluder.isWorldBoxVisible(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5])) {
+					next.add(keys.get(i), bounds, b);
+				}
+			}
+		}
+	}
+
+	void endPass(boolean cancelled) {
+		if (!testing) {
+			return;
+		}
+
+		for (final IntArrayList bucket : buckets.values()) {
+			bucket.clear();
+			listPool.add(bucket);
+		}
+
+		buckets.clear();
+		testing = false;
+		nextReady = !cancelled;
+	}
+
+	private static class Batch {
+		private final ObjectArrayList<Object> keys = new ObjectArrayList<>();
+		private final IntArrayList bounds = new IntArrayList();
+
+		private void add(Object key, double x0, double y0, double z0, double x1, double y1, double z1) {
+			keys.add(key);
+			bounds.add(MathHelper.floor(x0) - PADDING);
+			bounds.add(MathHelper.floor(y0) - PADDING);
+			bounds.add(MathHelper.floor(z0) - PADDING);
+			bounds.add(MathHelper.ceil(x1) + PADDING);
+			bounds.add(MathHelper.ceil(y1) + PADDING);
+			bounds.add(MathHelper.ceil(z1) + PADDING);
+		}
+
+		private int size() {
+			return keys.size();
+		}
+
+		private void clear() {
+			keys.clear();
+			bounds.clear();
+		}
+	}
+
+	private static class Results {
+		private final Reference2IntOpenHashMap<Object> index = new Reference2IntOpenHashMap<>();
+		private final IntArrayList bounds = new IntArrayList();
+
+		{
+			index.defaultReturnValue(-1);
+		}
+
+		private void add(Object key, int[] source, int offset) {
+			index.put(key, bounds.size());
+			bounds.addElements(bounds.size(), source, offset, 6);
+		}
+
+		private boolean isOccluded(Object key, double x0, double y0, double z0, double x1, double y1, double z1) {
+			final int b = index.getInt(key);
+
+			if (b == -1) {
+				return false;
+			}
+
+			final int[] bounds = this.bounds.elements();
+			return x0 >= bounds[b] && y0 >= bounds[b + 1] && z0 >= bounds[b + 2]
+					&& x1 <= bounds[b + 3] && y1 <= bounds[b + 4] && z1 <= bounds[b + 5];
+		}
+
+		private void clear() {
+			index.clear();
+			bounds.clear();
+		}
+	}
+}
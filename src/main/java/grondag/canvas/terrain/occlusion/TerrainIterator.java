@@ -49,6 +49,7 @@ public class TerrainIterator implements Consumer<TerrainRenderContext> {
 	public final BuiltRenderRegion[] visibleRegions = new BuiltRenderRegion[CanvasWorldRenderer.MAX_REGION_COUNT];
 	private final RenderRegionStorage renderRegionStorage;
 	public final TerrainOccluder terrainOccluder;
+	private final EntityOcclusionTester entityOcclusion;
 	private final AtomicInteger state = new AtomicInteger(IDLE);
 	private final PotentiallyVisibleRegionSorter distanceSorter;
 	public volatile int visibleRegionCount;
@@ -59,10 +60,11 @@ public class TerrainIterator implements Consumer<TerrainRenderContext> {
 	private boolean chunkCullingEnabled = true;
 	private volatile boolean cancelled = false;
 
-	public TerrainIterator(RenderRegionStorage renderRegionStorage, TerrainOccluder terrainOccluder, PotentiallyVisibleRegionSorter distanceSorter) {
+	public TerrainIterator(RenderRegionStorage renderRegionStorage, TerrainOccluder terrainOccluder, PotentiallyVisibleRegionSorter distanceSorter, EntityOcclusionTester entityOcclusion) {
 		this.renderRegionStorage = renderRegionStorage;
 		this.terrainOccluder = terrainOccluder;
 		this.distanceSorter = distanceSorter;
+		this.entityOcclusion = entityOcclusion;
 	}
 
 	public void prepare(@Nullable BuiltRenderRegion cameraRegion, Camera camera, TerrainFrustum frustum, int renderDistance, boolean chunkCullingEnabled) {
@@ -74,6 +76,7 @@ public class TerrainIterator implements Consumer<TerrainRenderContext> {
 		terrainOccluder.frustum.copy(frustum);
 		this.renderDistance = renderDistance;
 		this.chunkCullingEnabled = chunkCullingEnabled;
+		entityOcclusion.prepare(chunkCullingEnabled && Configurator.cullEntityRender && Configurator.entityOcclusionCulling);
 
 		state.set(READY);
 		cancelled = false;
@@ -103,6 +106,8 @@ public class TerrainIterator implements Consumer<TerrainRenderContext> {
 		renderRegionStorage.updateCameraDistanceAndVisibilityInfo(cameraChunkOrigin);
 		final boolean redrawOccluder = terrainOccluder.prepareScene(cameraPos);
 		final int occluderVersion = terrainOccluder.version();
+		final EntityOcclusionTester entityOcclusion = this.entityOcclusion;
+		entityOcclusion.beginPass(redrawOccluder);
 
 		if (TRACE_OCCLUSION_OUTCOMES) {
 			CanvasMod.LOG.info("TerrainIterator Redraw Status: " + redrawOccluder);
@@ -146,6 +151,9 @@ public class TerrainIterator implements Consumer<TerrainRenderContext> {
 				continue;
 			}
 
+			// entities must be tested before anything in the same region is drawn
+			entityOcclusion.testRegion(terrainOccluder, builtRegion.getOrigin());
+
 			// Use build data for visibility - render data lags in availability and should only be used for rendering
 			final RegionData regionData = builtRegion.getBuildData();
 			final int[] visData = regionData.getOcclusionData();
@@ -219,6 +227,8 @@ public class TerrainIterator implements Consumer<TerrainRenderContext> {
 			}
 		}
 
+		entityOcclusion.endPass(cancelled);
+
 		if (cancelled) {
 			state.set(IDLE);
 			this.visibleRegionCount = 0;
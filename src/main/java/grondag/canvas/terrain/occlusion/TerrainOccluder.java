@@ -830,6 +830,56 @@ public class TerrainOccluder {
 		return isBoxVisible(PackedBox.FULL_BOX);
 	}
 
+	/**
+	 * Tests a box in world block coordinates. Boxes that contain the camera are always visible.
+	 * Replaces region offsets - call {@link #prepareRegion(BlockPos, int, int)} before further region tests.
+	 */
+	public boolean isWorldBoxVisible(int x0, int y0, int z0, int x1, int y1, int z1) {
+		final int originX = x0 & 0xFFFFFFF0;
+		final int originY = y0 & 0xFFFFFFF0;
+		final int originZ = z0 & 0xFFFFFFF0;
+
+		final int offsetX = (int) (((long) originX << CAMERA_PRECISION_BITS) - viewX);
+		final int offsetY = (int) (((long) originY << CAMERA_PRECISION_BITS) - viewY);
+		final int offsetZ = (int) (((long) originZ << CAMERA_PRECISION_BITS) - viewZ);
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+		this.offsetZ = offsetZ;
+
+		final Matrix4L mvpMatrix = raster.mvpMatrix;
+		mvpMatrix.copyFrom(baseMvpMatrix);
+		mvpMatrix.translate(offsetX, offsetY, offsetZ, CAMERA_PRECISION_BITS);
+
+		x0 -= originX;
+		y0 -= originY;
+		z0 -= originZ;
+		x1 -= originX;
+		y1 -= originY;
+		z1 -= originZ;
+
+		int outcome = 0;
+
+		if (offsetY < -(y1 << CAMERA_PRECISION_BITS)) {
+			outcome |= UP;
+		} else if (offsetY > -(y0 << CAMERA_PRECISION_BITS)) {
+			outcome |= DOWN;
+		}
+
+		if (offsetX < -(x1 << CAMERA_PRECISION_BITS)) {
+			outcome |= EAST;
+		} else if (offsetX > -(x0 << CAMERA_PRECISION_BITS)) {
+			outcome |= WEST;
+		}
+
+		if (offsetZ < -(z1 << CAMERA_PRECISION_BITS)) {
+			outcome |= SOUTH;
+		} else if (offsetZ > -(z0 << CAMERA_PRECISION_BITS)) {
+			outcome |= NORTH;
+		}
+
+		return outcome == 0 || boxTests[outcome].apply(x0, y0, z0, x1, y1, z1);
+	}
+
 	/**
 	 * Does not rely on winding order but instead the distance from
 	 * plane with known facing to camera position.
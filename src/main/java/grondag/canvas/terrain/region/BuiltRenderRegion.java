@@ -22,11 +22,13 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import com.mojang.blaze3d.systems.RenderSystem;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockRenderType;
@@ -37,7 +39,6 @@ import net.minecraft.client.render.block.BlockRenderManager;
 import net.minecraft.client.render.block.entity.BlockEntityRenderDispatcher;
 import net.minecraft.client.render.block.entity.BlockEntityRenderer;
 import net.minecraft.client.render.model.BakedModel;
-import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.fluid.FluidState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
@@ -54,6 +55,7 @@ import grondag.canvas.apiimpl.rendercontext.TerrainRenderContext;
 import grondag.canvas.apiimpl.util.FaceConstants;
 import grondag.canvas.buffer.encoding.VertexCollectorImpl;
 import grondag.canvas.buffer.encoding.VertexCollectorList;
+import grondag.canvas.buffer.format.CanvasVertexFormats;
 import grondag.canvas.material.state.RenderLayerHelper;
 import grondag.canvas.material.state.RenderMaterialImpl;
 import grondag.canvas.perf.ChunkRebuildCounters;
@@ -65,6 +67,7 @@ import grondag.canvas.terrain.occlusion.geometry.OcclusionRegion;
 import grondag.canvas.terrain.occlusion.geometry.PackedBox;
 import grondag.canvas.terrain.render.DrawableChunk;
 import grondag.canvas.terrain.render.UploadableChunk;
+import grondag.canvas.terrain.util.FoliageLod;
 import grondag.canvas.terrain.util.RenderRegionAddressHelper;
 import grondag.canvas.terrain.util.TerrainModelSpace;
 import grondag.canvas.varia.BlockPosHelper;
@@ -98,6 +101,8 @@ public class BuiltRenderRegion {
 
 	private int squaredChunkDistance;
 	private boolean isNear;
+	private volatile int foliageLod = FoliageLod.FULL;
+	private int builtFoliageLod = FoliageLod.FULL;
 	private boolean needsRebuild;
 	private boolean needsImportantRebuild;
 	private volatile RegionBuildState buildState = new RegionBuildState();
@@ -111,6 +116,10 @@ public class BuiltRenderRegion {
 	private boolean isInsideRenderDistance;
 	private final Consumer<TerrainRenderContext> buildTask = this::rebuildOnWorkerThread;
 	private int buildCount = -1;
+	/** Camera position of the most recent translucent sort, null until sorted. */
+	private volatile Vec3d sortCameraPos = null;
+	/** Times passed over by {@link TranslucentSortScheduler} while needing a resort. */
+	int sortWaitFrames = 0;
 	// build count that was in effect last time drawn to occluder
 	private int occlusionBuildCount;
 
@@ -224,6 +233,7 @@ public class BuiltRenderRegion {
 		squaredChunkDistance = horizontalSquaredDistance + cy * cy;
 		isNear = squaredChunkDistance <= 3;
 		occlusionRange = PackedBox.rangeFromSquareChunkDist(squaredChunkDistance);
+		foliageLod = FoliageLod.tier(squaredChunkDistance, foliageLod);
 	}
 
 	private void computeFrustumChecks() {
@@ -248,8 +258,7 @@ public class BuiltRenderRegion {
 			}
 		}
 
-		//  PERF: implement hierarchical tests with propagation of per-plane inside test results
-		frustumResult = isInsideRenderDistance && frustum.isRegionVisible(this);
+		frustumResult = isInsideRenderDistance && frustum.isRegionVisible(this, frustum.regionGroupMask(origin.getX(), origin.getY(), origin.getZ()));
 	}
 
 	/**
@@ -298,6 +307,7 @@ public class BuiltRenderRegion {
 		assert RenderSystem.isOnRenderThread();
 
 		if (!isClosed) {
+			renderRegionBuilder.uploads.discard(this);
 			releaseDrawables();
 
 			isClosed = true;
@@ -318,6 +328,8 @@ public class BuiltRenderRegion {
 			isInsideRenderDistance = false;
 			isNear = false;
 			frustumResult = false;
+			sortCameraPos = null;
+			sortWaitFrames = 0;
 		}
 	}
 
@@ -342,10 +354,14 @@ public class BuiltRenderRegion {
 	public void markBuilt() {
 		needsRebuild = false;
 		needsImportantRebuild = false;
+		builtFoliageLod = foliageLod;
 	}
 
+	/**
+	 * Also true when foliage level of detail has changed since the last build was scheduled.
+	 */
 	public boolean needsRebuild() {
-		return needsRebuild;
+		return needsRebuild || builtFoliageLod != foliageLod;
 	}
 
 	public boolean needsImportantRebuild() {
@@ -355,9 +371,23 @@ public class BuiltRenderRegion {
 	public void scheduleRebuild() {
 		final ProtoRenderRegion region = ProtoRenderRegion.claim(cwr.getWorld(), origin);
 
+		final ProtoRenderRegion prior = buildState.protoRegion.getAndSet(region);
+
 		// null region is signal to reschedule
-		if (buildState.protoRegion.getAndSet(region) == ProtoRenderRegion.IDLE) {
+		if (prior == ProtoRenderRegion.IDLE) {
 			renderRegionBuilder.executor.execute(buildTask, squaredChunkDistance);
+		} else {
+			releaseReplaced(prior);
+		}
+	}
+
+	/**
+	 * A region taken out of the build state is owned by the caller and must go back to the pool.
+	 * Sentinel regions ignore release.
+	 */
+	private static void releaseReplaced(ProtoRenderRegion region) {
+		if (region != null) {
+			region.release();
 		}
 	}
 
@@ -373,12 +403,29 @@ public class BuiltRenderRegion {
 				renderRegionBuilder.executor.execute(buildTask, squaredChunkDistance);
 			}
 
+			// already scheduled work will sort from about here - avoids scheduling again next frame
+			sortCameraPos = cwr.cameraPos();
 			return true;
 		}
 	}
 
+	/**
+	 * Camera position used for the most recent translucent sort, or null if never sorted.
+	 */
+	@Nullable Vec3d sortCameraPos() {
+		return sortCameraPos;
+	}
+
+	/**
+	 * Number of translucent quads in the most recent build.
+	 */
+	int translucentQuadCount() {
+		final int[] state = buildData.get().translucentState;
+		return state == null ? 0 : state.length / CanvasVertexFormats.MATERIAL_QUAD_STRIDE;
+	}
+
 	protected void cancel() {
-		buildState.protoRegion.set(ProtoRenderRegion.INVALID);
+		releaseReplaced(buildState.protoRegion.getAndSet(ProtoRenderRegion.INVALID));
 		buildState = new RegionBuildState();
 	}
 
@@ -446,23 +493,13 @@ public class BuiltRenderRegion {
 				}
 
 				regionData.translucentState = collector.saveState(state);
+				sortCameraPos = cameraPos;
 
 				if (runningState.protoRegion.get() != ProtoRenderRegion.INVALID) {
 					final UploadableChunk upload = collectors.toUploadableChunk(true);
 
 					if (upload != UploadableChunk.EMPTY_UPLOADABLE) {
-						renderRegionBuilder.scheduleUpload(() -> {
-							if (ChunkRebuildCounters.ENABLED) {
-								ChunkRebuildCounters.startUpload();
-							}
-
-							translucentDrawable.close();
-							translucentDrawable = upload.produceDrawable();
-
-							if (ChunkRebuildCounters.ENABLED) {
-								ChunkRebuildCounters.completeUpload();
-							}
-						});
+						renderRegionBuilder.uploads.add(this, null, upload);
 					}
 				}
 
@@ -470,6 +507,11 @@ public class BuiltRenderRegion {
 			}
 		} else {
 			context.prepareRegion(region);
+
+			if (RegionReplay.isCapturing()) {
+				RegionReplay.capture(context.region, cwr.cameraPos());
+			}
+
 			final RegionData chunkData = buildRegionData(context, isNear());
 
 			final VertexCollectorList collectors = context.collectors;
@@ -487,19 +529,7 @@ public class BuiltRenderRegion {
 				final UploadableChunk translucentUpload = collectors.toUploadableChunk(true);
 
 				if (solidUpload != UploadableChunk.EMPTY_UPLOADABLE || translucentUpload != UploadableChunk.EMPTY_UPLOADABLE) {
-					renderRegionBuilder.scheduleUpload(() -> {
-						if (ChunkRebuildCounters.ENABLED) {
-							ChunkRebuildCounters.startUpload();
-						}
-
-						releaseDrawables();
-						solidDrawable = solidUpload.produceDrawable();
-						translucentDrawable = translucentUpload.produceDrawable();
-
-						if (ChunkRebuildCounters.ENABLED) {
-							ChunkRebuildCounters.completeUpload();
-						}
-					});
+					renderRegionBuilder.uploads.add(this, solidUpload, translucentUpload);
 				}
 			}
 
@@ -508,6 +538,39 @@ public class BuiltRenderRegion {
 		}
 	}
 
+	/**
+	 * Called by {@link RegionUploadQueue} on the render thread.
+	 *
+	 * @param solidUpload new solid content, or {@code null} if only translucency was resorted
+	 */
+	void applyUpload(@Nullable UploadableChunk solidUpload, UploadableChunk translucentUpload) {
+		if (isClosed) {
+			if (solidUpload != null) {
+				solidUpload.close();
+			}
+
+			translucentUpload.close();
+			return;
+		}
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.startUpload();
+		}
+
+		if (solidUpload == null) {
+			translucentDrawable.close();
+		} else {
+			releaseDrawables();
+			solidDrawable = solidUpload.produceDrawable();
+		}
+
+		translucentDrawable = translucentUpload.produceDrawable();
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.completeUpload();
+		}
+	}
+
 	private RegionData buildRegionData(TerrainRenderContext context, boolean isNear) {
 		final RegionData regionData = new RegionData();
 		regionData.complete(context.region.occlusion.build(isNear));
@@ -537,8 +600,6 @@ public class BuiltRenderRegion {
 		}
 
 		final VertexCollectorList collectors = context.collectors;
-
-		final BlockPos.Mutable searchPos = context.searchPos;
 		final int xOrigin = origin.getX();
 		final int yOrigin = origin.getY();
 		final int zOrigin = origin.getZ();
@@ -555,11 +616,31 @@ public class BuiltRenderRegion {
 			zModelOffset = 0;
 		}
 
-		final FastRenderRegion region = context.region;
 		final Vec3d cameraPos = cwr.cameraPos();
-		final MatrixStack matrixStack = new MatrixStack();
 		final BlockRenderManager blockRenderManager = MinecraftClient.getInstance().getBlockRenderManager();
+		context.farFoliage = foliageLod == FoliageLod.FAR;
+		tesselate(context, xModelOffset, yModelOffset, zModelOffset, blockRenderManager::getModel);
+
+		regionData.endBuffering((float) (cameraPos.x - xOrigin + xModelOffset), (float) (cameraPos.y - yOrigin + yModelOffset), (float) (cameraPos.z - zOrigin + zModelOffset), collectors);
+		sortCameraPos = cameraPos;
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.completeChunk();
+		}
+	}
+
+	/**
+	 * Renders all visible blocks and fluids of the prepared region into the context's collectors.
+	 * Models come from the given source so that replay can substitute its own.
+	 */
+	static void tesselate(TerrainRenderContext context, int xModelOffset, int yModelOffset, int zModelOffset, Function<BlockState, BakedModel> models) {
+		final FastRenderRegion region = context.region;
+		final BlockPos.Mutable searchPos = context.searchPos;
+		final int xOrigin = region.originX();
+		final int yOrigin = region.originY();
+		final int zOrigin = region.originZ();
 		final OcclusionRegion occlusionRegion = region.occlusion;
+		final boolean farFoliage = context.farFoliage;
 
 		for (int i = 0; i < RenderRegionAddressHelper.INTERIOR_CACHE_SIZE; i++) {
 			if (occlusionRegion.shouldRender(i)) {
@@ -571,40 +652,37 @@ public class BuiltRenderRegion {
 				searchPos.set(xOrigin + x, yOrigin + y, zOrigin + z);
 
 				final boolean hasFluid = !fluidState.isEmpty();
-				final boolean hasBlock = blockState.getRenderType() != BlockRenderType.INVISIBLE;
+				final boolean hasBlock = blockState.getRenderType() != BlockRenderType.INVISIBLE && !(farFoliage && FoliageLod.isOmittedPlant(blockState));
 
 				if (hasFluid || hasBlock) {
-					// PERF: allocation, speed
-					matrixStack.push();
-					matrixStack.translate(x + xModelOffset, y + yModelOffset, z + zModelOffset);
+					// same float results as translating a matrix stack
+					final float bx = x + xModelOffset;
+					final float by = y + yModelOffset;
+					final float bz = z + zModelOffset;
 
 					if (hasFluid) {
-						context.renderFluid(blockState, searchPos, false, FluidQuadSupplier.get(fluidState.getFluid()), matrixStack);
+						context.renderFluid(blockState, searchPos, false, FluidQuadSupplier.get(fluidState.getFluid()), bx, by, bz);
 					}
 
 					if (hasBlock) {
+						float ox = bx, oy = by, oz = bz;
+
 						if (blockState.getBlock().getOffsetType() != Block.OffsetType.NONE) {
 							final Vec3d vec3d = blockState.getModelOffset(region, searchPos);
 
 							if (vec3d != Vec3d.ZERO) {
-								matrixStack.translate(vec3d.x, vec3d.y, vec3d.z);
+								ox += (float) vec3d.x;
+								oy += (float) vec3d.y;
+								oz += (float) vec3d.z;
 							}
 						}
 
-						final BakedModel model = blockRenderManager.getModel(blockState);
-						context.renderBlock(blockState, searchPos, model.useAmbientOcclusion(), (FabricBakedModel) model, matrixStack);
+						final BakedModel model = models.apply(blockState);
+						context.renderBlock(blockState, searchPos, model.useAmbientOcclusion(), (FabricBakedModel) model, ox, oy, oz);
 					}
-
-					matrixStack.pop();
 				}
 			}
 		}
-
-		regionData.endBuffering((float) (cameraPos.x - xOrigin + xModelOffset), (float) (cameraPos.y - yOrigin + yModelOffset), (float) (cameraPos.z - zOrigin + zModelOffset), collectors);
-
-		if (ChunkRebuildCounters.ENABLED) {
-			ChunkRebuildCounters.completeChunk();
-		}
 	}
 
 	private void handleBlockEntities(RegionData regionData, TerrainRenderContext context) {
@@ -678,6 +756,9 @@ public class BuiltRenderRegion {
 		final TerrainRenderContext context = renderRegionBuilder.mainThreadContext.prepareRegion(region);
 		final RegionData regionData = buildRegionData(context, isNear());
 
+		// anything built earlier on a worker is now stale
+		renderRegionBuilder.uploads.discard(this);
+
 		buildTerrain(context, regionData);
 
 		if (ChunkRebuildCounters.ENABLED) {
@@ -16,6 +16,7 @@
 
 package grondag.canvas.terrain.region;
 
+import static grondag.canvas.terrain.util.RenderRegionAddressHelper.AIR;
 import static grondag.canvas.terrain.util.RenderRegionAddressHelper.EXTERIOR_CACHE_SIZE;
 import static grondag.canvas.terrain.util.RenderRegionAddressHelper.INTERIOR_CACHE_SIZE;
 import static grondag.canvas.terrain.util.RenderRegionAddressHelper.TOTAL_CACHE_SIZE;
@@ -34,6 +35,7 @@ import net.minecraft.client.render.WorldRenderer;
 import net.minecraft.fluid.FluidState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.LightType;
 import net.minecraft.world.chunk.light.LightingProvider;
 import net.minecraft.world.level.ColorResolver;
@@ -60,7 +62,7 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 	public final TerrainRenderContext terrainContext;
 	protected final BlockPos.Mutable searchPos = new BlockPos.Mutable();
 	protected final Object[] renderData = new Object[INTERIOR_CACHE_SIZE];
-	private final BlockState[] states = new BlockState[TOTAL_CACHE_SIZE];
+	final BlockState[] states = new BlockState[TOTAL_CACHE_SIZE];
 	public final OcclusionRegion occlusion = new OcclusionRegion() {
 		@Override
 		protected BlockState blockStateAtIndex(int index) {
@@ -69,12 +71,14 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 
 		@Override
 		protected boolean closedAtRelativePos(BlockState blockState, int x, int y, int z) {
-			return blockState.isOpaqueFullCube(world, searchPos.set(originX + x, originY + y, originZ + z));
+			return blockState.isOpaqueFullCube(FastRenderRegion.this, searchPos.set(originX + x, originY + y, originZ + z));
 		}
 	};
 	// PERF: pack for reduced memory, better LOC
 	private final int[] aoCache = new int[TOTAL_CACHE_SIZE];
 	private final int[] lightCache = new int[TOTAL_CACHE_SIZE];
+	/** Non-null when replaying a captured region - world is then null. */
+	@Nullable private RegionSnapshot snapshot;
 
 	public FastRenderRegion(TerrainRenderContext terrainContext) {
 		this.terrainContext = terrainContext;
@@ -88,6 +92,7 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 		System.arraycopy(EMPTY_LIGHT_CACHE, 0, lightCache, 0, TOTAL_CACHE_SIZE);
 
 		world = protoRegion.world;
+		snapshot = null;
 
 		originX = protoRegion.originX;
 		originY = protoRegion.originY;
@@ -116,6 +121,47 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 		occlusion.prepare();
 	}
 
+	/**
+	 * Prepares from captured world data instead of a live world.
+	 */
+	public void prepare(RegionSnapshot snapshot) {
+		Arrays.fill(chunks, null);
+		System.arraycopy(EMPTY_BLOCK_ENTITIES, 0, blockEntities, 0, INTERIOR_CACHE_SIZE);
+		System.arraycopy(EMPTY_RENDER_DATA, 0, renderData, 0, INTERIOR_CACHE_SIZE);
+		System.arraycopy(EMPTY_AO_CACHE, 0, aoCache, 0, TOTAL_CACHE_SIZE);
+		System.arraycopy(snapshot.light, 0, lightCache, 0, TOTAL_CACHE_SIZE);
+		System.arraycopy(snapshot.states, 0, states, 0, TOTAL_CACHE_SIZE);
+
+		world = null;
+		this.snapshot = snapshot;
+
+		originX = snapshot.originX;
+		originY = snapshot.originY;
+		originZ = snapshot.originZ;
+
+		chunkBaseX = (originX >> 4) - 1;
+		chunkBaseY = (originY >> 4) - 1;
+		chunkBaseZ = (originZ >> 4) - 1;
+
+		final ShortArrayList blockEntityPos = snapshot.blockEntityPos;
+		final ObjectArrayList<BlockEntity> blockEntities = snapshot.blockEntities();
+		final int limit = blockEntityPos.size();
+
+		for (int i = 0; i < limit; i++) {
+			this.blockEntities[blockEntityPos.getShort(i)] = blockEntities.get(i);
+		}
+
+		occlusion.prepare();
+	}
+
+	/**
+	 * Captures world inputs of this region for later replay. Call after prepare from a live world.
+	 */
+	public RegionSnapshot snapshot(Vec3d cameraPos) {
+		assert world != null;
+		return RegionSnapshot.capture(this, cameraPos);
+	}
+
 	private void copyBeData(ProtoRenderRegion protoRegion) {
 		final ShortArrayList blockEntityPos = protoRegion.blockEntityPos;
 
@@ -145,7 +191,7 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 		final int i = blockIndex(pos.getX(), pos.getY(), pos.getZ());
 
 		if (i == -1) {
-			return world.getBlockState(pos);
+			return snapshot == null ? world.getBlockState(pos) : AIR;
 		}
 
 		return states[i];
@@ -155,7 +201,7 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 		final int i = blockIndex(x, y, z);
 
 		if (i == -1) {
-			return world.getBlockState(searchPos.set(x, y, z));
+			return snapshot == null ? world.getBlockState(searchPos.set(x, y, z)) : AIR;
 		}
 
 		return states[i];
@@ -171,7 +217,11 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 	@Override
 	@Nullable
 	public BlockEntity getBlockEntity(BlockPos pos) {
-		return isInMainChunk(pos) ? blockEntities[interiorIndex(pos)] : world.getBlockEntity(pos);
+		if (isInMainChunk(pos)) {
+			return blockEntities[interiorIndex(pos)];
+		}
+
+		return snapshot == null ? world.getBlockEntity(pos) : null;
 	}
 
 	@Override
@@ -181,6 +231,10 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 
 	@Override
 	public int getLightLevel(LightType type, BlockPos pos) {
+		if (snapshot != null) {
+			return snapshot.lightLevel(type, blockIndex(pos.getX(), pos.getY(), pos.getZ()));
+		}
+
 		return world.getLightLevel(type, pos);
 	}
 
@@ -217,6 +271,11 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 	}
 
 	public int directBrightness(BlockPos pos) {
+		if (snapshot != null) {
+			final int i = blockIndex(pos.getX(), pos.getY(), pos.getZ());
+			return i == -1 ? RegionSnapshot.OPEN_SKY_LIGHT : snapshot.light[i];
+		}
+
 		return WorldRenderer.getLightmapCoordinates(world, getBlockState(pos), pos);
 	}
 
@@ -224,7 +283,7 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 	// Vanilla now computes diffuse shading at chunk bake time and consumes this value in AO calc
 	@Override
 	public float getBrightness(Direction direction, boolean shaded) {
-		return world.getBrightness(direction, shaded);
+		return snapshot == null ? world.getBrightness(direction, shaded) : snapshot.shade(direction, shaded);
 	}
 
 	public int cachedAoLevel(int cacheIndex) {
@@ -249,9 +308,12 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 		return result;
 	}
 
+	/**
+	 * Null when replaying a captured region.
+	 */
 	@Override
 	public LightingProvider getLightingProvider() {
-		return world.getLightingProvider();
+		return snapshot == null ? world.getLightingProvider() : null;
 	}
 
 	@Override
@@ -259,6 +321,10 @@ public class FastRenderRegion extends AbstractRenderRegion implements RenderAtta
 		final int x = blockPos.getX();
 		final int z = blockPos.getZ();
 
+		if (snapshot != null) {
+			return snapshot.color(x, z, colorResolver);
+		}
+
 		final int result = ChunkColorCache.get(getChunk(x >> 4, z >> 4)).getColor(x, blockPos.getY(), z, colorResolver);
 
 		return result;
@@ -29,7 +29,6 @@ import static grondag.canvas.terrain.util.RenderRegionAddressHelper.localZEdgeIn
 import static grondag.canvas.terrain.util.RenderRegionAddressHelper.localZfaceIndex;
 
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.shorts.ShortArrayList;
@@ -44,6 +43,7 @@ import net.minecraft.world.chunk.WorldChunk;
 import net.fabricmc.fabric.api.rendering.data.v1.RenderAttachmentBlockEntity;
 
 import grondag.canvas.perf.ChunkRebuildCounters;
+import grondag.canvas.terrain.util.AdaptiveObjectPool;
 import grondag.canvas.terrain.util.ChunkPaletteCopier;
 import grondag.canvas.terrain.util.ChunkPaletteCopier.PaletteCopy;
 
@@ -64,7 +64,12 @@ public class ProtoRenderRegion extends AbstractRenderRegion {
 	 * Signals that build is for empty chunk.
 	 */
 	public static final ProtoRenderRegion EMPTY = new DummyRegion();
-	private static final ArrayBlockingQueue<ProtoRenderRegion> POOL = new ArrayBlockingQueue<>(256);
+	/**
+	 * Approximate heap retained by a pooled instance - mostly the exterior state cache,
+	 * assuming compressed references.
+	 */
+	private static final int INSTANCE_BYTES = EXTERIOR_CACHE_SIZE * 4 + 512;
+	private static final AdaptiveObjectPool<ProtoRenderRegion> POOL = new AdaptiveObjectPool<>(ProtoRenderRegion::new, 8, 1024, INSTANCE_BYTES);
 	public final ObjectArrayList<BlockEntity> blockEntities = new ObjectArrayList<>();
 	final BlockState[] states = new BlockState[EXTERIOR_CACHE_SIZE];
 	final ShortArrayList renderDataPos = new ShortArrayList();
@@ -73,12 +78,29 @@ public class ProtoRenderRegion extends AbstractRenderRegion {
 	PaletteCopy mainSectionCopy;
 
 	public static ProtoRenderRegion claim(ClientWorld world, BlockPos origin) {
-		final ProtoRenderRegion result = POOL.poll();
-		return (result == null ? new ProtoRenderRegion() : result).prepare(world, origin);
+		return POOL.claim().prepare(world, origin);
 	}
 
 	private static void release(ProtoRenderRegion region) {
-		POOL.offer(region);
+		POOL.release(region);
+	}
+
+	/**
+	 * Pool retains at least this many instances when idle.
+	 */
+	public static void setMinimumPoolSize(int size) {
+		POOL.setLowWatermark(size);
+	}
+
+	/**
+	 * Call once per frame to resize the pool to recent demand.
+	 */
+	public static void updatePool() {
+		POOL.update();
+	}
+
+	public static String getPoolDebugString() {
+		return POOL.debugString("Region copy");
 	}
 
 	public static void reload() {
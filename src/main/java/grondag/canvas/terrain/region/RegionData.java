@@ -36,12 +36,17 @@ public class RegionData {
 	/** value for new regions that never been built or have been built and then closed. */
 	public static final RegionData UNBUILT = new RegionData();
 
+	private static final int[] EMPTY_SPRITES = new int[0];
+
 	final ObjectArrayList<BlockEntity> blockEntities = new ObjectArrayList<>();
 	int[] occlusionData = OcclusionRegion.EMPTY_CULL_DATA;
 
 	@Nullable
 	int[] translucentState;
 
+	/** Tracked animated sprites referenced by the region's terrain, for skipping animation while hidden. */
+	int[] animatedSprites = EMPTY_SPRITES;
+
 	public List<BlockEntity> getBlockEntities() {
 		return blockEntities;
 	}
@@ -53,6 +58,12 @@ public class RegionData {
 			buffer.sortQuads(x, y, z);
 			translucentState = buffer.saveState(translucentState);
 		}
+
+		animatedSprites = buffers.animatedSprites.toArray();
+	}
+
+	public int[] getAnimatedSprites() {
+		return animatedSprites;
 	}
 
 	public int[] getOcclusionData() {
@@ -0,0 +1,279 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.region;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.block.BlockRenderManager;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.util.math.Vec3d;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.fabricmc.loader.api.FabricLoader;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.Configurator;
+import grondag.canvas.apiimpl.rendercontext.TerrainRenderContext;
+import grondag.canvas.buffer.encoding.VertexCollectorImpl;
+import grondag.canvas.buffer.encoding.VertexCollectorList;
+import grondag.canvas.terrain.util.TerrainModelSpace;
+
+/**
+ * Captures region build inputs to disk and replays them through the terrain build
+ * without a world or GL context, reporting time per stage and a checksum of the output.
+ *
+ * <p>Stages are: prepare - copy of captured data into the region and light smoothing;
+ * occlusion - occlusion data build; tesselate - block and fluid rendering into vertex
+ * collectors; encode - translucent sort and copy of vertex data into a transfer buffer.
+ * The checksum covers occlusion data and encoded vertex data, so it changes whenever
+ * build output changes.
+ *
+ * <p>Replay needs block and fluid registries and a model source but nothing else from
+ * the client. In-game, the capture key records the next regions built after a full
+ * reload, saves them, and replays the saved file with the live models.
+ */
+@Environment(EnvType.CLIENT)
+public class RegionReplay {
+	/** Regions recorded per capture request. */
+	private static final int CAPTURE_COUNT = 64;
+
+	/** Replay passes run after a capture; the first warms up. */
+	private static final int CAPTURE_REPLAY_ITERATIONS = 4;
+
+	private static final AtomicInteger captureSlots = new AtomicInteger();
+	private static final AtomicInteger captureCount = new AtomicInteger();
+	private static final ConcurrentLinkedQueue<RegionSnapshot> captured = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Call from render thread. Starts a capture if the key was pressed.
+	 */
+	public static void handleInput() {
+		while (CanvasMod.CAPTURE_REGIONS.wasPressed()) {
+			requestCapture();
+		}
+	}
+
+	/**
+	 * Reloads terrain and records the next {@link #CAPTURE_COUNT} regions built.
+	 */
+	public static void requestCapture() {
+		assert RenderSystem.isOnRenderThread();
+
+		if (captureSlots.get() > 0) {
+			return;
+		}
+
+		captured.clear();
+		captureCount.set(0);
+		captureSlots.set(CAPTURE_COUNT);
+		CanvasMod.LOG.info("Capturing next " + CAPTURE_COUNT + " terrain regions built");
+		MinecraftClient.getInstance().worldRenderer.reload();
+	}
+
+	public static boolean isCapturing() {
+		return captureSlots.get() > 0;
+	}
+
+	/**
+	 * Call from build thread after region is prepared and before it is built.
+	 */
+	static void capture(FastRenderRegion region, Vec3d cameraPos) {
+		if (captureSlots.getAndDecrement() <= 0) {
+			return;
+		}
+
+		captured.add(region.snapshot(cameraPos));
+
+		if (captureCount.incrementAndGet() == CAPTURE_COUNT) {
+			final ObjectArrayList<RegionSnapshot> snapshots = new ObjectArrayList<>(captured);
+			captured.clear();
+
+			final Thread thread = new Thread(() -> saveAndReplay(snapshots), "Canvas Region Replay");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private static void saveAndReplay(List<RegionSnapshot> snapshots) {
+		final File dir = FabricLoader.getInstance().getGameDirectory().toPath().normalize().resolve("canvas_region_capture").toFile();
+		final File file = new File(dir, "regions-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".nbt");
+
+		try {
+			dir.mkdirs();
+
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+				RegionSnapshot.write(snapshots, out);
+			}
+
+			CanvasMod.LOG.info("Saved " + snapshots.size() + " terrain regions to " + file);
+
+			final List<RegionSnapshot> loaded;
+
+			try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+				loaded = RegionSnapshot.read(in);
+			}
+
+			final BlockRenderManager blockRenderManager = MinecraftClient.getInstance().getBlockRenderManager();
+			CanvasMod.LOG.info("Replay of " + file.getName() + ": " + run(loaded, blockRenderManager::getModel, CAPTURE_REPLAY_ITERATIONS));
+		} catch (final Exception e) {
+			CanvasMod.LOG.error("Unable to save or replay captured terrain regions", e);
+		}
+	}
+
+	/**
+	 * Builds every snapshot the given number of times. Timings are from the last pass.
+	 * Uses current configuration for light smoothing and batched rendering.
+	 *
+	 * @param models model source, normally {@link BlockRenderManager#getModel(BlockState)}
+	 */
+	public static Result run(List<RegionSnapshot> snapshots, Function<BlockState, BakedModel> models, int iterations) {
+		final TerrainRenderContext context = new TerrainRenderContext();
+		final Result result = new Result(snapshots.size());
+		final CRC32 crc = new CRC32();
+		ByteBuffer transfer = ByteBuffer.allocate(0x10000);
+
+		try {
+			for (int pass = 0; pass < iterations; ++pass) {
+				result.clear();
+				crc.reset();
+
+				for (final RegionSnapshot snapshot : snapshots) {
+					long start = System.nanoTime();
+					context.prepareRegion(snapshot);
+					long end = System.nanoTime();
+					result.prepareNanos += end - start;
+
+					start = end;
+					final int[] occlusionData = context.region.occlusion.build(true);
+					end = System.nanoTime();
+					result.occlusionNanos += end - start;
+
+					transfer = ensureCapacity(transfer, occlusionData.length * 4);
+					transfer.asIntBuffer().put(occlusionData);
+					crc.update(transfer.array(), 0, occlusionData.length * 4);
+
+					final int xModelOffset, yModelOffset, zModelOffset;
+
+					if (Configurator.batchedChunkRender) {
+						xModelOffset = TerrainModelSpace.renderCubeRelative(snapshot.originX);
+						yModelOffset = TerrainModelSpace.renderCubeRelative(snapshot.originY);
+						zModelOffset = TerrainModelSpace.renderCubeRelative(snapshot.originZ);
+					} else {
+						xModelOffset = 0;
+						yModelOffset = 0;
+						zModelOffset = 0;
+					}
+
+					start = end;
+					context.farFoliage = false;
+					BuiltRenderRegion.tesselate(context, xModelOffset, yModelOffset, zModelOffset, models);
+					end = System.nanoTime();
+					result.tesselateNanos += end - start;
+
+					start = end;
+					final VertexCollectorList collectors = context.collectors;
+					new RegionData().endBuffering(snapshot.cameraX + xModelOffset, snapshot.cameraY + yModelOffset, snapshot.cameraZ + zModelOffset, collectors);
+					final ObjectArrayList<VertexCollectorImpl> drawList = collectors.sortedDrawList(m -> true);
+					final int bytes = collectors.totalBytes(false) + collectors.totalBytes(true);
+					transfer = ensureCapacity(transfer, bytes);
+					final IntBuffer intBuffer = transfer.asIntBuffer();
+
+					for (final VertexCollectorImpl collector : drawList) {
+						collector.toBuffer(intBuffer);
+						result.quadCount += collector.quadCount();
+					}
+
+					end = System.nanoTime();
+					result.encodeNanos += end - start;
+
+					crc.update(transfer.array(), 0, bytes);
+					collectors.clear();
+				}
+
+				final long checksum = crc.getValue();
+
+				if (pass == 0) {
+					result.checksum = checksum;
+				} else if (checksum != result.checksum) {
+					result.deterministic = false;
+				}
+			}
+		} finally {
+			context.close();
+		}
+
+		return result;
+	}
+
+	private static ByteBuffer ensureCapacity(ByteBuffer buffer, int bytes) {
+		return buffer.capacity() >= bytes ? buffer : ByteBuffer.allocate(Integer.highestOneBit(bytes) << 1);
+	}
+
+	public static class Result {
+		public final int regionCount;
+		public long prepareNanos;
+		public long occlusionNanos;
+		public long tesselateNanos;
+		public long encodeNanos;
+		public int quadCount;
+		public long checksum;
+
+		/** False if any pass produced a different checksum than the first. */
+		public boolean deterministic = true;
+
+		private Result(int regionCount) {
+			this.regionCount = regionCount;
+		}
+
+		private void clear() {
+			prepareNanos = 0;
+			occlusionNanos = 0;
+			tesselateNanos = 0;
+			encodeNanos = 0;
+			quadCount = 0;
+		}
+
+		@Override
+		public String toString() {
+			final int n = Math.max(1, regionCount);
+
+			return String.format("%d regions  %d quads  per region: prepare %,dns  occlusion %,dns  tesselate %,dns  encode %,dns  checksum %08x%s",
+				regionCount, quadCount, prepareNanos / n, occlusionNanos / n, tesselateNanos / n, encodeNanos / n, checksum, deterministic ? "" : " (NOT DETERMINISTIC)");
+		}
+	}
+}
@@ -0,0 +1,353 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.region;
+
+import static grondag.canvas.terrain.util.RenderRegionAddressHelper.INTERIOR_CACHE_SIZE;
+import static grondag.canvas.terrain.util.RenderRegionAddressHelper.TOTAL_CACHE_SIZE;
+import static grondag.canvas.terrain.util.RenderRegionAddressHelper.cacheIndexToXyz5;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.client.render.WorldRenderer;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.BlockRenderView;
+import net.minecraft.world.LightType;
+import net.minecraft.world.biome.BiomeColors;
+import net.minecraft.world.level.ColorResolver;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+
+import grondag.canvas.CanvasMod;
+
+/**
+ * World inputs to a region build, captured so the build can be replayed without a world.
+ *
+ * <p>Holds block states for the full region cache including the one-block exterior,
+ * packed light for the same, resolved grass, foliage and water colors per column,
+ * directional shading, and block entity data for the interior. Block entity render
+ * attachments are arbitrary objects and are not captured. Light for positions outside
+ * the cache is treated as open sky.
+ *
+ * <p>Snapshots are stored as compressed NBT so that files remain readable across
+ * sessions with different block state ids.
+ */
+@Environment(EnvType.CLIENT)
+public class RegionSnapshot {
+	public static final int FORMAT_VERSION = 1;
+
+	/** Color columns include the exterior, so 18 x 18. */
+	static final int COLOR_SPAN = 18;
+	static final int COLOR_COUNT = COLOR_SPAN * COLOR_SPAN;
+
+	/** Packed light for a position outside the cache: no block light, full sky light. */
+	static final int OPEN_SKY_LIGHT = 15 << 20;
+
+	final int originX;
+	final int originY;
+	final int originZ;
+	final float cameraX;
+	final float cameraY;
+	final float cameraZ;
+	final BlockState[] states;
+	final int[] light;
+	final int[] grassColors;
+	final int[] foliageColors;
+	final int[] waterColors;
+	final float[] shade;
+	final ShortArrayList blockEntityPos;
+	final ObjectArrayList<CompoundTag> blockEntityTags;
+
+	// created on demand because block entity creation needs registries
+	private ObjectArrayList<BlockEntity> blockEntities;
+
+	private RegionSnapshot(int originX, int originY, int originZ, float cameraX, float cameraY, float cameraZ,
+			BlockState[] states, int[] light, int[] grassColors, int[] foliageColors, int[] waterColors, float[] shade,
+			ShortArrayList blockEntityPos, ObjectArrayList<CompoundTag> blockEntityTags) {
+		this.originX = originX;
+		this.originY = originY;
+		this.originZ = originZ;
+		this.cameraX = cameraX;
+		this.cameraY = cameraY;
+		this.cameraZ = cameraZ;
+		this.states = states;
+		this.light = light;
+		this.grassColors = grassColors;
+		this.foliageColors = foliageColors;
+		this.waterColors = waterColors;
+		this.shade = shade;
+		this.blockEntityPos = blockEntityPos;
+		this.blockEntityTags = blockEntityTags;
+	}
+
+	/**
+	 * Captures a region that has been prepared from a live world. Reads light and biome
+	 * colors from the world, so call from the thread that builds the region.
+	 *
+	 * @param cameraPos camera position used for translucent sorting when replayed
+	 */
+	static RegionSnapshot capture(FastRenderRegion region, Vec3d cameraPos) {
+		final BlockPos.Mutable searchPos = new BlockPos.Mutable();
+		final int originX = region.originX;
+		final int originY = region.originY;
+		final int originZ = region.originZ;
+
+		final BlockState[] states = new BlockState[TOTAL_CACHE_SIZE];
+		System.arraycopy(region.states, 0, states, 0, TOTAL_CACHE_SIZE);
+
+		final int[] light = new int[TOTAL_CACHE_SIZE];
+
+		for (int i = 0; i < TOTAL_CACHE_SIZE; ++i) {
+			final int packedXyz5 = cacheIndexToXyz5(i);
+			final int x = (packedXyz5 & 31) - 1 + originX;
+			final int y = ((packedXyz5 >> 5) & 31) - 1 + originY;
+			final int z = (packedXyz5 >> 10) - 1 + originZ;
+			light[i] = WorldRenderer.getLightmapCoordinates(region.world, states[i], searchPos.set(x, y, z));
+		}
+
+		final int[] grassColors = captureColors(region, searchPos, originX, originY, originZ, BiomeColors.GRASS_COLOR);
+		final int[] foliageColors = captureColors(region, searchPos, originX, originY, originZ, BiomeColors.FOLIAGE_COLOR);
+		final int[] waterColors = captureColors(region, searchPos, originX, originY, originZ, BiomeColors.WATER_COLOR);
+
+		final float[] shade = new float[12];
+
+		for (final Direction face : Direction.values()) {
+			shade[face.ordinal() * 2] = region.world.getBrightness(face, false);
+			shade[face.ordinal() * 2 + 1] = region.world.getBrightness(face, true);
+		}
+
+		final ShortArrayList blockEntityPos = new ShortArrayList();
+		final ObjectArrayList<CompoundTag> blockEntityTags = new ObjectArrayList<>();
+
+		for (int i = 0; i < INTERIOR_CACHE_SIZE; ++i) {
+			final BlockEntity be = region.blockEntities[i];
+
+			if (be != null) {
+				try {
+					blockEntityTags.add(be.toTag(new CompoundTag()));
+					blockEntityPos.add((short) i);
+				} catch (final Exception e) {
+					CanvasMod.LOG.warn("Unable to capture block entity at " + be.getPos().toShortString(), e);
+				}
+			}
+		}
+
+		return new RegionSnapshot(originX, originY, originZ,
+				(float) (cameraPos.x - originX), (float) (cameraPos.y - originY), (float) (cameraPos.z - originZ),
+				states, light, grassColors, foliageColors, waterColors, shade, blockEntityPos, blockEntityTags);
+	}
+
+	private static int[] captureColors(BlockRenderView world, BlockPos.Mutable searchPos, int originX, int originY, int originZ, ColorResolver resolver) {
+		final int[] result = new int[COLOR_COUNT];
+
+		for (int x = 0; x < COLOR_SPAN; ++x) {
+			for (int z = 0; z < COLOR_SPAN; ++z) {
+				result[x + z * COLOR_SPAN] = world.getColor(searchPos.set(originX + x - 1, originY, originZ + z - 1), resolver);
+			}
+		}
+
+		return result;
+	}
+
+	int color(int x, int z, ColorResolver resolver) {
+		final int[] colors;
+
+		if (resolver == BiomeColors.GRASS_COLOR) {
+			colors = grassColors;
+		} else if (resolver == BiomeColors.FOLIAGE_COLOR) {
+			colors = foliageColors;
+		} else if (resolver == BiomeColors.WATER_COLOR) {
+			colors = waterColors;
+		} else {
+			return 0xFFFFFF;
+		}
+
+		final int cx = Math.max(0, Math.min(COLOR_SPAN - 1, x - originX + 1));
+		final int cz = Math.max(0, Math.min(COLOR_SPAN - 1, z - originZ + 1));
+		return colors[cx + cz * COLOR_SPAN];
+	}
+
+	/**
+	 * Light level of one type from packed light at the cache index.
+	 * Use -1 for positions outside the cache.
+	 */
+	int lightLevel(LightType type, int cacheIndex) {
+		final int packed = cacheIndex == -1 ? OPEN_SKY_LIGHT : light[cacheIndex];
+		return type == LightType.SKY ? (packed >> 20) & 0xF : (packed >> 4) & 0xF;
+	}
+
+	float shade(Direction face, boolean shaded) {
+		return shade[face.ordinal() * 2 + (shaded ? 1 : 0)];
+	}
+
+	/** Block entities in the same order as {@link #blockEntityPos}. Null for any that could not be created. */
+	ObjectArrayList<BlockEntity> blockEntities() {
+		ObjectArrayList<BlockEntity> result = blockEntities;
+
+		if (result == null) {
+			result = new ObjectArrayList<>(blockEntityTags.size());
+
+			for (int i = 0; i < blockEntityTags.size(); ++i) {
+				final int index = blockEntityPos.getShort(i);
+				result.add(BlockEntity.createFromTag(states[index], blockEntityTags.get(i)));
+			}
+
+			blockEntities = result;
+		}
+
+		return result;
+	}
+
+	CompoundTag toTag() {
+		final CompoundTag tag = new CompoundTag();
+		tag.putIntArray("origin", new int[] {originX, originY, originZ});
+		tag.putIntArray("camera", new int[] {Float.floatToRawIntBits(cameraX), Float.floatToRawIntBits(cameraY), Float.floatToRawIntBits(cameraZ)});
+
+		// palette keeps files independent of block state ids
+		final Object2IntOpenHashMap<BlockState> paletteMap = new Object2IntOpenHashMap<>();
+		final ListTag palette = new ListTag();
+		final int[] stateIndex = new int[TOTAL_CACHE_SIZE];
+
+		for (int i = 0; i < TOTAL_CACHE_SIZE; ++i) {
+			final BlockState state = states[i];
+			int index = paletteMap.getOrDefault(state, -1);
+
+			if (index == -1) {
+				index = palette.size();
+				paletteMap.put(state, index);
+				palette.add(NbtHelper.fromBlockState(state));
+			}
+
+			stateIndex[i] = index;
+		}
+
+		tag.put("palette", palette);
+		tag.putIntArray("states", stateIndex);
+		tag.putIntArray("light", light);
+		tag.putIntArray("grass", grassColors);
+		tag.putIntArray("foliage", foliageColors);
+		tag.putIntArray("water", waterColors);
+
+		final int[] shadeBits = new int[shade.length];
+
+		for (int i = 0; i < shade.length; ++i) {
+			shadeBits[i] = Float.floatToRawIntBits(shade[i]);
+		}
+
+		tag.putIntArray("shade", shadeBits);
+
+		final ListTag blockEntities = new ListTag();
+
+		for (int i = 0; i < blockEntityTags.size(); ++i) {
+			final CompoundTag be = new CompoundTag();
+			be.putShort("index", blockEntityPos.getShort(i));
+			be.put("data", blockEntityTags.get(i));
+			blockEntities.add(be);
+		}
+
+		tag.put("blockEntities", blockEntities);
+		return tag;
+	}
+
+	static RegionSnapshot fromTag(CompoundTag tag) {
+		final int[] origin = tag.getIntArray("origin");
+		final int[] camera = tag.getIntArray("camera");
+
+		final ListTag palette = tag.getList("palette", 10);
+		final BlockState[] paletteStates = new BlockState[palette.size()];
+
+		for (int i = 0; i < paletteStates.length; ++i) {
+			paletteStates[i] = NbtHelper.toBlockState(palette.getCompound(i));
+		}
+
+		final int[] stateIndex = tag.getIntArray("states");
+		final BlockState[] states = new BlockState[TOTAL_CACHE_SIZE];
+
+		for (int i = 0; i < TOTAL_CACHE_SIZE; ++i) {
+			states[i] = paletteStates[stateIndex[i]];
+		}
+
+		final int[] shadeBits = tag.getIntArray("shade");
+		final float[] shade = new float[shadeBits.length];
+
+		for (int i = 0; i < shade.length; ++i) {
+			shade[i] = Float.intBitsToFloat(shadeBits[i]);
+		}
+
+		final ListTag blockEntities = tag.getList("blockEntities", 10);
+		final ShortArrayList blockEntityPos = new ShortArrayList(blockEntities.size());
+		final ObjectArrayList<CompoundTag> blockEntityTags = new ObjectArrayList<>(blockEntities.size());
+
+		for (int i = 0; i < blockEntities.size(); ++i) {
+			final CompoundTag be = blockEntities.getCompound(i);
+			blockEntityPos.add(be.getShort("index"));
+			blockEntityTags.add(be.getCompound("data"));
+		}
+
+		return new RegionSnapshot(origin[0], origin[1], origin[2],
+				Float.intBitsToFloat(camera[0]), Float.intBitsToFloat(camera[1]), Float.intBitsToFloat(camera[2]),
+				states, tag.getIntArray("light"), tag.getIntArray("grass"), tag.getIntArray("foliage"), tag.getIntArray("water"), shade,
+				blockEntityPos, blockEntityTags);
+	}
+
+	public static void write(List<RegionSnapshot> snapshots, OutputStream out) throws IOException {
+		final CompoundTag tag = new CompoundTag();
+		tag.putInt("version", FORMAT_VERSION);
+
+		final ListTag regions = new ListTag();
+
+		for (final RegionSnapshot snapshot : snapshots) {
+			regions.add(snapshot.toTag());
+		}
+
+		tag.put("regions", regions);
+		NbtIo.writeCompressed(tag, out);
+	}
+
+	public static List<RegionSnapshot> read(InputStream in) throws IOException {
+		final CompoundTag tag = NbtIo.readCompressed(in);
+		final int version = tag.getInt("version");
+
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported region capture version " + version);
+		}
+
+		final ListTag regions = tag.getList("regions", 10);
+		final ObjectArrayList<RegionSnapshot> result = new ObjectArrayList<>(regions.size());
+
+		for (int i = 0; i < regions.size(); ++i) {
+			result.add(fromTag(regions.getCompound(i)));
+		}
+
+		return result;
+	}
+}
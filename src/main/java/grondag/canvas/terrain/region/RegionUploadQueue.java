@@ -0,0 +1,228 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.region;
+
+import java.util.Comparator;
+import java.util.Queue;
+
+import com.google.common.collect.Queues;
+import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import grondag.canvas.Configurator;
+import grondag.canvas.terrain.render.UploadableChunk;
+
+/**
+ * Holds finished region builds until the render thread uploads them.
+ *
+ * <p>Worker threads add uploads concurrently. On the render thread, a newer upload for a region
+ * replaces any upload still pending for that region, releasing the stale buffers.  A translucent
+ * resort only replaces translucent content, so a pending full rebuild keeps its solid content.
+ *
+ * <p>Each frame, pending uploads are ordered with near regions first, then regions recently seen
+ * in the view, then everything else, and by distance within each group.  Near regions are
+ * always uploaded. Others are uploaded until the configured byte budget is used up, but at
+ * least one is uploaded each frame so that oversize uploads can't stall the queue.
+ */
+public class RegionUploadQueue {
+	private static final int TIER_NEAR = 0;
+	private static final int TIER_VISIBLE = 1;
+	private static final int TIER_OTHER = 2;
+
+	private final Queue<Upload> incoming = Queues.newConcurrentLinkedQueue();
+
+	// render thread only
+	private final Reference2ObjectOpenHashMap<BuiltRenderRegion, Upload> pending = new Reference2ObjectOpenHashMap<>();
+	private final ObjectArrayList<Upload> sortList = new ObjectArrayList<>();
+	private long sequence = 0;
+	private int pendingBytes = 0;
+
+	private static final Comparator<Upload> COMPARATOR = (a, b) -> {
+		final int result = Long.compare(a.priority, b.priority);
+		return result == 0 ? Long.compare(a.sequence, b.sequence) : result;
+	};
+
+	/**
+	 * Call from any thread.
+	 *
+	 * @param solid new solid content or {@code null} if solid content is unchanged
+	 * @param translucent new translucent content
+	 */
+	void add(BuiltRenderRegion region, @Nullable UploadableChunk solid, UploadableChunk translucent) {
+		incoming.offer(new Upload(region, solid, translucent));
+	}
+
+	/**
+	 * Uploads pending region content in priority order until the byte budget is exhausted.
+	 *
+	 * @return true if anything was uploaded
+	 */
+	public boolean upload() {
+		assert RenderSystem.isOnRenderThread();
+
+		drainIncoming();
+
+		if (pending.isEmpty()) {
+			return false;
+		}
+
+		final ObjectArrayList<Upload> sortList = this.sortList;
+
+		for (final Upload upload : pending.values()) {
+			upload.updatePriority();
+			sortList.add(upload);
+		}
+
+		sortList.sort(COMPARATOR);
+
+		final int limit = sortList.size();
+		final long budget = Configurator.uploadBudgetMegabytes * 0x100000L;
+		long bytes = 0;
+		boolean didUpload = false;
+
+		for (int i = 0; i < limit; ++i) {
+			final Upload upload = sortList.get(i);
+
+			if (didUpload && bytes >= budget && upload.tier() != TIER_NEAR) {
+				break;
+			}
+
+			bytes += upload.bytes();
+			pending.remove(upload.region);
+			pendingBytes -= upload.bytes();
+			upload.region.applyUpload(upload.solid, upload.translucent);
+			didUpload = true;
+		}
+
+		sortList.clear();
+		return didUpload;
+	}
+
+	private void drainIncoming() {
+		Upload upload = incoming.poll();
+
+		while (upload != null) {
+			final Upload prior = pending.get(upload.region);
+
+			if (prior == null) {
+				upload.sequence = sequence++;
+				pending.put(upload.region, upload);
+				pendingBytes += upload.bytes();
+			} else {
+				pendingBytes -= prior.bytes();
+				prior.merge(upload);
+				pendingBytes += prior.bytes();
+			}
+
+			upload = incoming.poll();
+		}
+	}
+
+	/**
+	 * Drops any pending upload for the region. Call from render thread when the
+	 * region is closed or rebuilt directly.
+	 */
+	void discard(BuiltRenderRegion region) {
+		assert RenderSystem.isOnRenderThread();
+
+		drainIncoming();
+		final Upload upload = pending.remove(region);
+
+		if (upload != null) {
+			pendingBytes -= upload.bytes();
+			upload.close();
+		}
+	}
+
+	/**
+	 * Drops all pending uploads. Call from render thread.
+	 */
+	public void clear() {
+		assert RenderSystem.isOnRenderThread();
+
+		drainIncoming();
+
+		for (final Upload upload : pending.values()) {
+			upload.close();
+		}
+
+		pending.clear();
+		pendingBytes = 0;
+	}
+
+	/**
+	 * May not reflect uploads added since last render frame.
+	 */
+	public boolean isEmpty() {
+		return incoming.isEmpty() && pending.isEmpty();
+	}
+
+	public String getDebugString() {
+		return String.format("Pending uploads: %d  %dKB", pending.size(), pendingBytes / 1024);
+	}
+
+	private static class Upload {
+		private final BuiltRenderRegion region;
+		private @Nullable UploadableChunk solid;
+		private UploadableChunk translucent;
+		private long sequence;
+		private long priority;
+
+		private Upload(BuiltRenderRegion region, @Nullable UploadableChunk solid, UploadableChunk translucent) {
+			this.region = region;
+			this.solid = solid;
+			this.translucent = translucent;
+		}
+
+		private int bytes() {
+			return (solid == null ? 0 : solid.byteCount()) + translucent.byteCount();
+		}
+
+		/** Newer content replaces older. Sequence is retained so the region keeps its place in line. */
+		private void merge(Upload newer) {
+			if (newer.solid != null) {
+				if (solid != null) {
+					solid.close();
+				}
+
+				solid = newer.solid;
+			}
+
+			translucent.close();
+			translucent = newer.translucent;
+		}
+
+		private void close() {
+			if (solid != null) {
+				solid.close();
+			}
+
+			translucent.close();
+		}
+
+		private void updatePriority() {
+			final int tier = region.isNear() ? TIER_NEAR : region.isInFrustum() && region.wasRecentlySeen() ? TIER_VISIBLE : TIER_OTHER;
+			priority = ((long) tier << 32) | region.squaredChunkDistance();
+		}
+
+		private int tier() {
+			return (int) (priority >> 32);
+		}
+	}
+}
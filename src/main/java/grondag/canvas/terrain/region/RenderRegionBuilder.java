@@ -16,50 +16,40 @@
 
 package grondag.canvas.terrain.region;
 
-import java.util.Queue;
-
-import com.google.common.collect.Queues;
-import com.mojang.blaze3d.systems.RenderSystem;
-
 import grondag.canvas.apiimpl.rendercontext.TerrainRenderContext;
 import grondag.canvas.terrain.util.TerrainExecutor;
 
 public class RenderRegionBuilder {
 	public final TerrainExecutor executor = new TerrainExecutor();
-	private final Queue<Runnable> uploadQueue = Queues.newConcurrentLinkedQueue();
+	public final RegionUploadQueue uploads = new RegionUploadQueue();
 	// for use by render thread rebuilds
 	TerrainRenderContext mainThreadContext = new TerrainRenderContext();
 
+	public RenderRegionBuilder() {
+		// enough for every worker to hold one while another is queued
+		ProtoRenderRegion.setMinimumPoolSize(executor.workerCount() * 2);
+	}
+
 	public String getDebugString() {
-		return String.format("not available");
+		return uploads.getDebugString() + "  " + ProtoRenderRegion.getPoolDebugString();
 	}
 
+	/**
+	 * Call once per frame from render thread.
+	 */
 	public boolean upload() {
-		assert RenderSystem.isOnRenderThread();
-
-		Runnable task = uploadQueue.poll();
-
-		final boolean didRun = task != null;
-
-		while (task != null) {
-			task.run();
-			task = uploadQueue.poll();
-		}
-
-		return didRun;
+		ProtoRenderRegion.updatePool();
+		return uploads.upload();
 	}
 
 	public void reset() {
 		executor.clear();
+		uploads.clear();
 		mainThreadContext.close();
 		mainThreadContext = new TerrainRenderContext();
 	}
 
-	public void scheduleUpload(Runnable task) {
-		uploadQueue.offer(task);
-	}
-
 	public boolean isEmpty() {
-		return executor.isEmpty() && uploadQueue.isEmpty();
+		return executor.isEmpty() && uploads.isEmpty();
 	}
 }
@@ -0,0 +1,181 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.region;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Chooses which visible translucent regions to resort each frame.
+ *
+ * <p>Sort error is most visible where the view direction to the region's quads has changed
+ * the most since the last sort and where the region covers much of the screen. Regions are
+ * scored by angular camera displacement times approximate projected area times translucent
+ * quad count, and scheduled in score order until the per-frame quad budget is used up.
+ * Regions left waiting for {@link #STARVATION_FRAMES} evaluations go first regardless of score.
+ */
+public class TranslucentSortScheduler {
+	/** Translucent quads that may be scheduled for sorting per frame. At least one region is always scheduled. */
+	private static final int QUAD_BUDGET = 16384;
+
+	/** Evaluations a region can be passed over before it is scheduled ahead of higher scores. */
+	private static final int STARVATION_FRAMES = 30;
+
+	/** Squared distance the camera must move from the last sort position before a region needs a resort. */
+	private static final double MIN_DISPLACEMENT_SQ = 1.0;
+
+	/** Squared distance from region center below which the camera is treated as inside the region. */
+	private static final float MIN_DISTANCE_SQ = 64f;
+
+	private final ObjectArrayList<BuiltRenderRegion> candidates = new ObjectArrayList<>();
+	private float[] scores = new float[64];
+	private int[] quadCounts = new int[64];
+	private int positionVersion = -1;
+	private boolean hasBacklog = false;
+
+	/**
+	 * Call from render thread before translucent terrain is drawn.
+	 */
+	public void schedule(BuiltRenderRegion[] visibleRegions, int visibleRegionCount, int positionVersion, Vec3d cameraPos) {
+		assert RenderSystem.isOnRenderThread();
+
+		if (positionVersion == this.positionVersion && !hasBacklog) {
+			return;
+		}
+
+		this.positionVersion = positionVersion;
+		final ObjectArrayList<BuiltRenderRegion> candidates = this.candidates;
+
+		for (int i = 0; i < visibleRegionCount; ++i) {
+			final BuiltRenderRegion region = visibleRegions[i];
+
+			if (region == null) {
+				continue;
+			}
+
+			final Vec3d sortPos = region.sortCameraPos();
+			final int quadCount = sortPos == null ? 0 : region.translucentQuadCount();
+
+			if (quadCount == 0) {
+				continue;
+			}
+
+			final double displacementSq = sortPos.squaredDistanceTo(cameraPos);
+
+			if (displacementSq < MIN_DISPLACEMENT_SQ) {
+				region.sortWaitFrames = 0;
+				continue;
+			}
+
+			final int index = candidates.size();
+
+			if (index == scores.length) {
+				final int newSize = MathHelper.smallestEncompassingPowerOfTwo(index + 1);
+				final float[] newScores = new float[newSize];
+				System.arraycopy(scores, 0, newScores, 0, index);
+				scores = newScores;
+				final int[] newCounts = new int[newSize];
+				System.arraycopy(quadCounts, 0, newCounts, 0, index);
+				quadCounts = newCounts;
+			}
+
+			candidates.add(region);
+			scores[index] = score(displacementSq, region.cameraRelativeCenterX, region.cameraRelativeCenterY, region.cameraRelativeCenterZ, quadCount);
+			quadCounts[index] = quadCount;
+		}
+
+		final int limit = candidates.size();
+
+		if (limit == 0) {
+			hasBacklog = false;
+			return;
+		}
+
+		it.unimi.dsi.fastutil.Arrays.quickSort(0, limit, comparator, swapper);
+
+		int budget = QUAD_BUDGET;
+		int scheduled = 0;
+
+		for (int i = 0; i < limit; ++i) {
+			final BuiltRenderRegion region = candidates.get(i);
+
+			if ((scheduled == 0 || quadCounts[i] <= budget) && region.scheduleSort()) {
+				budget -= quadCounts[i];
+				region.sortWaitFrames = 0;
+				++scheduled;
+			} else {
+				++region.sortWaitFrames;
+			}
+		}
+
+		hasBacklog = scheduled < limit;
+		candidates.clear();
+	}
+
+	/**
+	 * Proportional to angular displacement of the camera as seen from the region,
+	 * times projected area of the region, times quad count.
+	 */
+	static float score(double displacementSq, float dx, float dy, float dz, int quadCount) {
+		final float distSq = Math.max(MIN_DISTANCE_SQ, dx * dx + dy * dy + dz * dz);
+		return (float) (displacementSq / distSq) / distSq * quadCount;
+	}
+
+	private boolean isStarved(int index) {
+		return candidates.get(index).sortWaitFrames >= STARVATION_FRAMES;
+	}
+
+	// starved regions first, longest wait first, then by score, highest first
+	private final IntComparator comparator = new IntComparator() {
+		@Override
+		public int compare(int a, int b) {
+			final boolean starvedA = isStarved(a);
+			final boolean starvedB = isStarved(b);
+
+			if (starvedA != starvedB) {
+				return starvedA ? -1 : 1;
+			} else if (starvedA) {
+				return Integer.compare(candidates.get(b).sortWaitFrames, candidates.get(a).sortWaitFrames);
+			} else {
+				return Float.compare(scores[b], scores[a]);
+			}
+		}
+	};
+
+	private final Swapper swapper = new Swapper() {
+		@Override
+		public void swap(int a, int b) {
+			final float score = scores[a];
+			scores[a] = scores[b];
+			scores[b] = score;
+
+			final int count = quadCounts[a];
+			quadCounts[a] = quadCounts[b];
+			quadCounts[b] = count;
+
+			final ObjectArrayList<BuiltRenderRegion> candidates = TranslucentSortScheduler.this.candidates;
+			final BuiltRenderRegion region = candidates.get(a);
+			candidates.set(a, candidates.get(b));
+			candidates.set(b, region);
+		}
+	};
+}
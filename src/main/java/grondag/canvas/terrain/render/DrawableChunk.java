@@ -108,14 +108,25 @@ public class DrawableChunk {
 		final int limit = drawList.size();
 		int position = 0;
 		final ObjectArrayList<DrawableDelegate> delegates = DelegateLists.getReadyDelegateList();
+		final int[] slotStarts = new int[FaceBuckets.BUCKET_COUNT + 1];
+		final float[] planes = new float[6];
 
 		for (int i = 0; i < limit; ++i) {
 			final VertexCollectorImpl collector = drawList.get(i);
+			final RenderMaterialImpl mat = collector.materialState();
 
-			if (collector.materialState().sorted == translucent) {
+			if (mat.sorted == translucent) {
 				final int vertexCount = collector.vertexCount();
-				collector.toBuffer(intBuffer);
-				delegates.add(DrawableDelegate.claim(collector.materialState(), position, vertexCount));
+
+				// order doesn't matter for unsorted quads so back-face culled materials can be grouped by face
+				if (mat.cull && !translucent) {
+					collector.toBufferByFace(intBuffer, position, slotStarts, planes);
+					delegates.add(DrawableDelegate.claim(mat, position, vertexCount, slotStarts, planes));
+				} else {
+					collector.toBuffer(intBuffer);
+					delegates.add(DrawableDelegate.claim(mat, position, vertexCount));
+				}
+
 				position += vertexCount;
 			}
 		}
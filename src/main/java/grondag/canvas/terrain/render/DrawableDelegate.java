@@ -16,20 +16,32 @@
 
 package grondag.canvas.terrain.render;
 
+import java.nio.IntBuffer;
 import java.util.concurrent.ArrayBlockingQueue;
 
-import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.systems.RenderSystem;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 
 import grondag.canvas.material.state.RenderMaterialImpl;
+import grondag.canvas.varia.GlBackend;
 
 public class DrawableDelegate {
 	private static final ArrayBlockingQueue<DrawableDelegate> store = new ArrayBlockingQueue<>(4096);
+
+	// render thread only
+	private static final int[] rangeFirst = new int[FaceBuckets.BUCKET_COUNT];
+	private static final int[] rangeCount = new int[FaceBuckets.BUCKET_COUNT];
+	private static final IntBuffer firstBuffer = BufferUtils.createIntBuffer(FaceBuckets.BUCKET_COUNT);
+	private static final IntBuffer countBuffer = BufferUtils.createIntBuffer(FaceBuckets.BUCKET_COUNT);
+
 	private RenderMaterialImpl materialState;
 	private int vertexOffset;
 	private int vertexCount;
 	private boolean isReleased = false;
+	private boolean hasFaceBuckets = false;
+	private final int[] slotStarts = new int[FaceBuckets.BUCKET_COUNT + 1];
+	private final float[] planes = new float[6];
 
 	private DrawableDelegate() {
 		super();
@@ -46,6 +58,19 @@ public class DrawableDelegate {
 		result.vertexOffset = vertexOffset;
 		result.vertexCount = vertexCount;
 		result.isReleased = false;
+		result.hasFaceBuckets = false;
+		return result;
+	}
+
+	/**
+	 * For quads packed by {@link FaceBuckets#pack(int[], int, int, IntBuffer, byte[], int, int[], float[])}.
+	 * Arrays are copied.
+	 */
+	public static DrawableDelegate claim(RenderMaterialImpl renderState, int vertexOffset, int vertexCount, int[] slotStarts, float[] planes) {
+		final DrawableDelegate result = claim(renderState, vertexOffset, vertexCount);
+		result.hasFaceBuckets = true;
+		System.arraycopy(slotStarts, 0, result.slotStarts, 0, FaceBuckets.BUCKET_COUNT + 1);
+		System.arraycopy(planes, 0, result.planes, 0, 6);
 		return result;
 	}
 
@@ -63,7 +88,33 @@ public class DrawableDelegate {
 	public void draw() {
 		assert !isReleased;
 
-		GlStateManager.drawArrays(GL11.GL_QUADS, vertexOffset, vertexCount);
+		GlBackend.get().drawArrays(GL11.GL_QUADS, vertexOffset, vertexCount);
+	}
+
+	/**
+	 * As {@link #draw()} but skips faces that point away from the camera.
+	 * Camera position must be in the same space as the vertex data.
+	 */
+	public void draw(float cameraX, float cameraY, float cameraZ) {
+		assert !isReleased;
+
+		if (!hasFaceBuckets) {
+			GlBackend.get().drawArrays(GL11.GL_QUADS, vertexOffset, vertexCount);
+			return;
+		}
+
+		final int mask = FaceBuckets.visibleBuckets(planes, cameraX, cameraY, cameraZ);
+		final int ranges = FaceBuckets.ranges(mask, slotStarts, rangeFirst, rangeCount);
+
+		if (ranges == 1) {
+			GlBackend.get().drawArrays(GL11.GL_QUADS, rangeFirst[0], rangeCount[0]);
+		} else if (ranges > 1) {
+			firstBuffer.clear();
+			firstBuffer.put(rangeFirst, 0, ranges).flip();
+			countBuffer.clear();
+			countBuffer.put(rangeCount, 0, ranges).flip();
+			GlBackend.get().multiDrawArrays(GL11.GL_QUADS, firstBuffer, countBuffer);
+		}
 	}
 
 	public void release() {
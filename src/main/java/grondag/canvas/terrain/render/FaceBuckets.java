@@ -0,0 +1,215 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.render;
+
+import java.nio.IntBuffer;
+
+/**
+ * Groups quads of back-face culled materials by the axis-aligned direction they face
+ * so that whole groups can be skipped when the camera is behind every quad in them.
+ *
+ * <p>Face constants match {@code Direction} ordinals. Quads that aren't flat and
+ * aligned to an axis go in {@link #UNALIGNED} and are always drawn. In the packed
+ * buffer {@link #UNALIGNED} comes first, followed by each face in ordinal order.
+ *
+ * <p>For each face we keep the plane coordinate nearest to the back side: the
+ * lowest plane for faces pointing in the positive direction and the highest for
+ * the negative direction. Every quad in the group is back-facing when the camera is
+ * on the far side of that plane.
+ */
+public class FaceBuckets {
+	public static final int DOWN = 0;
+	public static final int UP = 1;
+	public static final int NORTH = 2;
+	public static final int SOUTH = 3;
+	public static final int WEST = 4;
+	public static final int EAST = 5;
+	public static final int UNALIGNED = 6;
+
+	public static final int BUCKET_COUNT = 7;
+	public static final int ALL_BUCKETS = (1 << BUCKET_COUNT) - 1;
+
+	/** Tolerance for float imprecision in camera and vertex positions and minor vertex animation. */
+	private static final float PLANE_EPSILON = 0.0625f;
+
+	/** Position in the packed buffer, with unaligned quads first. */
+	public static int slot(int bucket) {
+		return bucket == UNALIGNED ? 0 : bucket + 1;
+	}
+
+	/**
+	 * Face bucket for the quad starting at the given index.  Expects three float
+	 * position components at the start of each vertex.
+	 */
+	public static int classify(int[] data, int quadIndex, int vertexStride) {
+		final int i1 = quadIndex + vertexStride;
+		final int i2 = i1 + vertexStride;
+		final int i3 = i2 + vertexStride;
+
+		final float x0 = Float.intBitsToFloat(data[quadIndex]);
+		final float y0 = Float.intBitsToFloat(data[quadIndex + 1]);
+		final float z0 = Float.intBitsToFloat(data[quadIndex + 2]);
+		final float x1 = Float.intBitsToFloat(data[i1]);
+		final float y1 = Float.intBitsToFloat(data[i1 + 1]);
+		final float z1 = Float.intBitsToFloat(data[i1 + 2]);
+		final float x2 = Float.intBitsToFloat(data[i2]);
+		final float y2 = Float.intBitsToFloat(data[i2 + 1]);
+		final float z2 = Float.intBitsToFloat(data[i2 + 2]);
+		final float x3 = Float.intBitsToFloat(data[i3]);
+		final float y3 = Float.intBitsToFloat(data[i3 + 1]);
+		final float z3 = Float.intBitsToFloat(data[i3 + 2]);
+
+		// normal from diagonals handles quads with two coincident vertices (triangles)
+		final float ax = x2 - x0;
+		final float ay = y2 - y0;
+		final float az = z2 - z0;
+		final float bx = x3 - x1;
+		final float by = y3 - y1;
+		final float bz = z3 - z1;
+
+		if (x0 == x1 && x0 == x2 && x0 == x3) {
+			final float n = ay * bz - az * by;
+			return n > 0 ? EAST : n < 0 ? WEST : UNALIGNED;
+		} else if (y0 == y1 && y0 == y2 && y0 == y3) {
+			final float n = az * bx - ax * bz;
+			return n > 0 ? UP : n < 0 ? DOWN : UNALIGNED;
+		} else if (z0 == z1 && z0 == z2 && z0 == z3) {
+			final float n = ax * by - ay * bx;
+			return n > 0 ? SOUTH : n < 0 ? NORTH : UNALIGNED;
+		} else {
+			return UNALIGNED;
+		}
+	}
+
+	/**
+	 * Copies quads to the buffer grouped by face.
+	 *
+	 * @param data source vertex data
+	 * @param integerSize number of ints in source to copy
+	 * @param vertexStride ints per vertex
+	 * @param intBuffer target
+	 * @param faces scratch array, at least one element per quad
+	 * @param vertexOffset vertex index of first quad in target
+	 * @param slotStarts receives first vertex of each slot, plus the end of the last slot
+	 * @param planes receives back-most plane coordinate of each face
+	 */
+	public static void pack(int[] data, int integerSize, int vertexStride, IntBuffer intBuffer, byte[] faces, int vertexOffset, int[] slotStarts, float[] planes) {
+		final int quadStride = vertexStride * 4;
+		final int quadCount = integerSize / quadStride;
+		final int[] counts = new int[BUCKET_COUNT];
+
+		for (int f = 0; f < 6; ++f) {
+			planes[f] = (f & 1) == 0 ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+		}
+
+		for (int q = 0; q < quadCount; ++q) {
+			final int quadIndex = q * quadStride;
+			final int face = classify(data, quadIndex, vertexStride);
+			faces[q] = (byte) face;
+			++counts[face];
+
+			if (face != UNALIGNED) {
+				// component of the first vertex on the face axis
+				final float p = Float.intBitsToFloat(data[quadIndex + (face == DOWN || face == UP ? 1 : face == WEST || face == EAST ? 0 : 2)]);
+
+				if ((face & 1) == 0) {
+					if (p > planes[face]) planes[face] = p;
+				} else {
+					if (p < planes[face]) planes[face] = p;
+				}
+			}
+		}
+
+		int start = vertexOffset;
+
+		for (int s = 0; s < BUCKET_COUNT; ++s) {
+			slotStarts[s] = start;
+			final int bucket = s == 0 ? UNALIGNED : s - 1;
+			start += counts[bucket] * 4;
+
+			if (counts[bucket] == 0) {
+				continue;
+			}
+
+			for (int q = 0; q < quadCount; ++q) {
+				if (faces[q] == bucket) {
+					intBuffer.put(data, q * quadStride, quadStride);
+				}
+			}
+		}
+
+		slotStarts[BUCKET_COUNT] = start;
+	}
+
+	/**
+	 * Buckets with at least one quad that may face a camera at the given position.
+	 * Position must be in the same space as the vertex data.
+	 */
+	public static int visibleBuckets(float[] planes, float x, float y, float z) {
+		int result = 1 << UNALIGNED;
+
+		if (y < planes[DOWN] + PLANE_EPSILON) result |= 1 << DOWN;
+		if (y > planes[UP] - PLANE_EPSILON) result |= 1 << UP;
+		if (z < planes[NORTH] + PLANE_EPSILON) result |= 1 << NORTH;
+		if (z > planes[SOUTH] - PLANE_EPSILON) result |= 1 << SOUTH;
+		if (x < planes[WEST] + PLANE_EPSILON) result |= 1 << WEST;
+		if (x > planes[EAST] - PLANE_EPSILON) result |= 1 << EAST;
+
+		return result;
+	}
+
+	/**
+	 * Converts visible buckets to contiguous vertex ranges, merging adjacent slots
+	 * and dropping empty ones.
+	 *
+	 * @return number of ranges written
+	 */
+	public static int ranges(int bucketMask, int[] slotStarts, int[] first, int[] count) {
+		int n = 0;
+		int runStart = -1;
+		int runEnd = -1;
+
+		for (int s = 0; s < BUCKET_COUNT; ++s) {
+			final int bucket = s == 0 ? UNALIGNED : s - 1;
+			final int start = slotStarts[s];
+			final int end = slotStarts[s + 1];
+
+			if ((bucketMask & (1 << bucket)) == 0 || start == end) {
+				continue;
+			}
+
+			if (start == runEnd) {
+				runEnd = end;
+			} else {
+				if (runStart != -1) {
+					first[n] = runStart;
+					count[n++] = runEnd - runStart;
+				}
+
+				runStart = start;
+				runEnd = end;
+			}
+		}
+
+		if (runStart != -1) {
+			first[n] = runStart;
+			count[n++] = runEnd - runStart;
+		}
+
+		return n;
+	}
+}
@@ -118,6 +118,9 @@ public class TerrainLayerRenderer {
 
 					drawable.vboBuffer.bind();
 
+					final float cx = (float) (x - ox);
+					final float cy = (float) (y - oy);
+					final float cz = (float) (z - oz);
 					final int limit = delegates.size();
 
 					for (int i = 0; i < limit; ++i) {
@@ -126,7 +129,7 @@ public class TerrainLayerRenderer {
 
 						if (mat.programType == ProgramType.MATERIAL_VERTEX_LOGIC || !mat.condition.affectBlocks || mat.condition.compute()) {
 							d.materialState().renderState.enableWithOrigin(ox, oy, oz);
-							d.draw();
+							d.draw(cx, cy, cz);
 						}
 					}
 
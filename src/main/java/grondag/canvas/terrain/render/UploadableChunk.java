@@ -29,15 +29,33 @@ public class UploadableChunk {
 	};
 	protected final VboBuffer vboBuffer;
 	protected final DrawableChunk drawable;
+	protected final int byteCount;
 
 	public UploadableChunk(VertexCollectorList collectorList, boolean sorted, int bytes) {
 		vboBuffer = new VboBuffer(bytes, CanvasVertexFormats.POSITION_COLOR_TEXTURE_MATERIAL_LIGHT_NORMAL);
 		drawable = DrawableChunk.pack(collectorList, vboBuffer, sorted);
+		byteCount = bytes;
 	}
 
 	private UploadableChunk() {
 		vboBuffer = null;
 		drawable = DrawableChunk.EMPTY_DRAWABLE;
+		byteCount = 0;
+	}
+
+	public int byteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * Releases buffers without uploading. Call from render thread when content is superseded.
+	 */
+	public void close() {
+		drawable.close();
+
+		if (vboBuffer != null) {
+			vboBuffer.close();
+		}
 	}
 
 	/**
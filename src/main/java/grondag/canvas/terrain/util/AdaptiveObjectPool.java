@@ -0,0 +1,182 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe pool that retains enough instances for recent demand.
+ *
+ * <p>Capacity follows the peak number of instances claimed and not yet released,
+ * between a low watermark (typically a small multiple of worker threads) and a fixed
+ * high watermark. Each {@link #update()} takes the peak seen since the last update, or
+ * if that is lower, lets the prior estimate decay a little, so that the pool holds on to
+ * instances through a burst, like a teleport, and then shrinks gradually.
+ * Instances released while the pool is at capacity are left for garbage collection.
+ */
+public class AdaptiveObjectPool<T> {
+	/** Fraction of excess demand estimate forgotten per update, as a shift. */
+	private static final int DECAY_SHIFT = 5;
+
+	/** Limits instances dropped per update when shrinking. */
+	private static final int MAX_TRIM_PER_UPDATE = 32;
+
+	/** Updates between miss rate samples. */
+	private static final int SAMPLE_INTERVAL = 64;
+
+	private final Supplier<T> factory;
+	private final int highWatermark;
+	private final long instanceBytes;
+	private final ConcurrentLinkedQueue<T> pool = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooled = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger peakInFlight = new AtomicInteger();
+	private final AtomicInteger claims = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	private volatile int lowWatermark;
+	private volatile int capacity;
+
+	// updated by update()
+	private int demandEstimate = 0;
+	private int updateCount = 0;
+	private float missRate = 0;
+
+	/**
+	 * @param factory creates new instances on pool miss
+	 * @param lowWatermark capacity is never reduced below this
+	 * @param highWatermark capacity is never increased above this
+	 * @param instanceBytes approximate memory retained by each pooled instance
+	 */
+	public AdaptiveObjectPool(Supplier<T> factory, int lowWatermark, int highWatermark, long instanceBytes) {
+		assert lowWatermark <= highWatermark;
+		this.factory = factory;
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+		this.instanceBytes = instanceBytes;
+		capacity = lowWatermark;
+	}
+
+	public void setLowWatermark(int lowWatermark) {
+		this.lowWatermark = Math.min(lowWatermark, highWatermark);
+	}
+
+	public T claim() {
+		T result = pool.poll();
+
+		if (result == null) {
+			misses.incrementAndGet();
+			result = factory.get();
+		} else {
+			pooled.decrementAndGet();
+		}
+
+		claims.incrementAndGet();
+		final int demand = inFlight.incrementAndGet();
+		peakInFlight.accumulateAndGet(demand, Math::max);
+
+		if (demand > capacity) {
+			// grow right away so instances in this burst are retained
+			capacity = Math.min(highWatermark, demand);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Instance must not be used after release.
+	 */
+	public void release(T item) {
+		inFlight.decrementAndGet();
+
+		if (pooled.incrementAndGet() <= capacity) {
+			pool.offer(item);
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Call periodically - once per frame is expected. Updates demand estimate,
+	 * adjusts capacity and drops excess instances.
+	 */
+	public void update() {
+		final int current = inFlight.get();
+		final int recentPeak = Math.min(highWatermark, peakInFlight.getAndSet(current));
+		final int estimate = demandEstimate;
+		demandEstimate = Math.max(recentPeak, estimate - Math.max(1, (estimate - recentPeak) >> DECAY_SHIFT));
+
+		final int newCapacity = Math.max(lowWatermark, demandEstimate);
+		capacity = newCapacity;
+
+		int trim = MAX_TRIM_PER_UPDATE;
+
+		while (trim-- > 0 && pooled.get() > newCapacity && pool.poll() != null) {
+			pooled.decrementAndGet();
+		}
+
+		if (++updateCount == SAMPLE_INTERVAL) {
+			updateCount = 0;
+			final int c = claims.getAndSet(0);
+			final int m = misses.getAndSet(0);
+			missRate = c == 0 ? 0 : (float) m / c;
+		}
+	}
+
+	/**
+	 * Drops all pooled instances and resets demand tracking.
+	 * Instances claimed earlier may still be released.
+	 */
+	public void clear() {
+		while (pool.poll() != null) {
+			pooled.decrementAndGet();
+		}
+
+		peakInFlight.set(inFlight.get());
+		demandEstimate = 0;
+		capacity = lowWatermark;
+	}
+
+	public int pooled() {
+		return pooled.get();
+	}
+
+	public int inFlight() {
+		return inFlight.get();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public long retainedBytes() {
+		return pooled.get() * instanceBytes;
+	}
+
+	/**
+	 * Fraction of claims that allocated a new instance, sampled over recent updates.
+	 */
+	public float missRate() {
+		return missRate;
+	}
+
+	public String debugString(String name) {
+		return String.format("%s pool: %d/%d  in use: %d  miss: %.0f%%  %dKB", name, pooled(), capacity, inFlight(), missRate * 100, retainedBytes() / 1024);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+import net.minecraft.block.AttachedStemBlock;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.CropBlock;
+import net.minecraft.block.LeavesBlock;
+import net.minecraft.block.PlantBlock;
+import net.minecraft.block.StemBlock;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.RenderLayers;
+
+import grondag.canvas.Configurator;
+
+/**
+ * Level of detail for foliage in terrain builds. Far regions omit small cutout plants
+ * and render leaves like fast graphics: solid, without faces between adjacent leaves.
+ */
+public class FoliageLod {
+	public static final int FULL = 0;
+	public static final int FAR = 1;
+
+	/**
+	 * Tier for a region at the given squared chunk distance. Regions must be one chunk
+	 * nearer than the configured distance to switch back to full detail so that
+	 * movement around the boundary doesn't cause repeated rebuilds.
+	 */
+	public static int tier(int squaredChunkDistance, int currentTier) {
+		final int dist = Configurator.foliageLodDistance;
+
+		if (dist == 0) {
+			return FULL;
+		}
+
+		if (currentTier == FAR) {
+			return squaredChunkDistance >= (dist - 1) * (dist - 1) ? FAR : FULL;
+		} else {
+			return squaredChunkDistance > dist * dist ? FAR : FULL;
+		}
+	}
+
+	/**
+	 * True for cutout plants such as grass, ferns and flowers. Crops and stems
+	 * are retained so that farms remain visible.
+	 */
+	public static boolean isOmittedPlant(BlockState blockState) {
+		final Block block = blockState.getBlock();
+
+		return block instanceof PlantBlock
+				&& !(block instanceof CropBlock || block instanceof StemBlock || block instanceof AttachedStemBlock)
+				&& RenderLayers.getBlockLayer(blockState) == RenderLayer.getCutout();
+	}
+
+	public static boolean isLeaves(BlockState blockState) {
+		return blockState.getBlock() instanceof LeavesBlock;
+	}
+}
@@ -49,14 +49,10 @@ public class TerrainExecutor {
 		final ImmutableList.Builder<Worker> builder = ImmutableList.builder();
 
 		for (int i = 0; i < poolSize; i++) {
-			final Worker w = new Worker();
+			final Worker w = new Worker("Canvas Render Thread - " + i);
 			builder.add(w);
-
-			final Thread thread = new Thread(
-					new Worker(),
-					"Canvas Render Thread - " + i);
-			thread.setDaemon(true);
-			thread.start();
+			w.setDaemon(true);
+			w.start();
 		}
 
 		workers = builder.build();
@@ -80,8 +76,7 @@ public class TerrainExecutor {
 		queue.clear();
 
 		for (final Worker w : workers) {
-			w.context.close();
-			w.context = new TerrainRenderContext();
+			w.resetContext = true;
 		}
 	}
 
@@ -89,6 +84,10 @@ public class TerrainExecutor {
 		return queue.isEmpty();
 	}
 
+	public int workerCount() {
+		return poolSize;
+	}
+
 	private class ChunkBuildTask {
 		final Consumer<TerrainRenderContext> task;
 
@@ -103,15 +102,32 @@ public class TerrainExecutor {
 		}
 	}
 
-	private class Worker implements Runnable {
+	/**
+	 * Owns the render context used for every task it runs, so tasks never need
+	 * a thread local lookup.
+	 */
+	private class Worker extends Thread {
 		private TerrainRenderContext context = new TerrainRenderContext();
 
+		/** Context may be in use when cleared, so the worker replaces it before its next task. */
+		private volatile boolean resetContext = false;
+
+		Worker(String name) {
+			super(name);
+		}
+
 		@Override
 		public void run() {
 			while (true) {
 				try {
 					final ChunkBuildTask t = queue.take();
 
+					if (resetContext) {
+						resetContext = false;
+						context.close();
+						context = new TerrainRenderContext();
+					}
+
 					if (t != null) {
 						t.task.accept(context);
 					}
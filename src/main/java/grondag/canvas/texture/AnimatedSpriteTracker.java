@@ -0,0 +1,186 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.texture;
+
+import java.util.Arrays;
+
+/**
+ * Decides which animated atlas sprites need to tick, based on the sprites referenced
+ * by geometry drawn since the last tick.
+ *
+ * <p>Sprites are identified by atlas index. Only sprites marked with {@link #setTracked(int)}
+ * are ever skipped - those are animated sprites whose every use is seen by the encoder.
+ * Terrain regions keep the tracked sprites they reference in a {@link Collector} and the
+ * union across visible regions is added each frame. Other canvas geometry is added as it
+ * is drawn.
+ *
+ * <p>When no terrain was rendered since the prior tick every sprite animates, so menus and
+ * very low frame rates behave as before.
+ *
+ * <p>Tracking bits are read from terrain worker threads and replaced only on atlas reload.
+ * Everything else is render thread only. No Minecraft dependencies so that the union and
+ * gating logic can be tested headless.
+ */
+public class AnimatedSpriteTracker {
+	public static final AnimatedSpriteTracker BLOCKS = new AnimatedSpriteTracker();
+
+	private static final long[] EMPTY = new long[0];
+	private static final int[] EMPTY_IDS = new int[0];
+
+	private volatile long[] tracked = EMPTY;
+	/** Sprites seen since the last tick. */
+	private long[] seen = EMPTY;
+	/** Sprites seen in the interval before the last tick. Read when ticking. */
+	private long[] visible = EMPTY;
+	private boolean hasFrame = false;
+	private boolean isGating = false;
+
+	/**
+	 * Call on atlas reload, before sprites are marked tracked. Clears all state.
+	 */
+	public void reset(int spriteCount) {
+		final int words = (spriteCount + 63) >> 6;
+		tracked = new long[words];
+		seen = new long[words];
+		visible = new long[words];
+		hasFrame = false;
+		isGating = false;
+	}
+
+	/** Marks an animated sprite as eligible to be skipped when not seen. */
+	public void setTracked(int spriteId) {
+		tracked[spriteId >> 6] |= 1L << spriteId;
+	}
+
+	public boolean isTracked(int spriteId) {
+		final long[] tracked = this.tracked;
+		final int word = spriteId >> 6;
+		return word < tracked.length && (tracked[word] & (1L << spriteId)) != 0;
+	}
+
+	/** Call each frame with the sprites of every visible terrain region. */
+	public void addVisible(int[] spriteIds) {
+		final long[] seen = this.seen;
+
+		for (final int id : spriteIds) {
+			final int word = id >> 6;
+
+			if (word < seen.length) {
+				seen[word] |= 1L << id;
+			}
+		}
+
+		hasFrame = true;
+	}
+
+	/** Call for sprites drawn outside of terrain regions. Untracked sprites are ignored. */
+	public void addVisible(int spriteId) {
+		if (isTracked(spriteId)) {
+			seen[spriteId >> 6] |= 1L << spriteId;
+		}
+	}
+
+	/**
+	 * Call before sprites tick. Sprites seen since the prior tick become the
+	 * visible set used by {@link #shouldAnimate(int)} until the next call.
+	 *
+	 * @param enabled false to animate everything this tick
+	 * @return true if hidden sprites will be skipped this tick
+	 */
+	public boolean beginTick(boolean enabled) {
+		final long[] swap = visible;
+		visible = seen;
+		seen = swap;
+		Arrays.fill(seen, 0);
+
+		isGating = enabled && hasFrame;
+		hasFrame = false;
+		return isGating;
+	}
+
+	public boolean shouldAnimate(int spriteId) {
+		if (!isGating || !isTracked(spriteId)) {
+			return true;
+		}
+
+		final int word = spriteId >> 6;
+		return word < visible.length && (visible[word] & (1L << spriteId)) != 0;
+	}
+
+	/** For geometry that is retained and drawn in later frames. */
+	public Collector collector() {
+		return new Collector(false);
+	}
+
+	/** For geometry drawn this frame. Sprites are added to the visible set as they are seen. */
+	public Collector immediateCollector() {
+		return new Collector(true);
+	}
+
+	/**
+	 * Distinct tracked sprites referenced by geometry from one thread, typically
+	 * the quads of one region build.
+	 */
+	public class Collector {
+		private final boolean isImmediate;
+		private int[] ids = new int[8];
+		private int size = 0;
+
+		private Collector(boolean isImmediate) {
+			this.isImmediate = isImmediate;
+		}
+
+		public void add(int spriteId) {
+			if (isImmediate) {
+				addVisible(spriteId);
+				return;
+			}
+
+			if (!isTracked(spriteId)) {
+				return;
+			}
+
+			// regions rarely reference more than a few animated sprites
+			for (int i = 0; i < size; ++i) {
+				if (ids[i] == spriteId) {
+					return;
+				}
+			}
+
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+
+			ids[size++] = spriteId;
+		}
+
+		public int[] toArray() {
+			return size == 0 ? EMPTY_IDS : Arrays.copyOf(ids, size);
+		}
+
+		/** Adds the collected sprites to the visible set. Call on the render thread. */
+		public void markVisible() {
+			for (int i = 0; i < size; ++i) {
+				addVisible(ids[i]);
+			}
+		}
+
+		public void clear() {
+			size = 0;
+		}
+	}
+}
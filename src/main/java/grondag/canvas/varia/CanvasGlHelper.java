@@ -16,8 +16,6 @@
 
 package grondag.canvas.varia;
 
-import java.nio.IntBuffer;
-
 import com.mojang.blaze3d.platform.GLX;
 import com.mojang.blaze3d.platform.GlStateManager;
 import org.apache.logging.log4j.Logger;
@@ -140,7 +138,7 @@ public class CanvasGlHelper {
 		return vaoEnabled && Configurator.enableVao();
 	}
 
-	public static void glGenVertexArrays(IntBuffer arrays) {
+	public static void glGenVertexArrays(int[] arrays) {
 		if (useVaoArb) {
 			ARBVertexArrayObject.glGenVertexArrays(arrays);
 		} else {
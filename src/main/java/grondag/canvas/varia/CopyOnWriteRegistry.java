@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.varia;
+
+import java.util.function.IntFunction;
+
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Assigns dense indexes to values created on first request for a key.
+ *
+ * <p>Lookups read an immutable snapshot of the key map without locking, so threads
+ * that only find existing values never contend. Registration is serialized and
+ * publishes a new snapshot, which makes it expensive - suited to registries that
+ * stop growing soon after load, like render states and textures.
+ *
+ * <p>Factories run while registration is locked and are called exactly once per key,
+ * so they may have side effects. They must not register values in the same registry
+ * but may use other registries.
+ */
+public class CopyOnWriteRegistry<K, V> {
+	@FunctionalInterface
+	public interface Factory<K, V> {
+		V create(int index, K key);
+	}
+
+	private final int capacity;
+	private final V[] values;
+	private final K[] keys;
+	private volatile Snapshot<K> snapshot;
+	private boolean isCreating = false;
+
+	@SuppressWarnings("unchecked")
+	public CopyOnWriteRegistry(int capacity) {
+		this.capacity = capacity;
+		values = (V[]) new Object[capacity];
+		keys = (K[]) new Object[capacity];
+		final Object2IntOpenHashMap<K> map = new Object2IntOpenHashMap<>(16, Hash.VERY_FAST_LOAD_FACTOR);
+		map.defaultReturnValue(-1);
+		snapshot = new Snapshot<>(map, 0);
+	}
+
+	/**
+	 * @return index of the value registered for the key, or -1 if none
+	 */
+	public int indexOf(K key) {
+		return snapshot.map.getInt(key);
+	}
+
+	/**
+	 * Lock-free when the key is already registered.
+	 *
+	 * @return index of the value registered for the key, creating it if necessary, or -1 if full
+	 */
+	public int getOrCreateIndex(K key, Factory<K, V> factory) {
+		final int result = snapshot.map.getInt(key);
+		return result == -1 ? create(key, factory) : result;
+	}
+
+	/**
+	 * @return value registered for the key, creating it if necessary, or null if full
+	 */
+	public V getOrCreate(K key, Factory<K, V> factory) {
+		final int index = getOrCreateIndex(key, factory);
+		return index == -1 ? null : values[index];
+	}
+
+	/**
+	 * Registers a value that can be retrieved by index but not by key, like
+	 * a placeholder at index zero.
+	 *
+	 * @return the new value, or null if full
+	 */
+	public synchronized V addUnmapped(IntFunction<V> factory) {
+		final Snapshot<K> current = beginCreate();
+
+		if (current == null) {
+			return null;
+		}
+
+		final int index = current.size;
+
+		try {
+			values[index] = factory.apply(index);
+		} finally {
+			isCreating = false;
+		}
+
+		snapshot = new Snapshot<>(current.map, index + 1);
+		return values[index];
+	}
+
+	private synchronized int create(K key, Factory<K, V> factory) {
+		// another thread may have won the race
+		int index = snapshot.map.getInt(key);
+
+		if (index != -1) {
+			return index;
+		}
+
+		final Snapshot<K> current = beginCreate();
+
+		if (current == null) {
+			return -1;
+		}
+
+		index = current.size;
+
+		try {
+			values[index] = factory.create(index, key);
+		} finally {
+			isCreating = false;
+		}
+
+		keys[index] = key;
+		final Object2IntOpenHashMap<K> map = new Object2IntOpenHashMap<>(current.map, Hash.VERY_FAST_LOAD_FACTOR);
+		map.defaultReturnValue(-1);
+		map.put(key, index);
+		snapshot = new Snapshot<>(map, index + 1);
+		return index;
+	}
+
+	private Snapshot<K> beginCreate() {
+		if (isCreating) {
+			throw new IllegalStateException("Registry factory attempted to register a value in the same registry.");
+		}
+
+		final Snapshot<K> current = snapshot;
+
+		if (current.size >= capacity) {
+			return null;
+		}
+
+		isCreating = true;
+		return current;
+	}
+
+	/**
+	 * Valid for any index obtained from this registry.
+	 */
+	public V fromIndex(int index) {
+		return values[index];
+	}
+
+	public K keyFromIndex(int index) {
+		return keys[index];
+	}
+
+	/** Values are at indexes zero through size - 1. */
+	public int size() {
+		return snapshot.size;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/** Map is never modified after publication. */
+	private static class Snapshot<K> {
+		private final Object2IntOpenHashMap<K> map;
+		private final int size;
+
+		private Snapshot(Object2IntOpenHashMap<K> map, int size) {
+			this.map = map;
+			this.size = size;
+		}
+	}
+}
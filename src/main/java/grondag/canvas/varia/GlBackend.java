@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.varia;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL21;
+
+/**
+ * GL calls for buffer management and drawing, routed through a replaceable
+ * instance so that buffer and draw logic can run against a recording
+ * implementation in tests.
+ *
+ * <p>Covers buffer names, binding, uploads, vertex arrays, draw calls and
+ * shared uniform uploads. Other shader calls and texture and fixed-function
+ * state calls are still made directly.
+ */
+public abstract class GlBackend {
+	private static GlBackend instance = new Direct();
+
+	public static GlBackend get() {
+		return instance;
+	}
+
+	/**
+	 * Replaces the active backend. For tests - not safe while rendering.
+	 *
+	 * @return the prior backend
+	 */
+	public static GlBackend set(GlBackend backend) {
+		final GlBackend result = instance;
+		instance = backend;
+		return result;
+	}
+
+	/** Fills the array with new buffer names. */
+	public abstract void genBuffers(int[] names);
+
+	public abstract void deleteBuffer(int name);
+
+	public abstract void bindBuffer(int target, int name);
+
+	/** Uploads the remaining bytes of the buffer to the buffer bound to target. */
+	public abstract void bufferData(int target, ByteBuffer data, int usage);
+
+	/** Fills the array with new vertex array names. */
+	public abstract void genVertexArrays(int[] names);
+
+	public abstract void bindVertexArray(int name);
+
+	public abstract void drawArrays(int mode, int first, int count);
+
+	/** Draws the remaining ranges of the two buffers in one call. */
+	public abstract void multiDrawArrays(int mode, IntBuffer first, IntBuffer count);
+
+	/** Uploads the remaining floats of the buffer to the program in use. */
+	public abstract void uniform1fv(int location, FloatBuffer data);
+
+	private static class Direct extends GlBackend {
+		@Override
+		public void genBuffers(int[] names) {
+			GL21.glGenBuffers(names);
+		}
+
+		@Override
+		public void deleteBuffer(int name) {
+			GL21.glDeleteBuffers(name);
+		}
+
+		@Override
+		public void bindBuffer(int target, int name) {
+			GL21.glBindBuffer(target, name);
+		}
+
+		@Override
+		public void bufferData(int target, ByteBuffer data, int usage) {
+			GL21.glBufferData(target, data, usage);
+		}
+
+		@Override
+		public void genVertexArrays(int[] names) {
+			CanvasGlHelper.glGenVertexArrays(names);
+		}
+
+		@Override
+		public void bindVertexArray(int name) {
+			CanvasGlHelper.glBindVertexArray(name);
+		}
+
+		@Override
+		public void drawArrays(int mode, int first, int count) {
+			GlStateManager.drawArrays(mode, first, count);
+		}
+
+		@Override
+		public void multiDrawArrays(int mode, IntBuffer first, IntBuffer count) {
+			GL14.glMultiDrawArrays(mode, first, count);
+		}
+
+		@Override
+		public void uniform1fv(int location, FloatBuffer data) {
+			GL21.glUniform1fv(location, data);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.varia;
+
+import java.util.function.IntFunction;
+
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * Long-keyed version of {@link CopyOnWriteRegistry}. Same contract.
+ */
+public class LongCopyOnWriteRegistry<V> {
+	@FunctionalInterface
+	public interface Factory<V> {
+		V create(int index, long key);
+	}
+
+	private final int capacity;
+	private final V[] values;
+	private final long[] keys;
+	private volatile Snapshot snapshot;
+	private boolean isCreating = false;
+
+	@SuppressWarnings("unchecked")
+	public LongCopyOnWriteRegistry(int capacity) {
+		this.capacity = capacity;
+		values = (V[]) new Object[capacity];
+		keys = new long[capacity];
+		final Long2IntOpenHashMap map = new Long2IntOpenHashMap(16, Hash.VERY_FAST_LOAD_FACTOR);
+		map.defaultReturnValue(-1);
+		snapshot = new Snapshot(map, 0);
+	}
+
+	/**
+	 * @return index of the value registered for the key, or -1 if none
+	 */
+	public int indexOf(long key) {
+		return snapshot.map.get(key);
+	}
+
+	/**
+	 * Lock-free when the key is already registered.
+	 *
+	 * @return index of the value registered for the key, creating it if necessary, or -1 if full
+	 */
+	public int getOrCreateIndex(long key, Factory<V> factory) {
+		final int result = snapshot.map.get(key);
+		return result == -1 ? create(key, factory) : result;
+	}
+
+	/**
+	 * @return value registered for the key, creating it if necessary, or null if full
+	 */
+	public V getOrCreate(long key, Factory<V> factory) {
+		final int index = getOrCreateIndex(key, factory);
+		return index == -1 ? null : values[index];
+	}
+
+	/**
+	 * Registers a value that can be retrieved by index but not by key, like
+	 * a placeholder at index zero.
+	 *
+	 * @return the new value, or null if full
+	 */
+	public synchronized V addUnmapped(IntFunction<V> factory) {
+		final Snapshot current = beginCreate();
+
+		if (current == null) {
+			return null;
+		}
+
+		final int index = current.size;
+
+		try {
+			values[index] = factory.apply(index);
+		} finally {
+			isCreating = false;
+		}
+
+		snapshot = new Snapshot(current.map, index + 1);
+		return values[index];
+	}
+
+	private synchronized int create(long key, Factory<V> factory) {
+		// another thread may have won the race
+		int index = snapshot.map.get(key);
+
+		if (index != -1) {
+			return index;
+		}
+
+		final Snapshot current = beginCreate();
+
+		if (current == null) {
+			return -1;
+		}
+
+		index = current.size;
+
+		try {
+			values[index] = factory.create(index, key);
+		} finally {
+			isCreating = false;
+		}
+
+		keys[index] = key;
+		final Long2IntOpenHashMap map = new Long2IntOpenHashMap(current.map, Hash.VERY_FAST_LOAD_FACTOR);
+		map.defaultReturnValue(-1);
+		map.put(key, index);
+		snapshot = new Snapshot(map, index + 1);
+		return index;
+	}
+
+	private Snapshot beginCreate() {
+		if (isCreating) {
+			throw new IllegalStateException("Registry factory attempted to register a value in the same registry.");
+		}
+
+		final Snapshot current = snapshot;
+
+		if (current.size >= capacity) {
+			return null;
+		}
+
+		isCreating = true;
+		return current;
+	}
+
+	/**
+	 * Valid for any index obtained from this registry.
+	 */
+	public V fromIndex(int index) {
+		return values[index];
+	}
+
+	public long keyFromIndex(int index) {
+		return keys[index];
+	}
+
+	/** Values are at indexes zero through size - 1. */
+	public int size() {
+		return snapshot.size;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/** Map is never modified after publication. */
+	private static class Snapshot {
+		private final Long2IntOpenHashMap map;
+		private final int size;
+
+		private Snapshot(Long2IntOpenHashMap map, int size) {
+			this.map = map;
+			this.size = size;
+		}
+	}
+}
@@ -28,6 +28,7 @@ import net.minecraft.world.World;
 
 import grondag.canvas.CanvasMod;
 import grondag.canvas.Configurator;
+import grondag.canvas.shader.SharedUniformBlock;
 import grondag.frex.api.light.ItemLight;
 
 public class WorldDataManager {
@@ -63,7 +64,7 @@ public class WorldDataManager {
 	private static final int FLAG0_IS_THUNDERING = 64;
 	private static final int FLAG0_IS_SKY_DARKENED = 128;
 
-	private static final float[] DATA = new float[LENGTH];
+	private static final SharedUniformBlock DATA = new SharedUniformBlock(LENGTH);
 	private static final long baseRenderTime = System.currentTimeMillis();
 	private static int flags;
 
@@ -73,7 +74,7 @@ public class WorldDataManager {
 		}
 	}
 
-	public static float[] data() {
+	public static SharedUniformBlock data() {
 		return DATA;
 	}
 
@@ -92,14 +93,14 @@ public class WorldDataManager {
 			return;
 		}
 
-		DATA[RENDER_SECONDS] = (System.currentTimeMillis() - baseRenderTime) / 1000f;
+		DATA.set(RENDER_SECONDS, (System.currentTimeMillis() - baseRenderTime) / 1000f);
 
 		final ClientWorld world = client.world;
 
 		if (world != null) {
 			final long days = world.getTimeOfDay() / 24000L;
-			DATA[WORLD_DAYS] = (int) (days % 2147483647L);
-			DATA[WORLD_TIME] = (float) ((world.getTimeOfDay() - days * 24000L) / 24000.0);
+			DATA.set(WORLD_DAYS, (int) (days % 2147483647L));
+			DATA.set(WORLD_TIME, (float) ((world.getTimeOfDay() - days * 24000L) / 24000.0));
 			final ClientPlayerEntity player = client.player;
 
 			int flags = world.getDimension().hasSkyLight() ? FLAG0_HAS_SKYLIGHT : 0;
@@ -132,7 +133,7 @@ public class WorldDataManager {
 
 			WorldDataManager.flags = flags;
 
-			DATA[RAIN_STRENGTH] = world.getRainGradient(tickDelta);
+			DATA.set(RAIN_STRENGTH, world.getRainGradient(tickDelta));
 
 			ItemLight light = ItemLight.NONE;
 
@@ -148,22 +149,22 @@ public class WorldDataManager {
 				}
 			}
 
-			DATA[HELD_LIGHT_RED] = light.red();
-			DATA[HELD_LIGHT_GREEN] = light.green();
-			DATA[HELD_LIGHT_BLUE] = light.blue();
-			DATA[HELD_LIGHT_INTENSITY] = light.intensity();
+			DATA.set(HELD_LIGHT_RED, light.red());
+			DATA.set(HELD_LIGHT_GREEN, light.green());
+			DATA.set(HELD_LIGHT_BLUE, light.blue());
+			DATA.set(HELD_LIGHT_INTENSITY, light.intensity());
 
-			DATA[AMBIENT_INTENSITY] = world.method_23783(1.0F);
-			DATA[MOON_SIZE] = world.getMoonSize();
+			DATA.set(AMBIENT_INTENSITY, world.method_23783(1.0F));
+			DATA.set(MOON_SIZE, world.getMoonSize());
 
 			final float fluidModifier = client.player.getUnderwaterVisibility();
 
 			if (nightVision) {
-				DATA[WORLD_EFFECT_MODIFIER] = GameRenderer.getNightVisionStrength(client.player, tickDelta);
+				DATA.set(WORLD_EFFECT_MODIFIER, GameRenderer.getNightVisionStrength(client.player, tickDelta));
 			} else if (fluidModifier > 0.0F && client.player.hasStatusEffect(StatusEffects.CONDUIT_POWER)) {
-				DATA[WORLD_EFFECT_MODIFIER] = fluidModifier;
+				DATA.set(WORLD_EFFECT_MODIFIER, fluidModifier);
 			} else {
-				DATA[WORLD_EFFECT_MODIFIER] = 0.0F;
+				DATA.set(WORLD_EFFECT_MODIFIER, 0.0F);
 			}
 		}
 
@@ -172,18 +173,18 @@ public class WorldDataManager {
 	}
 
 	public static void updateEmissiveColor(int color) {
-		DATA[EMISSIVE_COLOR_RED] = ((color >> 24) & 0xFF) / 255f;
-		DATA[EMISSIVE_COLOR_GREEN] = ((color >> 16) & 0xFF) / 255f;
-		DATA[EMISSIVE_COLOR_BLUE] = (color & 0xFF) / 255f;
+		DATA.set(EMISSIVE_COLOR_RED, ((color >> 24) & 0xFF) / 255f);
+		DATA.set(EMISSIVE_COLOR_GREEN, ((color >> 16) & 0xFF) / 255f);
+		DATA.set(EMISSIVE_COLOR_BLUE, (color & 0xFF) / 255f);
 	}
 
 	private static void putViewVector(int index, float yaw, float pitch) {
 		final float y = (float) Math.toRadians(yaw);
 		final float p = (float) Math.toRadians(pitch);
 
-		DATA[index] = -MathHelper.sin(y) * MathHelper.cos(p);
-		DATA[index + 1] = -MathHelper.sin(p);
-		DATA[index + 2] = MathHelper.cos(y) * MathHelper.cos(p);
+		DATA.set(index, -MathHelper.sin(y) * MathHelper.cos(p));
+		DATA.set(index + 1, -MathHelper.sin(p));
+		DATA.set(index + 2, MathHelper.cos(y) * MathHelper.cos(p));
 	}
 
 	public static int flags() {
@@ -0,0 +1,112 @@
+package grondag.canvas;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.terrain.util.AdaptiveObjectPool;
+
+class AdaptiveObjectPoolTest {
+	@Test
+	void growsWithBurstAndShrinksGradually() {
+		final AtomicInteger created = new AtomicInteger();
+		final AdaptiveObjectPool<Object> pool = new AdaptiveObjectPool<>(() -> {
+			created.incrementAndGet();
+			return new Object();
+		}, 4, 100, 10);
+
+		final ArrayList<Object> claimed = new ArrayList<>();
+
+		for (int i = 0; i < 200; ++i) {
+			claimed.add(pool.claim());
+		}
+
+		assert created.get() == 200;
+		assert pool.inFlight() == 200;
+		assert pool.capacity() == 100;
+
+		claimed.forEach(pool::release);
+		claimed.clear();
+
+		// excess over high watermark is dropped
+		assert pool.pooled() == 100;
+		assert pool.inFlight() == 0;
+		assert pool.retainedBytes() == 1000;
+
+		// burst can be served again without allocation
+		for (int i = 0; i < 100; ++i) {
+			claimed.add(pool.claim());
+		}
+
+		assert created.get() == 200;
+		claimed.forEach(pool::release);
+		claimed.clear();
+
+		// burst is remembered
+		pool.update();
+		assert pool.capacity() == 100;
+		assert pool.pooled() == 100;
+
+		pool.update();
+		final int afterOne = pool.capacity();
+		assert afterOne < 100 && afterOne > 50;
+		assert pool.pooled() <= 100 && pool.pooled() >= 100 - 32;
+
+		for (int i = 0; i < 1000; ++i) {
+			pool.update();
+		}
+
+		assert pool.capacity() == 4;
+		assert pool.pooled() == 4;
+	}
+
+	@Test
+	void retainsSteadyDemand() {
+		final AtomicInteger created = new AtomicInteger();
+		final AdaptiveObjectPool<Object> pool = new AdaptiveObjectPool<>(() -> {
+			created.incrementAndGet();
+			return new Object();
+		}, 2, 1000, 1);
+
+		final ArrayList<Object> claimed = new ArrayList<>();
+
+		for (int frame = 0; frame < 500; ++frame) {
+			for (int i = 0; i < 30; ++i) {
+				claimed.add(pool.claim());
+			}
+
+			claimed.forEach(pool::release);
+			claimed.clear();
+			pool.update();
+		}
+
+		// capacity never drops below demand seen between updates
+		assert created.get() == 30;
+		assert pool.missRate() == 0;
+	}
+
+	@Test
+	void clearResetsCapacity() {
+		final AdaptiveObjectPool<Object> pool = new AdaptiveObjectPool<>(Object::new, 2, 50, 1);
+		final Object a = pool.claim();
+		final Object b = pool.claim();
+		final Object c = pool.claim();
+		pool.release(a);
+		pool.clear();
+
+		assert pool.pooled() == 0;
+		assert pool.capacity() == 2;
+		assert pool.inFlight() == 2;
+
+		// still accepts instances claimed before clear
+		pool.release(b);
+		pool.release(c);
+		assert pool.pooled() == 2;
+		assert pool.inFlight() == 0;
+
+		pool.setLowWatermark(100);
+		pool.update();
+		assert pool.capacity() == 50;
+	}
+}
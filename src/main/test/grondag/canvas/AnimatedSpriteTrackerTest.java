@@ -0,0 +1,104 @@
+package grondag.canvas;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.texture.AnimatedSpriteTracker;
+
+class AnimatedSpriteTrackerTest {
+	static AnimatedSpriteTracker tracker(int... tracked) {
+		final AnimatedSpriteTracker result = new AnimatedSpriteTracker();
+		result.reset(200);
+
+		for (final int id : tracked) {
+			result.setTracked(id);
+		}
+
+		return result;
+	}
+
+	@Test
+	void regionCollection() {
+		final AnimatedSpriteTracker tracker = tracker(3, 64, 150);
+		final AnimatedSpriteTracker.Collector collector = tracker.collector();
+
+		// untracked and repeated sprites are left out
+		collector.add(3);
+		collector.add(7);
+		collector.add(150);
+		collector.add(3);
+		collector.add(150);
+		collector.add(999);
+
+		final int[] ids = collector.toArray();
+		assert ids.length == 2 && ids[0] == 3 && ids[1] == 150;
+
+		collector.clear();
+		assert collector.toArray().length == 0;
+
+		// grows past initial capacity
+		final AnimatedSpriteTracker all = new AnimatedSpriteTracker();
+		all.reset(100);
+
+		for (int i = 0; i < 100; ++i) {
+			all.setTracked(i);
+		}
+
+		final AnimatedSpriteTracker.Collector many = all.collector();
+
+		for (int i = 0; i < 100; ++i) {
+			many.add(i);
+			many.add(i);
+		}
+
+		assert many.toArray().length == 100;
+	}
+
+	@Test
+	void unionAndGating() {
+		final AnimatedSpriteTracker tracker = tracker(3, 64, 150);
+		final int[] regionA = {3};
+		final int[] regionB = {150};
+		final int[] empty = {};
+
+		// before any frame, everything animates
+		assert !tracker.beginTick(true);
+		assert tracker.shouldAnimate(3) && tracker.shouldAnimate(64) && tracker.shouldAnimate(150);
+
+		// union over visible regions in all frames since the last tick
+		tracker.addVisible(regionA);
+		tracker.addVisible(empty);
+		tracker.addVisible(empty);
+		tracker.addVisible(regionB);
+		assert tracker.beginTick(true);
+		assert tracker.shouldAnimate(3) && !tracker.shouldAnimate(64) && tracker.shouldAnimate(150);
+
+		// untracked sprites always animate
+		assert tracker.shouldAnimate(7) && tracker.shouldAnimate(999);
+
+		// sets do not carry across ticks
+		tracker.addVisible(regionA);
+		assert tracker.beginTick(true);
+		assert tracker.shouldAnimate(3) && !tracker.shouldAnimate(150);
+
+		// immediate geometry counts for the interval it was drawn in
+		tracker.addVisible(empty);
+		tracker.immediateCollector().add(64);
+		assert tracker.beginTick(true);
+		assert !tracker.shouldAnimate(3) && tracker.shouldAnimate(64);
+
+		// immediate geometry alone does not enable gating, nor do disabled ticks
+		tracker.immediateCollector().add(64);
+		assert !tracker.beginTick(true);
+		assert tracker.shouldAnimate(3);
+
+		tracker.addVisible(empty);
+		assert !tracker.beginTick(false);
+		assert tracker.shouldAnimate(150);
+
+		// reload clears everything
+		tracker.addVisible(empty);
+		tracker.reset(10);
+		assert !tracker.beginTick(true);
+		assert !tracker.isTracked(3);
+	}
+}
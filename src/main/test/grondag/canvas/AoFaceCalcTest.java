@@ -0,0 +1,175 @@
+package grondag.canvas;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.light.AoFaceCalc;
+import grondag.canvas.light.AoFaceData;
+
+class AoFaceCalcTest {
+	static final int SAMPLES = 200000;
+
+	static int light(Random r) {
+		return r.nextInt(8) == 0 ? AoFaceData.OPAQUE : (r.nextInt(16) << 4) | (r.nextInt(16) << 20);
+	}
+
+	static AoFaceCalc randomCalc(Random r) {
+		final AoFaceData d = new AoFaceData();
+		d.center = light(r);
+		d.top = light(r);
+		d.bottom = light(r);
+		d.left = light(r);
+		d.right = light(r);
+		d.topLeft = light(r);
+		d.topRight = light(r);
+		d.bottomLeft = light(r);
+		d.bottomRight = light(r);
+
+		// at most three occluded samples per corner, as in world
+		if (d.center == AoFaceData.OPAQUE) {
+			d.center = 0xF000F0;
+		}
+
+		d.aoTopLeft = r.nextInt(256);
+		d.aoTopRight = r.nextInt(256);
+		d.aoBottomLeft = r.nextInt(256);
+		d.aoBottomRight = r.nextInt(256);
+
+		final AoFaceCalc calc = new AoFaceCalc();
+		calc.compute(d);
+		return calc;
+	}
+
+	static final int[][] UNIT = {{256, 0, 0, 0}, {0, 256, 0, 0}, {0, 0, 256, 0}, {0, 0, 0, 256}};
+
+	/** Corner values in the layout returned by {@link AoFaceCalc#weighted(int[])}, in weight order. */
+	static int[] corners(AoFaceCalc calc) {
+		final int[] result = new int[4];
+
+		for (int i = 0; i < 4; ++i) {
+			result[i] = calc.weighted(UNIT[i]);
+		}
+
+		return result;
+	}
+
+	static int lane(int packed, int lane) {
+		return (packed >> (lane * 8)) & 0xFF;
+	}
+
+	/** The former float blend between inner and outer face. */
+	static int[] floatMean(int[] c0, int[] c1, float w1) {
+		final float w0 = 1 - w1;
+		final int[] result = new int[4];
+
+		for (int i = 0; i < 4; ++i) {
+			for (int lane = 0; lane < 3; ++lane) {
+				result[i] |= Math.round(lane(c0[i], lane) * w0 + lane(c1[i], lane) * w1) << (lane * 8);
+			}
+		}
+
+		return result;
+	}
+
+	/** The former float corner weighting: light truncated, ao rounded by the encoder. */
+	static int floatWeighted(int[] c, float u, float v) {
+		final float[] w = {v * u, v * (1 - u), (1 - v) * (1 - u), (1 - v) * u};
+		final int block = (int) (lane(c[0], 0) * w[0] + lane(c[1], 0) * w[1] + lane(c[2], 0) * w[2] + lane(c[3], 0) * w[3]) & 0xFF;
+		final int sky = (int) (lane(c[0], 1) * w[0] + lane(c[1], 1) * w[1] + lane(c[2], 1) * w[2] + lane(c[3], 1) * w[3]) & 0xFF;
+		final float ao = lane(c[0], 2) * w[0] + lane(c[1], 2) * w[1] + lane(c[2], 2) * w[2] + lane(c[3], 2) * w[3];
+		return block | (sky << 8) | (Math.round(ao / 255f * 255) << 16);
+	}
+
+	static void assertClose(int expected, int actual, int bound) {
+		for (int lane = 0; lane < 3; ++lane) {
+			assert Math.abs(lane(expected, lane) - lane(actual, lane)) <= bound : Integer.toHexString(expected) + " " + Integer.toHexString(actual);
+		}
+	}
+
+	@Test
+	void weightsSumToOne() {
+		final Random r = new Random(43);
+		final int[] w = new int[4];
+
+		for (int n = 0; n < SAMPLES; ++n) {
+			// includes exterior vertices, which are clamped
+			AoFaceCalc.weights(r.nextFloat() * 1.5f - 0.25f, r.nextFloat() * 1.5f - 0.25f, w);
+			assert w[0] >= 0 && w[1] >= 0 && w[2] >= 0 && w[3] >= 0;
+			assert w[0] + w[1] + w[2] + w[3] == 256;
+		}
+
+		AoFaceCalc.weights(1, 1, w);
+		assert w[0] == 256;
+		AoFaceCalc.weights(0, 1, w);
+		assert w[1] == 256;
+		AoFaceCalc.weights(0, 0, w);
+		assert w[2] == 256;
+		AoFaceCalc.weights(1, 0, w);
+		assert w[3] == 256;
+	}
+
+	@Test
+	void lanesDoNotCarry() {
+		final AoFaceData d = new AoFaceData();
+		d.center = d.top = d.bottom = d.left = d.right = 0xFF00FF;
+		d.topLeft = d.topRight = d.bottomLeft = d.bottomRight = 0xFF00FF;
+		d.aoTopLeft = d.aoTopRight = d.aoBottomLeft = d.aoBottomRight = 255;
+
+		final AoFaceCalc full = new AoFaceCalc();
+		full.compute(d);
+		final AoFaceCalc mean = new AoFaceCalc();
+		final int[] w = new int[4];
+
+		for (int i = 0; i <= 256; ++i) {
+			AoFaceCalc.weights(i / 256f, (256 - i) / 256f, w);
+			assert full.weighted(w) == 0xFFFFFF;
+			mean.weightedMean(full, full, i);
+			assert mean.weighted(w) == 0xFFFFFF;
+		}
+
+		final int weighted = full.weighted(UNIT[0]);
+		assert AoFaceCalc.combinedLight(weighted) == 0xFF00FF;
+		assert AoFaceCalc.ao(weighted) == 255;
+	}
+
+	@Test
+	void matchesFloatResults() {
+		final Random r = new Random(42);
+		final int[] w = new int[4];
+		final AoFaceCalc mean = new AoFaceCalc();
+		int exact = 0;
+
+		for (int n = 0; n < SAMPLES; ++n) {
+			final AoFaceCalc outer = randomCalc(r);
+			final AoFaceCalc inner = randomCalc(r);
+			final float u = r.nextFloat();
+			final float v = r.nextFloat();
+
+			// full face - weights are quantized to 1/256, so a lane can be off by up to two
+			AoFaceCalc.weights(u, v, w);
+			final int expected = floatWeighted(corners(outer), u, v);
+			final int actual = outer.weighted(w);
+			assertClose(expected, actual, 2);
+
+			if (expected == actual) {
+				++exact;
+			}
+
+			// inset face
+			final float depth = 0.03125f + r.nextFloat() * 0.9375f;
+			mean.weightedMean(outer, inner, Math.round(depth * 256));
+			final int[] floatCorners = floatMean(corners(outer), corners(inner), depth);
+			final int[] intCorners = corners(mean);
+
+			for (int i = 0; i < 4; ++i) {
+				assertClose(floatCorners[i], intCorners[i], 1);
+			}
+
+			assertClose(floatWeighted(floatCorners, u, v), mean.weighted(w), 2);
+		}
+
+		// rounding differences are the exception
+		assert exact > SAMPLES / 2 : exact;
+	}
+}
@@ -0,0 +1,66 @@
+package grondag.canvas;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.apiimpl.util.ColorHelper;
+
+class ColorHelperTest {
+	static final int STRIDE = 8;
+	static final int OFFSET = 8;
+
+	/** Per-vertex conversion used before quads were classified. */
+	static int legacy(int color, int tint) {
+		return ColorHelper.swapRedBlueIfNeeded(tint == -1 ? color : ColorHelper.multiplyColor(tint, color));
+	}
+
+	@Test
+	void classification() {
+		assert ColorHelper.colorClass(-1, -1, -1, -1) == ColorHelper.COLORS_WHITE;
+		assert ColorHelper.colorClass(0xFF808080, 0xFF808080, 0xFF808080, 0xFF808080) == ColorHelper.COLORS_UNIFORM;
+		assert ColorHelper.colorClass(0, 0, 0, 0) == ColorHelper.COLORS_UNIFORM;
+		assert ColorHelper.colorClass(-1, -1, -1, 0xFFFFFFFE) == ColorHelper.COLORS_VARYING;
+		assert ColorHelper.colorClass(0xFF000000, -1, -1, -1) == ColorHelper.COLORS_VARYING;
+	}
+
+	@Test
+	void matchesPerVertexOutput() {
+		final Random r = new Random(42);
+		final int[] palette = {-1, 0xFFFFFFFE, 0xFF000000, 0, 0x80FF8040, 0xFF48B518, 0xFF91BD59};
+		final int[] tints = {-1, 0xFF48B518, 0xFF91BD59, 0xFFFFFFFF, 0x00000000, 0x7F3F76E4};
+		final int[] data = new int[OFFSET + STRIDE * 4 + 1];
+		final int[] expected = new int[data.length];
+
+		for (int n = 0; n < 100000; ++n) {
+			final int kind = r.nextInt(4);
+
+			for (int i = 0; i < data.length; ++i) {
+				data[i] = r.nextInt();
+			}
+
+			// white, uniform, mostly uniform and random quads
+			final int base = kind == 3 ? r.nextInt() : palette[r.nextInt(palette.length)];
+
+			for (int v = 0; v < 4; ++v) {
+				data[OFFSET + v * STRIDE] = kind == 2 && v == r.nextInt(4) ? palette[r.nextInt(palette.length)] : base;
+			}
+
+			final int tint = r.nextInt(3) == 0 ? r.nextInt() : tints[r.nextInt(tints.length)];
+
+			System.arraycopy(data, 0, expected, 0, data.length);
+
+			for (int v = 0; v < 4; ++v) {
+				final int i = OFFSET + v * STRIDE;
+				expected[i] = legacy(expected[i], tint);
+			}
+
+			ColorHelper.colorizeQuad(data, OFFSET, STRIDE, tint);
+
+			// other vertex data is never touched
+			for (int i = 0; i < data.length; ++i) {
+				assert data[i] == expected[i] : String.format("quad %d index %d: %08x != %08x", n, i, data[i], expected[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package grondag.canvas;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.varia.CopyOnWriteRegistry;
+import grondag.canvas.varia.LongCopyOnWriteRegistry;
+
+class CopyOnWriteRegistryTest {
+	static final int THREADS = 8;
+	static final int KEYS = 2000;
+	static final int ROUNDS = 20;
+
+	/** Runs the task on several threads released at the same moment. Rethrows the first failure. */
+	static void race(Runnable task) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Thread[] threads = new Thread[THREADS];
+
+		for (int t = 0; t < THREADS; ++t) {
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+					task.run();
+				} catch (final Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+
+			threads[t].start();
+		}
+
+		start.countDown();
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+
+	static final class Value {
+		final int index;
+		final long key;
+
+		Value(int index, long key) {
+			this.index = index;
+			this.key = key;
+		}
+	}
+
+	@Test
+	void noLostRegistrations() throws InterruptedException {
+		for (int round = 0; round < ROUNDS; ++round) {
+			final LongCopyOnWriteRegistry<Value> registry = new LongCopyOnWriteRegistry<>(KEYS);
+			final AtomicInteger factoryCalls = new AtomicInteger();
+
+			final LongCopyOnWriteRegistry.Factory<Value> factory = (index, key) -> {
+				factoryCalls.incrementAndGet();
+				return new Value(index, key);
+			};
+
+			final AtomicInteger seed = new AtomicInteger();
+
+			// every thread requests every key, in a different order, and checks what it gets back
+			race(() -> {
+				final int offset = seed.getAndIncrement() * 997;
+
+				for (int i = 0; i < KEYS; ++i) {
+					final long key = ((i + offset) % KEYS) * 0x100000001L;
+					final Value value = registry.getOrCreate(key, factory);
+
+					if (value == null || value.key != key || registry.fromIndex(value.index) != value || registry.indexOf(key) != value.index) {
+						throw new IllegalStateException("Inconsistent registration for key " + key);
+					}
+				}
+			});
+
+			assert factoryCalls.get() == KEYS;
+			assert registry.size() == KEYS;
+
+			// indexes are dense and each maps back to its key
+			for (int i = 0; i < KEYS; ++i) {
+				final Value value = registry.fromIndex(i);
+				assert value.index == i;
+				assert registry.keyFromIndex(i) == value.key;
+				assert registry.indexOf(value.key) == i;
+			}
+
+			// full registry creates nothing and reports it
+			assert registry.getOrCreate(-1L, factory) == null;
+			assert registry.getOrCreateIndex(-1L, factory) == -1;
+			assert factoryCalls.get() == KEYS;
+		}
+	}
+
+	@Test
+	void objectKeys() throws InterruptedException {
+		final CopyOnWriteRegistry<String, String> registry = new CopyOnWriteRegistry<>(KEYS + 1);
+		final AtomicInteger factoryCalls = new AtomicInteger();
+		final String placeholder = registry.addUnmapped(index -> "none:" + index);
+
+		final CopyOnWriteRegistry.Factory<String, String> factory = (index, key) -> {
+			factoryCalls.incrementAndGet();
+			return key + ":" + index;
+		};
+
+		race(() -> {
+			for (int i = 0; i < KEYS; ++i) {
+				final String key = Integer.toString(i);
+				final String value = registry.getOrCreate(key, factory);
+
+				if (!value.startsWith(key + ":") || registry.fromIndex(registry.indexOf(key)) != value) {
+					throw new IllegalStateException("Inconsistent registration for key " + key);
+				}
+			}
+		});
+
+		assert factoryCalls.get() == KEYS;
+		assert registry.size() == KEYS + 1;
+
+		// unmapped value keeps its index and is not found by key
+		assert placeholder.equals("none:0");
+		assert registry.fromIndex(0) == placeholder;
+		assert registry.indexOf(null) == -1;
+	}
+
+	@Test
+	void recursiveRegistrationRejected() {
+		final LongCopyOnWriteRegistry<Value> registry = new LongCopyOnWriteRegistry<>(16);
+		final LongCopyOnWriteRegistry<Value> other = new LongCopyOnWriteRegistry<>(16);
+		boolean threw = false;
+
+		try {
+			registry.getOrCreate(1, (index, key) -> registry.getOrCreate(2, Value::new));
+		} catch (final IllegalStateException e) {
+			threw = true;
+		}
+
+		assert threw;
+		assert registry.size() == 0;
+
+		// other registries may be used from a factory, and a failed factory leaves the registry usable
+		final Value value = registry.getOrCreate(1, (index, key) -> {
+			other.getOrCreate(key, Value::new);
+			return new Value(index, key);
+		});
+
+		assert value.index == 0 && other.size() == 1 && registry.size() == 1;
+	}
+}
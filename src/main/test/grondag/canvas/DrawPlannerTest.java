@@ -0,0 +1,157 @@
+package grondag.canvas;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.material.state.DrawPlanner;
+
+class DrawPlannerTest {
+	static final int F = DrawPlanner.FIELD_COUNT;
+
+	/** Stands in for GL state - counts fields that change as draws are issued. */
+	static class StateTracker {
+		final int[] current = new int[F];
+		boolean initialized = false;
+		int changes = 0;
+
+		void draw(int[] states, int index) {
+			for (int f = 0; f < F; ++f) {
+				final int value = states[index * F + f];
+
+				if (!initialized || current[f] != value) {
+					current[f] = value;
+
+					if (initialized) {
+						++changes;
+					}
+				}
+			}
+
+			initialized = true;
+		}
+
+		static int run(int count, int[] states, int[] order) {
+			final StateTracker tracker = new StateTracker();
+
+			for (int i = 0; i < count; ++i) {
+				tracker.draw(states, order[i]);
+			}
+
+			return tracker.changes;
+		}
+	}
+
+	static int[] identity(int count) {
+		final int[] result = new int[count];
+
+		for (int i = 0; i < count; ++i) {
+			result[i] = i;
+		}
+
+		return result;
+	}
+
+	@Test
+	void groupsAlternatingTextures() {
+		// texture A, B, A, B in one group
+		final int[] states = new int[4 * F];
+		states[0 * F + DrawPlanner.TEXTURE] = 1;
+		states[1 * F + DrawPlanner.TEXTURE] = 2;
+		states[2 * F + DrawPlanner.TEXTURE] = 1;
+		states[3 * F + DrawPlanner.TEXTURE] = 2;
+		final long[] groups = {5, 5, 5, 5};
+		final int[] order = new int[4];
+
+		assert DrawPlanner.plan(4, groups, states, order);
+		assert order[0] == 0 && order[1] == 2 && order[2] == 1 && order[3] == 3;
+		assert StateTracker.run(4, states, order) == 1;
+		assert StateTracker.run(4, states, identity(4)) == 3;
+
+		// same draws with fixed order are left alone
+		final long[] fixed = {-1, -1, -1, -1};
+		assert !DrawPlanner.plan(4, fixed, states, order);
+		assert order[0] == 0 && order[1] == 1 && order[2] == 2 && order[3] == 3;
+
+		// or in different groups
+		final long[] separate = {1, 2, 1, 2};
+		assert !DrawPlanner.plan(4, separate, states, order);
+	}
+
+	@Test
+	void respectsOrderingConstraints() {
+		final Random r = new Random(42);
+		final int maxCount = 40;
+		final long[] groups = new long[maxCount];
+		final int[] states = new int[maxCount * F];
+		final int[] order = new int[maxCount];
+		final boolean[] seen = new boolean[maxCount];
+		long plannedCost = 0, inputCost = 0, plannedChanges = 0, inputChanges = 0;
+
+		for (int n = 0; n < 5000; ++n) {
+			final int count = 1 + r.nextInt(maxCount);
+			long group = 0;
+
+			for (int i = 0; i < count; ++i) {
+				// runs of groups, with some fixed draws
+				if (r.nextInt(6) == 0) {
+					group += 1 + r.nextInt(2);
+				}
+
+				groups[i] = r.nextInt(8) == 0 ? -1 : group;
+
+				for (int f = 0; f < F; ++f) {
+					states[i * F + f] = r.nextInt(f == DrawPlanner.TEXTURE || f == DrawPlanner.SHADER ? 4 : 2);
+				}
+			}
+
+			DrawPlanner.plan(count, groups, states, order);
+
+			Arrays.fill(seen, false);
+
+			for (int i = 0; i < count; ++i) {
+				// a permutation that keeps every draw in its group's position
+				assert !seen[order[i]];
+				seen[order[i]] = true;
+				assert groups[order[i]] == groups[i];
+
+				if (groups[i] < 0) {
+					assert order[i] == i;
+				}
+			}
+
+			final int planned = DrawPlanner.cost(count, states, order);
+			final int input = DrawPlanner.cost(count, states, identity(count));
+			plannedCost += planned;
+			inputCost += input;
+			plannedChanges += StateTracker.run(count, states, order);
+			inputChanges += StateTracker.run(count, states, identity(count));
+		}
+
+		assert plannedCost < inputCost;
+		assert plannedChanges < inputChanges;
+	}
+
+	@Test
+	void groupOrderIgnoresNeighbors() {
+		// group of four between fixed draws, drawn with different neighbors
+		final int[] states = new int[6 * F];
+		states[1 * F + DrawPlanner.TEXTURE] = 2;
+		states[2 * F + DrawPlanner.TEXTURE] = 1;
+		states[3 * F + DrawPlanner.TEXTURE] = 2;
+		states[4 * F + DrawPlanner.TEXTURE] = 1;
+		final long[] groups = {-1, 3, 3, 3, 3, -1};
+		final int[] order = new int[6];
+		final int[] expected = {0, 2, 4, 1, 3, 5};
+
+		for (int prior = 0; prior < 3; ++prior) {
+			for (int next = 0; next < 3; ++next) {
+				states[0 * F + DrawPlanner.TEXTURE] = prior;
+				states[5 * F + DrawPlanner.TEXTURE] = next;
+				DrawPlanner.plan(6, groups, states, order);
+				assert Arrays.equals(order, expected);
+			}
+		}
+	}
+}
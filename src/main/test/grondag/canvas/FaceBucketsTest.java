@@ -0,0 +1,163 @@
+package grondag.canvas;
+
+import java.nio.IntBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.terrain.render.FaceBuckets;
+
+class FaceBucketsTest {
+	static final int STRIDE = 7;
+
+	static int[] quad(float... xyz) {
+		final int[] result = new int[STRIDE * 4];
+
+		for (int v = 0; v < 4; ++v) {
+			for (int c = 0; c < 3; ++c) {
+				result[v * STRIDE + c] = Float.floatToRawIntBits(xyz[v * 3 + c]);
+			}
+
+			// tag non-position data so we can track quads after packing
+			result[v * STRIDE + 3] = (int) (xyz[0] * 1000 + xyz[1] * 100 + xyz[2]);
+		}
+
+		return result;
+	}
+
+	// vertex order matches vanilla block models - counter-clockwise seen from the front
+	static int[] up(float y) {
+		return quad(0, y, 0, 0, y, 1, 1, y, 1, 1, y, 0);
+	}
+
+	static int[] down(float y) {
+		return quad(0, y, 1, 0, y, 0, 1, y, 0, 1, y, 1);
+	}
+
+	static int[] north(float z) {
+		return quad(1, 1, z, 1, 0, z, 0, 0, z, 0, 1, z);
+	}
+
+	static int[] south(float z) {
+		return quad(0, 1, z, 0, 0, z, 1, 0, z, 1, 1, z);
+	}
+
+	static int[] west(float x) {
+		return quad(x, 1, 0, x, 0, 0, x, 0, 1, x, 1, 1);
+	}
+
+	static int[] east(float x) {
+		return quad(x, 1, 1, x, 0, 1, x, 0, 0, x, 1, 0);
+	}
+
+	static int[] concat(int[]... quads) {
+		final int[] result = new int[quads.length * STRIDE * 4];
+
+		for (int i = 0; i < quads.length; ++i) {
+			System.arraycopy(quads[i], 0, result, i * STRIDE * 4, STRIDE * 4);
+		}
+
+		return result;
+	}
+
+	@Test
+	void classifiesFaces() {
+		assert FaceBuckets.classify(up(3), 0, STRIDE) == FaceBuckets.UP;
+		assert FaceBuckets.classify(down(3), 0, STRIDE) == FaceBuckets.DOWN;
+		assert FaceBuckets.classify(north(3), 0, STRIDE) == FaceBuckets.NORTH;
+		assert FaceBuckets.classify(south(3), 0, STRIDE) == FaceBuckets.SOUTH;
+		assert FaceBuckets.classify(west(3), 0, STRIDE) == FaceBuckets.WEST;
+		assert FaceBuckets.classify(east(3), 0, STRIDE) == FaceBuckets.EAST;
+
+		// diagonal cross-model quad
+		assert FaceBuckets.classify(quad(0, 1, 0, 0, 0, 0, 1, 0, 1, 1, 1, 1), 0, STRIDE) == FaceBuckets.UNALIGNED;
+		// sloped
+		assert FaceBuckets.classify(quad(0, 0.5f, 0, 0, 0.5f, 1, 1, 1, 1, 1, 1, 0), 0, STRIDE) == FaceBuckets.UNALIGNED;
+		// degenerate
+		assert FaceBuckets.classify(quad(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0), 0, STRIDE) == FaceBuckets.UNALIGNED;
+		// triangle with last vertex repeated
+		assert FaceBuckets.classify(quad(0, 2, 0, 0, 2, 1, 1, 2, 1, 1, 2, 1), 0, STRIDE) == FaceBuckets.UP;
+	}
+
+	@Test
+	void selectsVisibleFaces() {
+		final int[] data = concat(up(4), east(2), up(8), quad(0, 1, 0, 0, 0, 0, 1, 0, 1, 1, 1, 1), down(12), north(9), west(7), south(5));
+		final IntBuffer buffer = IntBuffer.allocate(data.length);
+		final int[] slotStarts = new int[FaceBuckets.BUCKET_COUNT + 1];
+		final float[] planes = new float[6];
+		FaceBuckets.pack(data, data.length, STRIDE, buffer, new byte[8], 100, slotStarts, planes);
+
+		assert buffer.position() == data.length;
+		assert slotStarts[0] == 100;
+		assert slotStarts[FaceBuckets.BUCKET_COUNT] == 132;
+
+		// unaligned first, then faces in ordinal order, original order within faces
+		final int[] packed = buffer.array();
+		assert FaceBuckets.classify(packed, 0, STRIDE) == FaceBuckets.UNALIGNED;
+		assert FaceBuckets.classify(packed, STRIDE * 4, STRIDE) == FaceBuckets.DOWN;
+		assert Float.intBitsToFloat(packed[STRIDE * 8 + 1]) == 4;
+		assert Float.intBitsToFloat(packed[STRIDE * 12 + 1]) == 8;
+
+		for (int s = 0; s < FaceBuckets.BUCKET_COUNT; ++s) {
+			for (int v = slotStarts[s]; v < slotStarts[s + 1]; v += 4) {
+				final int q = (v - 100) * STRIDE;
+				assert FaceBuckets.slot(FaceBuckets.classify(packed, q, STRIDE)) == s;
+				assert packed[q + 3] == packed[q + STRIDE + 3];
+			}
+		}
+
+		assert planes[FaceBuckets.UP] == 4;
+		assert planes[FaceBuckets.DOWN] == 12;
+		assert planes[FaceBuckets.EAST] == 2;
+		assert planes[FaceBuckets.WEST] == 7;
+		assert planes[FaceBuckets.SOUTH] == 5;
+		assert planes[FaceBuckets.NORTH] == 9;
+
+		// between every pair of planes: all visible
+		assert FaceBuckets.visibleBuckets(planes, 5, 10, 7) == FaceBuckets.ALL_BUCKETS;
+
+		// above everything, east and south: only up, east, south
+		final int mask = FaceBuckets.visibleBuckets(planes, 20, 20, 20);
+		assert mask == (1 << FaceBuckets.UP | 1 << FaceBuckets.EAST | 1 << FaceBuckets.SOUTH | 1 << FaceBuckets.UNALIGNED);
+
+		// between the two up planes: lower still visible
+		assert (FaceBuckets.visibleBuckets(planes, 20, 6, 20) & (1 << FaceBuckets.UP)) != 0;
+		assert (FaceBuckets.visibleBuckets(planes, 20, 3, 20) & (1 << FaceBuckets.UP)) == 0;
+
+		final int[] first = new int[FaceBuckets.BUCKET_COUNT];
+		final int[] count = new int[FaceBuckets.BUCKET_COUNT];
+
+		// slots: unaligned 100, down 104, up 108-116, north 116, south 120, west 124, east 128
+		assert FaceBuckets.ranges(mask, slotStarts, first, count) == 4;
+		assert first[0] == 100 && count[0] == 4;
+		assert first[1] == 108 && count[1] == 8;
+		assert first[2] == 120 && count[2] == 4;
+		assert first[3] == 128 && count[3] == 4;
+
+		// adjacent slots merge
+		assert FaceBuckets.ranges(FaceBuckets.ALL_BUCKETS, slotStarts, first, count) == 1;
+		assert first[0] == 100 && count[0] == 32;
+
+		final int west = 1 << FaceBuckets.UNALIGNED | 1 << FaceBuckets.DOWN | 1 << FaceBuckets.UP | 1 << FaceBuckets.WEST;
+		assert FaceBuckets.ranges(west, slotStarts, first, count) == 2;
+		assert first[0] == 100 && count[0] == 16;
+		assert first[1] == 124 && count[1] == 4;
+	}
+
+	@Test
+	void emptyBucketsSkipped() {
+		final int[] data = concat(up(1), up(2));
+		final IntBuffer buffer = IntBuffer.allocate(data.length);
+		final int[] slotStarts = new int[FaceBuckets.BUCKET_COUNT + 1];
+		final float[] planes = new float[6];
+		FaceBuckets.pack(data, data.length, STRIDE, buffer, new byte[2], 0, slotStarts, planes);
+
+		final int[] first = new int[FaceBuckets.BUCKET_COUNT];
+		final int[] count = new int[FaceBuckets.BUCKET_COUNT];
+
+		// empty faces never visible regardless of camera
+		assert FaceBuckets.visibleBuckets(planes, 0, 0, 0) == 1 << FaceBuckets.UNALIGNED;
+		assert FaceBuckets.ranges(FaceBuckets.visibleBuckets(planes, 0, 0, 0), slotStarts, first, count) == 0;
+		assert FaceBuckets.ranges(FaceBuckets.visibleBuckets(planes, 0, 1.5f, 0), slotStarts, first, count) == 1;
+		assert first[0] == 0 && count[0] == 8;
+	}
+}
@@ -0,0 +1,82 @@
+package grondag.canvas;
+
+import java.nio.IntBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.buffer.BindStateManager;
+import grondag.canvas.buffer.GlBufferAllocator;
+import grondag.canvas.terrain.render.DrawableDelegate;
+import grondag.canvas.terrain.render.FaceBuckets;
+import grondag.canvas.varia.GlBackend;
+
+class GlBackendTest {
+	@Test
+	void bufferLifecycle() {
+		final RecordingGlBackend gl = new RecordingGlBackend();
+		final GlBackend prior = GlBackend.set(gl);
+
+		try {
+			final int a = GlBufferAllocator.claimBuffer(1024);
+			final int b = GlBufferAllocator.claimBuffer(1024);
+
+			// names are generated in batches
+			assert gl.genCalls == 1;
+			assert gl.liveBuffers.size() == 256;
+			assert a != b;
+
+			BindStateManager.unbind();
+			gl.resetCounters();
+
+			// redundant binds are not sent
+			BindStateManager.bind(a);
+			BindStateManager.bind(a);
+			assert gl.bindCalls == 1;
+
+			BindStateManager.bind(b);
+			BindStateManager.unbind();
+			BindStateManager.unbind();
+			assert gl.bindCalls == 3;
+
+			GlBufferAllocator.releaseBuffer(a, 1024);
+			GlBufferAllocator.releaseBuffer(b, 1024);
+			assert gl.liveBuffers.size() == 254;
+		} finally {
+			GlBackend.set(prior);
+		}
+	}
+
+	@Test
+	void faceBucketDrawCalls() {
+		final RecordingGlBackend gl = new RecordingGlBackend();
+		final GlBackend prior = GlBackend.set(gl);
+
+		try {
+			final int stride = FaceBucketsTest.STRIDE;
+			final int[] data = FaceBucketsTest.concat(FaceBucketsTest.up(4), FaceBucketsTest.east(2), FaceBucketsTest.up(8),
+					FaceBucketsTest.quad(0, 1, 0, 0, 0, 0, 1, 0, 1, 1, 1, 1), FaceBucketsTest.down(12), FaceBucketsTest.north(9),
+					FaceBucketsTest.west(7), FaceBucketsTest.south(5));
+			final int[] slotStarts = new int[FaceBuckets.BUCKET_COUNT + 1];
+			final float[] planes = new float[6];
+			FaceBuckets.pack(data, data.length, stride, IntBuffer.allocate(data.length), new byte[8], 0, slotStarts, planes);
+
+			final DrawableDelegate bucketed = DrawableDelegate.claim(null, 0, 32, slotStarts, planes);
+
+			// inside every plane - all faces, adjacent ranges merged into one draw
+			bucketed.draw(5, 10, 7);
+			assert gl.drawCalls == 1 && gl.drawRanges == 1 && gl.drawnVertices == 32;
+
+			// above, east and south - unaligned, up, south and east only, in one multi-draw
+			gl.resetCounters();
+			bucketed.draw(20, 20, 20);
+			assert gl.drawCalls == 1 && gl.drawRanges == 4 && gl.drawnVertices == 20;
+
+			// no bucketing - everything
+			gl.resetCounters();
+			DrawableDelegate.claim(null, 0, 32).draw(20, 20, 20);
+			assert gl.drawCalls == 1 && gl.drawnVertices == 32;
+		} finally {
+			GlBackend.set(prior);
+		}
+	}
+}
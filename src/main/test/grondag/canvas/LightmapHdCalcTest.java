@@ -0,0 +1,258 @@
+package grondag.canvas;
+
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.light.AoFaceData;
+import grondag.canvas.light.LightmapHdCalc;
+
+class LightmapHdCalcTest {
+	static final int SIZE = 6;
+	static final int PIXELS = SIZE * SIZE;
+	static final int SAMPLES = 100000;
+
+	static int light(Random r, int opaqueChance) {
+		if (r.nextInt(opaqueChance) == 0) {
+			return AoFaceData.OPAQUE;
+		}
+
+		// vanilla values are multiples of 16 but blended inset faces can have any value
+		return r.nextBoolean() ? (r.nextInt(16) << 4) | (r.nextInt(16) << 20) : r.nextInt(256) | (r.nextInt(256) << 16);
+	}
+
+	static AoFaceData randomFace(Random r) {
+		final AoFaceData d = new AoFaceData();
+		final int opaqueChance = 2 + r.nextInt(6);
+		d.center = light(r, 50);
+		d.top = light(r, opaqueChance);
+		d.bottom = light(r, opaqueChance);
+		d.left = light(r, opaqueChance);
+		d.right = light(r, opaqueChance);
+		d.topLeft = light(r, opaqueChance);
+		d.topRight = light(r, opaqueChance);
+		d.bottomLeft = light(r, opaqueChance);
+		d.bottomRight = light(r, opaqueChance);
+
+		// ao is frequently unoccluded
+		d.aoCenter = ao(r);
+		d.aoTop = ao(r);
+		d.aoBottom = ao(r);
+		d.aoLeft = ao(r);
+		d.aoRight = ao(r);
+		d.aoTopLeft = ao(r);
+		d.aoTopRight = ao(r);
+		d.aoBottomLeft = ao(r);
+		d.aoBottomRight = ao(r);
+		return d;
+	}
+
+	static int ao(Random r) {
+		return r.nextInt(3) == 0 ? 255 : r.nextInt(256);
+	}
+
+	/**
+	 * Float results that should round half up can land a hair below the tie, so those
+	 * may differ by one. All other pixels must match.
+	 */
+	static void assertSame(int[] expected, int[] actual) {
+		for (int i = 0; i < PIXELS; ++i) {
+			assert expected[i] == actual[i] || (Legacy.tie[i] && Math.abs(expected[i] - actual[i]) == 1)
+				: "pixel " + i + " expected " + expected[i] + " actual " + actual[i];
+		}
+	}
+
+	@Test
+	void matchesFloatOutput() {
+		final Random r = new Random(44);
+		final int[] expected = new int[PIXELS];
+		final int[] actual = new int[PIXELS];
+
+		for (int n = 0; n < SAMPLES; ++n) {
+			final AoFaceData d = randomFace(r);
+
+			Legacy.computeLight(expected, d, false);
+			LightmapHdCalc.computeLight(actual, d, false);
+			assertSame(expected, actual);
+
+			Legacy.computeLight(expected, d, true);
+			LightmapHdCalc.computeLight(actual, d, true);
+			assertSame(expected, actual);
+
+			Legacy.computeAo(expected, d);
+			LightmapHdCalc.computeAo(actual, d);
+			assertSame(expected, actual);
+		}
+	}
+
+	@Test
+	void uniformFaces() {
+		final int[] expected = new int[PIXELS];
+		final int[] actual = new int[PIXELS];
+		final AoFaceData d = new AoFaceData();
+
+		for (int value = 0; value < 256; value += 15) {
+			d.center = d.top = d.bottom = d.left = d.right = value | (value << 16);
+			d.topLeft = d.topRight = d.bottomLeft = d.bottomRight = d.center;
+			d.aoCenter = d.aoTop = d.aoBottom = d.aoLeft = d.aoRight = value;
+			d.aoTopLeft = d.aoTopRight = d.aoBottomLeft = d.aoBottomRight = value;
+
+			Legacy.computeLight(expected, d, true);
+			LightmapHdCalc.computeLight(actual, d, true);
+			assertSame(expected, actual);
+
+			Legacy.computeAo(expected, d);
+			LightmapHdCalc.computeAo(actual, d);
+			assertSame(expected, actual);
+
+			for (int i = 0; i < PIXELS; ++i) {
+				assert actual[i] == value;
+			}
+		}
+	}
+
+	/** The float implementation this replaced. */
+	static class Legacy {
+		static final int RADIUS = SIZE / 2;
+		static final float PIXEL_UNIT_FRACTION = 1f / (SIZE - 1);
+		static final float CENTRAL_PIXEL_DISTANCE = PIXEL_UNIT_FRACTION / 2;
+		static final IntUnaryOperator NEG = i -> RADIUS - 1 - i;
+		static final IntUnaryOperator POS = i -> RADIUS + i;
+		/** Pixels of the last result that were within float error of rounding the other way. */
+		static final boolean[] tie = new boolean[PIXELS];
+
+		static int lightIndex(int u, int v) {
+			return v * SIZE + u;
+		}
+
+		static float input(int b, boolean isSky) {
+			return b == AoFaceData.OPAQUE ? AoFaceData.OPAQUE : (isSky ? (b >> 16) & 0xFF : b & 0xFF);
+		}
+
+		static void computeLight(int[] light, AoFaceData faceData, boolean isSky) {
+			final float center = input(faceData.center, isSky);
+			final float top = input(faceData.top, isSky);
+			final float bottom = input(faceData.bottom, isSky);
+			final float right = input(faceData.right, isSky);
+			final float left = input(faceData.left, isSky);
+			final float topLeft = input(faceData.topLeft, isSky);
+			final float topRight = input(faceData.topRight, isSky);
+			final float bottomRight = input(faceData.bottomRight, isSky);
+			final float bottomLeft = input(faceData.bottomLeft, isSky);
+
+			computeQuadrant(center, left, top, topLeft, light, NEG, NEG);
+			computeQuadrant(center, right, top, topRight, light, POS, NEG);
+			computeQuadrant(center, left, bottom, bottomLeft, light, NEG, POS);
+			computeQuadrant(center, right, bottom, bottomRight, light, POS, POS);
+		}
+
+		static void computeQuadrant(float center, float uSide, float vSide, float corner, int[] light, IntUnaryOperator uFunc, IntUnaryOperator vFunc) {
+			if (uSide == AoFaceData.OPAQUE) {
+				if (vSide == AoFaceData.OPAQUE) {
+					computeOpen(center, center - 8f, center - 8f, center - 8f, light, uFunc, vFunc);
+				} else if (corner == AoFaceData.OPAQUE) {
+					uSide = center - 4f;
+					computeClamped(center, uSide, (vSide + center) * 0.5f, (uSide + vSide - 4f) * 0.5f, light, uFunc, vFunc);
+				} else {
+					final float join = (center + vSide + corner) / 3f;
+					computeClamped(center, center - 4f, (vSide + center) * 0.5f, join, light, uFunc, vFunc);
+				}
+			} else if (vSide == AoFaceData.OPAQUE) {
+				if (corner == AoFaceData.OPAQUE) {
+					vSide = center - 4f;
+					computeClamped(center, (uSide + center) * 0.5f, vSide, (uSide + vSide - 4f) * 0.5f, light, uFunc, vFunc);
+				} else {
+					final float join = (center + uSide + corner) / 3f;
+					computeClamped(center, (uSide + center) * 0.5f, center - 4f, join, light, uFunc, vFunc);
+				}
+			} else if (corner == AoFaceData.OPAQUE) {
+				final float join = (center + uSide + vSide) / 3f;
+				computeClamped(center, (uSide + center) * 0.5f, (vSide + center) * 0.5f, join, light, uFunc, vFunc);
+			} else {
+				computeOpen(center, uSide, vSide, corner, light, uFunc, vFunc);
+			}
+		}
+
+		static void computeOpen(float center, float uSide, float vSide, float corner, int[] light, IntUnaryOperator uFunc, IntUnaryOperator vFunc) {
+			for (int u = 0; u < RADIUS; u++) {
+				for (int v = 0; v < RADIUS; v++) {
+					final float uLinear = 1f - CENTRAL_PIXEL_DISTANCE - u * PIXEL_UNIT_FRACTION;
+					final float vLinear = 1f - CENTRAL_PIXEL_DISTANCE - v * PIXEL_UNIT_FRACTION;
+
+					final float linear = center * (uLinear * vLinear)
+							+ corner * (1 - uLinear) * (1 - vLinear)
+							+ uSide * ((1 - uLinear) * (vLinear))
+							+ vSide * ((uLinear) * (1 - vLinear));
+
+					output(linear, lightIndex(uFunc.applyAsInt(u), vFunc.applyAsInt(v)), light);
+				}
+			}
+		}
+
+		static void computeClamped(float center, float uSide, float vSide, float corner, int[] light, IntUnaryOperator uFunc, IntUnaryOperator vFunc) {
+			for (int u = 0; u < RADIUS; u++) {
+				for (int v = 0; v < RADIUS; v++) {
+					final float uLinear = 1f - PIXEL_UNIT_FRACTION - u * PIXEL_UNIT_FRACTION * 2f;
+					final float vLinear = 1f - PIXEL_UNIT_FRACTION - v * PIXEL_UNIT_FRACTION * 2f;
+
+					final float linear = center * (uLinear * vLinear)
+							+ corner * (1 - uLinear) * (1 - vLinear)
+							+ uSide * ((1 - uLinear) * (vLinear))
+							+ vSide * ((uLinear) * (1 - vLinear));
+
+					output(linear, lightIndex(uFunc.applyAsInt(u), vFunc.applyAsInt(v)), light);
+				}
+			}
+		}
+
+		static void output(float linear, int index, int[] light) {
+			final int result = Math.round(linear);
+			light[index] = result < 0 ? 0 : (result > 255 ? 255 : result);
+			tie[index] = Math.abs(linear - Math.floor(linear) - 0.5f) < 0.001f;
+		}
+
+		static int aoCorner(int a, int b, int c, int d) {
+			if (a < 0xFF) {
+				if (b < 0xFF || c < 0xFF || d < 0xFF) {
+					return (a + b + c + d + 1) >> 2;
+				} else {
+					return (a + a + b + c + d) / 5;
+				}
+			} else if (b < 0xFF) {
+				if (c < 0xFF || d < 0xFF) {
+					return (a + b + c + d + 1) >> 2;
+				} else {
+					return (a + b + b + c + d) / 5;
+				}
+			} else if (c < 0xFF) {
+				if (d < 0xFF) {
+					return (a + b + c + d + 1) >> 2;
+				} else {
+					return (a + b + c + c + d) / 5;
+				}
+			} else if (d < 0xFF) {
+				return (a + b + c + d + d) / 5;
+			} else {
+				return 0xFF;
+			}
+		}
+
+		static void computeAo(int[] light, AoFaceData faceData) {
+			final int topLeft = aoCorner(faceData.aoTop, faceData.aoTopLeft, faceData.aoLeft, faceData.aoCenter);
+			final int topRight = aoCorner(faceData.aoTop, faceData.aoTopRight, faceData.aoRight, faceData.aoCenter);
+			final int bottomRight = aoCorner(faceData.aoBottom, faceData.aoBottomRight, faceData.aoRight, faceData.aoCenter);
+			final int bottomLeft = aoCorner(faceData.aoBottom, faceData.aoBottomLeft, faceData.aoLeft, faceData.aoCenter);
+			final int center = faceData.aoCenter;
+			final int top = ((faceData.aoTop + center + 1) >> 1);
+			final int right = ((faceData.aoRight + center + 1) >> 1);
+			final int bottom = ((faceData.aoBottom + center + 1) >> 1);
+			final int left = ((faceData.aoLeft + center + 1) >> 1);
+
+			computeClamped(center, left, top, topLeft, light, NEG, NEG);
+			computeClamped(center, right, top, topRight, light, POS, NEG);
+			computeClamped(center, left, bottom, bottomLeft, light, NEG, POS);
+			computeClamped(center, right, bottom, bottomRight, light, POS, POS);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package grondag.canvas;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import it.unimi.dsi.fastutil.ints.Int2FloatOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import grondag.canvas.varia.GlBackend;
+
+/**
+ * Tracks GL objects, bindings, uploads and draws without a GL context.
+ * Fails fast on misuse that a driver would silently accept or report later.
+ */
+class RecordingGlBackend extends GlBackend {
+	private int nextName = 1;
+
+	final IntOpenHashSet liveBuffers = new IntOpenHashSet();
+	final IntOpenHashSet liveVertexArrays = new IntOpenHashSet();
+	/** Bytes most recently uploaded to each buffer. */
+	final Int2IntOpenHashMap bufferBytes = new Int2IntOpenHashMap();
+	final Int2IntOpenHashMap boundBuffers = new Int2IntOpenHashMap();
+	int boundVertexArray = 0;
+
+	int genCalls;
+	int bindCalls;
+	int uploadCalls;
+	long uploadedBytes;
+	int drawCalls;
+	int drawRanges;
+	long drawnVertices;
+	int uniformCalls;
+	int uniformFloats;
+	/** Last float uploaded to each uniform location. */
+	final Int2FloatOpenHashMap uniformValues = new Int2FloatOpenHashMap();
+
+	void resetCounters() {
+		genCalls = 0;
+		bindCalls = 0;
+		uploadCalls = 0;
+		uploadedBytes = 0;
+		drawCalls = 0;
+		drawRanges = 0;
+		drawnVertices = 0;
+		uniformCalls = 0;
+		uniformFloats = 0;
+	}
+
+	@Override
+	public void genBuffers(int[] names) {
+		++genCalls;
+
+		for (int i = 0; i < names.length; ++i) {
+			names[i] = nextName++;
+			liveBuffers.add(names[i]);
+		}
+	}
+
+	@Override
+	public void deleteBuffer(int name) {
+		if (!liveBuffers.remove(name)) {
+			throw new IllegalStateException("Deleting unknown buffer " + name);
+		}
+
+		bufferBytes.remove(name);
+
+		// deleting a bound buffer unbinds it
+		for (final int target : boundBuffers.keySet().toIntArray()) {
+			if (boundBuffers.get(target) == name) {
+				boundBuffers.put(target, 0);
+			}
+		}
+	}
+
+	@Override
+	public void bindBuffer(int target, int name) {
+		if (name != 0 && !liveBuffers.contains(name)) {
+			throw new IllegalStateException("Binding unknown buffer " + name);
+		}
+
+		++bindCalls;
+		boundBuffers.put(target, name);
+	}
+
+	@Override
+	public void bufferData(int target, ByteBuffer data, int usage) {
+		final int name = boundBuffers.get(target);
+
+		if (name == 0) {
+			throw new IllegalStateException("Upload with no buffer bound");
+		}
+
+		++uploadCalls;
+		uploadedBytes += data.remaining();
+		bufferBytes.put(name, data.remaining());
+	}
+
+	@Override
+	public void genVertexArrays(int[] names) {
+		++genCalls;
+
+		for (int i = 0; i < names.length; ++i) {
+			names[i] = nextName++;
+			liveVertexArrays.add(names[i]);
+		}
+	}
+
+	@Override
+	public void bindVertexArray(int name) {
+		if (name != 0 && !liveVertexArrays.contains(name)) {
+			throw new IllegalStateException("Binding unknown vertex array " + name);
+		}
+
+		++bindCalls;
+		boundVertexArray = name;
+	}
+
+	@Override
+	public void drawArrays(int mode, int first, int count) {
+		if (first < 0 || count < 0) {
+			throw new IllegalArgumentException("Invalid draw range " + first + ", " + count);
+		}
+
+		++drawCalls;
+		++drawRanges;
+		drawnVertices += count;
+	}
+
+	@Override
+	public void multiDrawArrays(int mode, IntBuffer first, IntBuffer count) {
+		if (first.remaining() != count.remaining()) {
+			throw new IllegalArgumentException("Mismatched multi-draw ranges");
+		}
+
+		++drawCalls;
+
+		for (int i = count.position(); i < count.limit(); ++i) {
+			++drawRanges;
+			drawnVertices += count.get(i);
+		}
+	}
+
+	@Override
+	public void uniform1fv(int location, FloatBuffer data) {
+		if (location < 0) {
+			throw new IllegalArgumentException("Invalid uniform location " + location);
+		}
+
+		++uniformCalls;
+		uniformFloats += data.remaining();
+
+		for (int i = data.position(); i < data.limit(); ++i) {
+			uniformValues.put(location + i - data.position(), data.get(i));
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package grondag.canvas;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.shader.ShaderDispatchBuilder;
+
+class ShaderDispatchBuilderTest {
+	static ShaderDispatchBuilder sample(boolean useSwitch) {
+		return new ShaderDispatchBuilder("cv_programId", useSwitch)
+			.add(0, "frx_startVertex0(data);", 1)
+			.add(2, "", 50)
+			.add(3, "frx_startVertex3(data);", 20)
+			.add(5, "frx_startVertex0(data);", 4)
+			.add(7, "frx_startVertex7(data);", 8);
+	}
+
+	@Test
+	void switchOutput() {
+		final String expected = "\tswitch (cv_programId) {\n"
+			+ "\tcase 0:\n"
+			+ "\tcase 5:\n"
+			+ "\t\tfrx_startVertex0(data);\n"
+			+ "\t\tbreak;\n"
+			+ "\tcase 3:\n"
+			+ "\t\tfrx_startVertex3(data);\n"
+			+ "\t\tbreak;\n"
+			+ "\tcase 7:\n"
+			+ "\t\tfrx_startVertex7(data);\n"
+			+ "\t\tbreak;\n"
+			+ "\t}\n";
+
+		assert sample(true).build().equals(expected);
+	}
+
+	@Test
+	void ifChainOutput() {
+		// highest weight first, identical statements merged with combined weight
+		final String expected = "\tif (cv_programId == 3) {\n"
+			+ "\t\tfrx_startVertex3(data);\n"
+			+ "\t} else if (cv_programId == 7) {\n"
+			+ "\t\tfrx_startVertex7(data);\n"
+			+ "\t} else if (cv_programId == 0 || cv_programId == 5) {\n"
+			+ "\t\tfrx_startVertex0(data);\n"
+			+ "\t}\n";
+
+		assert sample(false).build().equals(expected);
+	}
+
+	@Test
+	void lastBranchUntestedWhenNoEmptyCases() {
+		final ShaderDispatchBuilder chain = new ShaderDispatchBuilder("id", false)
+			.add(1, "a();", 1)
+			.add(2, "b();", 5);
+
+		assert chain.build().equals("\tif (id == 2) {\n\t\tb();\n\t} else {\n\t\ta();\n\t}\n");
+
+		final ShaderDispatchBuilder sw = new ShaderDispatchBuilder("id", true)
+			.add(1, "a();", 1)
+			.add(2, "b();", 5);
+
+		assert sw.build().equals("\tswitch (id) {\n\tcase 1:\n\t\ta();\n\t\tbreak;\n\tdefault:\n\t\tb();\n\t\tbreak;\n\t}\n");
+	}
+
+	@Test
+	void trivialCases() {
+		assert new ShaderDispatchBuilder("id", true).build().equals(ShaderDispatchBuilder.NOOP);
+		assert new ShaderDispatchBuilder("id", false).add(1, "", 1).add(2, "", 1).build().equals(ShaderDispatchBuilder.NOOP);
+
+		// single statement shared by every case needs no test
+		assert new ShaderDispatchBuilder("id", true).add(1, "a();", 1).add(2, "a();", 1).build().equals("\ta();");
+
+		// unless some case has no statement
+		assert new ShaderDispatchBuilder("id", false).add(1, "a();", 1).add(2, "", 1).build().equals("\tif (id == 1) {\n\t\ta();\n\t}\n");
+	}
+}
@@ -0,0 +1,112 @@
+package grondag.canvas;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.shader.ShaderDefines;
+import grondag.canvas.shader.ShaderSourceCache;
+
+class ShaderSourceCacheTest {
+	static final Pattern PATTERN = Pattern.compile("^#include\\s+(\\\"*[\\w]+:[\\w/\\.]+)[ \\t]*.*", Pattern.MULTILINE);
+
+	final Map<String, String> files = new HashMap<>();
+	int loadCount = 0;
+
+	ShaderSourceCacheTest() {
+		files.put("test:main.vert", "#version 120\n#include test:header.glsl\n#include \"test:lib/a.glsl\" // comment\n#include test:lib/b.glsl\n\nvoid main() {\n\tfoo();\n}\n");
+		files.put("test:header.glsl", "#define VERTEX_SHADER\n#define HANDHELD_LIGHT_RADIUS 0\n//#define ENABLE_LIGHT_NOISE\n// #define VERTEX_SHADER\n");
+		files.put("test:lib/a.glsl", "#include test:header.glsl\n#include test:lib/b.glsl\nvoid a() { }\n");
+		files.put("test:lib/b.glsl", "#include test:lib/a.glsl\nvoid b() { }\n#define AO_SHADING_MODE AO_MODE_NORMAL\n");
+	}
+
+	String load(String id) {
+		++loadCount;
+		return files.getOrDefault(id, "");
+	}
+
+	ShaderDefines defines() {
+		return new ShaderDefines()
+				.replace("#define VERTEX_SHADER", "#define FRAGMENT_SHADER")
+				.replace("#define HANDHELD_LIGHT_RADIUS 0", "#define HANDHELD_LIGHT_RADIUS 11")
+				.replace("//#define ENABLE_LIGHT_NOISE", "#define ENABLE_LIGHT_NOISE")
+				.replace("#define AO_SHADING_MODE AO_MODE_NORMAL", "#define AO_SHADING_MODE AO_MODE_NONE")
+				.replace("#version 120", "#version 130");
+	}
+
+	/** Prior implementation: regex include expansion followed by chained replacement. */
+	String legacy(String rootId) {
+		final HashSet<String> included = new HashSet<>();
+		String result = legacyIncludes(load(rootId), included);
+		result = StringUtils.replace(result, "#define VERTEX_SHADER", "#define FRAGMENT_SHADER");
+		result = StringUtils.replace(result, "#define HANDHELD_LIGHT_RADIUS 0", "#define HANDHELD_LIGHT_RADIUS 11");
+		result = StringUtils.replace(result, "//#define ENABLE_LIGHT_NOISE", "#define ENABLE_LIGHT_NOISE");
+		result = StringUtils.replace(result, "#define AO_SHADING_MODE AO_MODE_NORMAL", "#define AO_SHADING_MODE AO_MODE_NONE");
+		result = StringUtils.replace(result, "#version 120", "#version 130");
+		return result;
+	}
+
+	String legacyIncludes(String source, HashSet<String> included) {
+		final Matcher m = PATTERN.matcher(source);
+
+		while (m.find()) {
+			final String id = StringUtils.replace(m.group(1), "\"", "");
+
+			if (included.contains(id)) {
+				source = StringUtils.replace(source, m.group(0), "");
+			} else {
+				included.add(id);
+				final String src = legacyIncludes(load(id), included);
+				source = StringUtils.replace(source, m.group(0), src, 1);
+			}
+		}
+
+		return source;
+	}
+
+	@Test
+	void matchesLegacyOutput() {
+		final ShaderSourceCache cache = new ShaderSourceCache(this::load);
+		final String expected = legacy("test:main.vert");
+		final String result = cache.process("main", "test:main.vert", s -> s, defines());
+		assert result.equals(expected);
+
+		final String preprocessed = cache.process("pre", "test:main.vert", s -> StringUtils.replace(s, "\tfoo();", cache.load("test:lib/a.glsl")), defines());
+		assert preprocessed.contains("void a() { }\n\n}");
+		assert !preprocessed.contains("#include");
+	}
+
+	@Test
+	void reusesUnchangedSource() {
+		final ShaderSourceCache cache = new ShaderSourceCache(this::load);
+		final String first = cache.process("main", "test:main.vert", s -> s, defines());
+		final int loads = loadCount;
+
+		// no reload - nothing read
+		assert cache.process("main", "test:main.vert", s -> s, defines()) == first;
+		assert loadCount == loads;
+
+		// reload with same text - sources read again but result reused
+		cache.invalidate();
+		assert cache.process("main", "test:main.vert", s -> s, defines()) == first;
+		assert loadCount > loads;
+
+		// different defines
+		final String other = cache.process("main", "test:main.vert", s -> s, new ShaderDefines());
+		assert !other.equals(first);
+		assert other.contains("#version 120");
+
+		// changed include
+		cache.process("main", "test:main.vert", s -> s, defines());
+		files.put("test:lib/b.glsl", "void b2() { }\n");
+		cache.invalidate();
+		final String changed = cache.process("main", "test:main.vert", s -> s, defines());
+		assert changed.contains("void b2() { }");
+		assert changed.equals(legacy("test:main.vert"));
+	}
+}
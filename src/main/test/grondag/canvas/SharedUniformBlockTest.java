@@ -0,0 +1,116 @@
+package grondag.canvas;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.shader.SharedUniformBlock;
+import grondag.canvas.varia.GlBackend;
+
+class SharedUniformBlockTest {
+	static final int LENGTH = 22;
+
+	/** Locations as a driver might assign them - arbitrary base, consecutive elements. */
+	static SharedUniformBlock.Binding bind(SharedUniformBlock block, int base, int activeLength) {
+		final SharedUniformBlock.Binding binding = block.binding();
+		binding.load(i -> i < activeLength ? base + i : -1);
+		return binding;
+	}
+
+	@Test
+	void uploadsOnlyWhenChanged() {
+		final RecordingGlBackend gl = new RecordingGlBackend();
+		final GlBackend prior = GlBackend.set(gl);
+
+		try {
+			final SharedUniformBlock block = new SharedUniformBlock(LENGTH);
+			final SharedUniformBlock.Binding[] programs = {bind(block, 0, LENGTH), bind(block, 100, LENGTH), bind(block, 200, LENGTH)};
+
+			for (int i = 0; i < LENGTH; ++i) {
+				block.set(i, i);
+			}
+
+			// first activation after link uploads everything
+			for (final SharedUniformBlock.Binding p : programs) {
+				assert p.upload() == LENGTH;
+			}
+
+			assert gl.uniformCalls == 3 && gl.uniformFloats == 3 * LENGTH;
+			assert gl.uniformValues.get(221) == 21f;
+
+			// re-activation with no change uploads nothing
+			gl.resetCounters();
+
+			for (int frame = 0; frame < 10; ++frame) {
+				for (final SharedUniformBlock.Binding p : programs) {
+					assert p.upload() == 0;
+				}
+			}
+
+			assert gl.uniformCalls == 0;
+
+			// setting the same value is not a change
+			block.set(5, 5f);
+			assert programs[0].upload() == 0;
+
+			// one change per frame, each program uploads once per frame
+			for (int frame = 0; frame < 10; ++frame) {
+				block.set(1, 1000 + frame);
+
+				for (int pass = 0; pass < 4; ++pass) {
+					for (final SharedUniformBlock.Binding p : programs) {
+						p.upload();
+					}
+				}
+			}
+
+			assert gl.uniformCalls == 30 && gl.uniformFloats == 30;
+			assert gl.uniformValues.get(101) == 1009f;
+		} finally {
+			GlBackend.set(prior);
+		}
+	}
+
+	@Test
+	void dirtyRangeSpansChanges() {
+		final RecordingGlBackend gl = new RecordingGlBackend();
+		final GlBackend prior = GlBackend.set(gl);
+
+		try {
+			final SharedUniformBlock block = new SharedUniformBlock(LENGTH);
+			final SharedUniformBlock.Binding often = bind(block, 0, LENGTH);
+			final SharedUniformBlock.Binding seldom = bind(block, 100, LENGTH);
+			often.upload();
+			seldom.upload();
+			gl.resetCounters();
+
+			block.set(3, 1f);
+			block.set(7, 1f);
+			assert often.upload() == 5;
+			assert gl.uniformCalls == 1;
+
+			// a program that missed versions gets the union of changes since its last upload
+			block.set(16, 1f);
+			assert often.upload() == 1;
+			assert seldom.upload() == 14;
+			assert gl.uniformValues.get(103) == 1f && gl.uniformValues.get(116) == 1f;
+
+			// trailing elements dropped by the linker are never uploaded
+			final SharedUniformBlock.Binding trimmed = bind(block, 300, 10);
+			assert trimmed.upload() == 10;
+			block.set(16, 2f);
+			assert trimmed.upload() == 0;
+			block.set(2, 2f);
+			assert trimmed.upload() == 1;
+			assert !gl.uniformValues.containsKey(310);
+
+			// relinking forces a full upload
+			often.upload();
+			often.load(i -> i);
+			assert often.upload() == LENGTH;
+
+			// unused by the program
+			assert bind(block, 0, 0).upload() == 0;
+		} finally {
+			GlBackend.set(prior);
+		}
+	}
+}